@@ -0,0 +1,78 @@
+package org.libjpegturbo.turbojpeg.benchmark;
+
+import org.libjpegturbo.turbojpeg.TJSizeClassBufferPool;
+import org.libjpegturbo.turbojpeg.processor.api.ImageProcessInfo;
+import org.libjpegturbo.turbojpeg.processor.impl.ImageProcessorImpl;
+import org.libjpegturbo.turbojpeg.processor.impl.TJHandlePool;
+import org.libjpegturbo.turbojpeg.processor.impl.TJWorkerThread;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * Benchmark of the decompress and compress round trip of a batch, processed by the given number of threads.
+ *
+ * @since version 1.1,	10/18/2026
+ *
+ * @author Dmitry Viktorov
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchRoundTripBenchmark {
+
+    public final static int BATCH_SIZE = 32;
+
+    @Param({ BenchmarkImages.IMAGE_620P, BenchmarkImages.IMAGE_720P, BenchmarkImages.IMAGE_1080P })
+    public String image;
+
+    @Param({ "1", "2", "4", "8" })
+    public int threads;
+
+    @Param({ "SAMP_444", "SAMP_420" })
+    public String subsamp;
+
+    private ForkJoinPool batchPool;
+    private ImageProcessorImpl processor;
+    private List<byte[]> batch;
+    private int samp;
+
+    @Setup
+    public void setup() throws Exception {
+        batch = Collections.nCopies(BATCH_SIZE, BenchmarkImages.load(image));
+        samp = BenchmarkImages.constant(subsamp);
+        batchPool = new ForkJoinPool(threads, TJWorkerThread.FACTORY, null, false);
+        processor = new ImageProcessorImpl(TJHandlePool.DEFAULT_MAX_IDLE, TJHandlePool.DEFAULT_IDLE_TIMEOUT,
+                new TJSizeClassBufferPool(), batchPool);
+    }
+
+    @TearDown
+    public void tearDown() {
+        batchPool.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<ByteArrayInputStream> batchRoundTrip() throws Exception {
+
+        List<Map<String, Object>> decompressed = processor.decompressBatch(batch, 1, 1, 0).getResults();
+        List<ByteArrayInputStream> compressed = processor.compressBatch(decompressed, 80, samp, 0).getResults();
+
+        for (Map<String, Object> info : decompressed) {
+            processor.releaseBuffer(ImageProcessInfo.fromMap(info).getOutputImage());
+        }
+        return compressed;
+
+    }
+
+}
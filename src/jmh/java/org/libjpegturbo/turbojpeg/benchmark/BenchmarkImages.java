@@ -0,0 +1,54 @@
+package org.libjpegturbo.turbojpeg.benchmark;
+
+import org.libjpegturbo.turbojpeg.TJ;
+import org.libjpegturbo.turbojpeg.TJDecompressor;
+import org.libjpegturbo.turbojpeg.processor.utils.ImageProcessorUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ *
+ * Images and TurboJPEG constants shared by the benchmarks. The images are the ones of the test resources, from
+ * the smallest to the largest.
+ *
+ * @since version 1.1,	10/18/2026
+ *
+ * @author Dmitry Viktorov
+ *
+ */
+public class BenchmarkImages {
+
+    public final static String IMAGE_620P = "i10_620p_sport.jpg";
+    public final static String IMAGE_720P = "i12_720p_lemur.jpg";
+    public final static String IMAGE_1080P = "i50_1080p_giraffe_1080p.jpg";
+
+    public static byte[] load(String name) throws IOException {
+        InputStream stream = BenchmarkImages.class.getResourceAsStream("/images/" + name);
+        if (stream == null) {
+            throw new IOException("Image " + name + " couldn't be found");
+        }
+        return ImageProcessorUtils.inputStreamToByteArray(stream);
+    }
+
+    /**
+     * Decompresses the image to pixels of the given format.
+     */
+    public static byte[] decompress(byte[] jpegImage, int pixelFormat) throws Exception {
+        try (TJDecompressor decompressor = new TJDecompressor(jpegImage)) {
+            return decompressor.decompress(decompressor.getWidth(), 0, decompressor.getHeight(), pixelFormat, 0);
+        }
+    }
+
+    /**
+     * Returns the value of a TurboJPEG constant by its name, e.g. SAMP_420, PF_BGRX or FLAG_FASTDCT.
+     */
+    public static int constant(String name) {
+        try {
+            return TJ.class.getField(name).getInt(null);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Unknown TurboJPEG constant " + name, e);
+        }
+    }
+
+}
@@ -0,0 +1,74 @@
+package org.libjpegturbo.turbojpeg.benchmark;
+
+import org.libjpegturbo.turbojpeg.TJ;
+import org.libjpegturbo.turbojpeg.TJCompressor;
+import org.libjpegturbo.turbojpeg.TJDecompressor;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * Benchmark of {@link TJCompressor#compress(byte[], int)}.
+ *
+ * @since version 1.1,	10/18/2026
+ *
+ * @author Dmitry Viktorov
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompressBenchmark {
+
+    @Param({ BenchmarkImages.IMAGE_620P, BenchmarkImages.IMAGE_720P, BenchmarkImages.IMAGE_1080P })
+    public String image;
+
+    @Param({ "SAMP_444", "SAMP_422", "SAMP_420", "SAMP_GRAY" })
+    public String subsamp;
+
+    @Param({ "PF_RGB", "PF_BGRX" })
+    public String pixelFormat;
+
+    @Param({ "FLAG_ACCURATEDCT", "FLAG_FASTDCT" })
+    public String dct;
+
+    private TJCompressor compressor;
+    private byte[] dstBuf;
+    private int flags;
+
+    @Setup
+    public void setup() throws Exception {
+
+        byte[] jpegImage = BenchmarkImages.load(image);
+        int format = BenchmarkImages.constant(pixelFormat);
+        int width, height;
+        try (TJDecompressor decompressor = new TJDecompressor(jpegImage)) {
+            width = decompressor.getWidth();
+            height = decompressor.getHeight();
+        }
+
+        compressor = new TJCompressor();
+        compressor.setSourceImage(BenchmarkImages.decompress(jpegImage, format), 0, 0, width, 0, height, format);
+        compressor.setSubsamp(BenchmarkImages.constant(subsamp));
+        compressor.setJPEGQuality(80);
+        dstBuf = new byte[TJ.bufSize(width, height, BenchmarkImages.constant(subsamp))];
+        flags = BenchmarkImages.constant(dct);
+
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        compressor.close();
+    }
+
+    @Benchmark
+    public int compress() throws Exception {
+        compressor.compress(dstBuf, flags);
+        return compressor.getCompressedSize();
+    }
+
+}
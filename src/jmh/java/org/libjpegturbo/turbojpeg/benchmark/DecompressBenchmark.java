@@ -0,0 +1,82 @@
+package org.libjpegturbo.turbojpeg.benchmark;
+
+import org.libjpegturbo.turbojpeg.TJ;
+import org.libjpegturbo.turbojpeg.TJDecompressor;
+import org.libjpegturbo.turbojpeg.TJScalingFactor;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * Benchmark of {@link TJDecompressor#decompress(byte[], int, int, int, int, int, int, int)} for each scaling
+ * factor returned by {@link TJ#getScalingFactors()}.
+ *
+ * @since version 1.1,	10/18/2026
+ *
+ * @author Dmitry Viktorov
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecompressBenchmark {
+
+    @Param({ BenchmarkImages.IMAGE_620P, BenchmarkImages.IMAGE_720P, BenchmarkImages.IMAGE_1080P })
+    public String image;
+
+    @Param({ "2/1", "15/8", "7/4", "13/8", "3/2", "11/8", "5/4", "9/8",
+             "1/1", "7/8", "3/4", "5/8", "1/2", "3/8", "1/4", "1/8" })
+    public String scale;
+
+    @Param({ "PF_RGB", "PF_BGRX" })
+    public String pixelFormat;
+
+    @Param({ "FLAG_ACCURATEDCT", "FLAG_FASTDCT" })
+    public String dct;
+
+    private TJDecompressor decompressor;
+    private byte[] dstBuf;
+    private int width;
+    private int height;
+    private int format;
+    private int flags;
+
+    @Setup
+    public void setup() throws Exception {
+
+        decompressor = new TJDecompressor(BenchmarkImages.load(image));
+
+        String[] fraction = scale.split("/");
+        TJScalingFactor factor = null;
+        for (TJScalingFactor supported : TJ.getScalingFactors()) {
+            if (supported.getNum() == Integer.parseInt(fraction[0]) && supported.getDenom() == Integer.parseInt(fraction[1])) {
+                factor = supported;
+            }
+        }
+        if (factor == null) {
+            throw new IllegalArgumentException("Unsupported scaling factor: " + scale);
+        }
+        width = factor.getScaled(decompressor.getWidth());
+        height = factor.getScaled(decompressor.getHeight());
+        format = BenchmarkImages.constant(pixelFormat);
+        flags = BenchmarkImages.constant(dct);
+        dstBuf = new byte[width * height * TJ.getPixelSize(format)];
+
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        decompressor.close();
+    }
+
+    @Benchmark
+    public byte[] decompress() throws Exception {
+        decompressor.decompress(dstBuf, 0, 0, width, 0, height, format, flags);
+        return dstBuf;
+    }
+
+}
@@ -0,0 +1,95 @@
+package org.libjpegturbo.turbojpeg.benchmark;
+
+import org.libjpegturbo.turbojpeg.processor.api.ImageHeader;
+import org.libjpegturbo.turbojpeg.processor.api.ImageProcessResult;
+import org.libjpegturbo.turbojpeg.processor.api.ImageProcessor;
+import org.libjpegturbo.turbojpeg.processor.impl.ImageProcessorImpl;
+import org.libjpegturbo.turbojpeg.processor.impl.ImageProcessorReflectionDelegate;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * Benchmark of the call overhead of {@link ImageProcessorReflectionDelegate} compared to direct calls of
+ * {@link ImageProcessorImpl} and to calls by {@link Method#invoke}. Probing a header is cheap enough to make
+ * the dispatch visible, and small scaled decompression stands for thumbnail traffic.
+ *
+ * @since version 1.1,	10/18/2026
+ *
+ * @author Dmitry Viktorov
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DelegateBenchmark {
+
+    @Param({ BenchmarkImages.IMAGE_620P })
+    public String image;
+
+    private ImageProcessor direct;
+    private ImageProcessor delegate;
+    private Method probeMethod;
+    private Method decompressMethod;
+    private byte[] jpegImage;
+
+    /**
+     * The result holder is mutable, so each benchmark thread keeps its own.
+     */
+    @State(Scope.Thread)
+    public static class ThreadResult {
+        public final ImageProcessResult result = new ImageProcessResult();
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        jpegImage = BenchmarkImages.load(image);
+        direct = new ImageProcessorImpl();
+        delegate = new ImageProcessorReflectionDelegate();
+        probeMethod = ImageProcessorImpl.class.getDeclaredMethod(ImageProcessor.METHOD_PROBE, byte[].class);
+        decompressMethod = ImageProcessorImpl.class.getDeclaredMethod(ImageProcessor.METHOD_DECOMPRESS_JPEG,
+                byte[].class, int.class, int.class, int.class, ImageProcessResult.class);
+    }
+
+    @Benchmark
+    public ImageHeader probeDirect() throws Exception {
+        return direct.probe(jpegImage);
+    }
+
+    @Benchmark
+    public ImageHeader probeDelegate() throws Exception {
+        return delegate.probe(jpegImage);
+    }
+
+    @Benchmark
+    public ImageHeader probeReflection() throws Exception {
+        return (ImageHeader) probeMethod.invoke(direct, (Object) jpegImage);
+    }
+
+    @Benchmark
+    public ImageProcessResult thumbnailDirect(ThreadResult state) throws Exception {
+        ImageProcessResult thumbnail = direct.decompressJpegImage(jpegImage, 1, 8, 0, state.result);
+        direct.releaseBuffer(thumbnail.getOutputImage());
+        return thumbnail;
+    }
+
+    @Benchmark
+    public ImageProcessResult thumbnailDelegate(ThreadResult state) throws Exception {
+        ImageProcessResult thumbnail = delegate.decompressJpegImage(jpegImage, 1, 8, 0, state.result);
+        delegate.releaseBuffer(thumbnail.getOutputImage());
+        return thumbnail;
+    }
+
+    @Benchmark
+    public ImageProcessResult thumbnailReflection(ThreadResult state) throws Exception {
+        ImageProcessResult thumbnail = (ImageProcessResult) decompressMethod.invoke(direct, jpegImage, 1, 8, 0, state.result);
+        direct.releaseBuffer(thumbnail.getOutputImage());
+        return thumbnail;
+    }
+
+}
@@ -0,0 +1,56 @@
+package org.libjpegturbo.turbojpeg.benchmark;
+
+import org.libjpegturbo.turbojpeg.TJSizeClassBufferPool;
+import org.libjpegturbo.turbojpeg.processor.api.ImageProcessInfo;
+import org.libjpegturbo.turbojpeg.processor.impl.ImageProcessorImpl;
+import org.libjpegturbo.turbojpeg.processor.impl.TJHandlePool;
+import org.libjpegturbo.turbojpeg.processor.utils.ImageProcessorUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * Benchmark of the decompress and compress round trip of a single image by {@link ImageProcessorUtils}. The
+ * batch round trip is measured by {@link BatchRoundTripBenchmark}.
+ *
+ * @since version 1.1,	10/18/2026
+ *
+ * @author Dmitry Viktorov
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoundTripBenchmark {
+
+    @Param({ BenchmarkImages.IMAGE_620P, BenchmarkImages.IMAGE_720P, BenchmarkImages.IMAGE_1080P })
+    public String image;
+
+    @Param({ "SAMP_444", "SAMP_420" })
+    public String subsamp;
+
+    private ImageProcessorImpl processor;
+    private byte[] jpegImage;
+    private int samp;
+
+    @Setup
+    public void setup() throws Exception {
+        jpegImage = BenchmarkImages.load(image);
+        samp = BenchmarkImages.constant(subsamp);
+        processor = new ImageProcessorImpl(TJHandlePool.DEFAULT_MAX_IDLE, TJHandlePool.DEFAULT_IDLE_TIMEOUT,
+                new TJSizeClassBufferPool());
+    }
+
+    @Benchmark
+    public Map<String, Object> roundTrip() throws Exception {
+        Map<String, Object> result = ImageProcessorUtils.compressImage(processor, jpegImage, 80, 1, 1, samp, 0);
+        processor.releaseBuffer(ImageProcessInfo.fromMap(result).getOutputImage());
+        return result;
+    }
+
+}
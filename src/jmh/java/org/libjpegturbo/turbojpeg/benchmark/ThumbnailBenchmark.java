@@ -0,0 +1,65 @@
+package org.libjpegturbo.turbojpeg.benchmark;
+
+import org.libjpegturbo.turbojpeg.TJ;
+import org.libjpegturbo.turbojpeg.processor.api.ImageProcessInfo;
+import org.libjpegturbo.turbojpeg.processor.impl.ImageProcessorImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * Benchmark of the thumbnail pyramid of {@link ImageProcessorImpl}: all the sizes from a single decode against
+ * a separate decode for every size.
+ *
+ * @since version 1.1,	10/18/2026
+ *
+ * @author Dmitry Viktorov
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ThumbnailBenchmark {
+
+    public final static int[] SIZES = new int[] { 480, 320, 240, 160, 64 };
+
+    @Param({ BenchmarkImages.IMAGE_620P, BenchmarkImages.IMAGE_720P, BenchmarkImages.IMAGE_1080P })
+    public String image;
+
+    private ImageProcessorImpl processor;
+    private byte[] jpegImage;
+
+    @Setup
+    public void setup() throws Exception {
+        jpegImage = BenchmarkImages.load(image);
+        processor = new ImageProcessorImpl();
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> pyramid() throws Exception {
+        return release(processor.createThumbnails(jpegImage, SIZES, 80, TJ.SAMP_420, 0));
+    }
+
+    @Benchmark
+    public Object decodePerSize() throws Exception {
+        List<Map<String, Object>> result = null;
+        for (int size : SIZES) {
+            result = release(processor.createThumbnails(jpegImage, new int[] { size }, 80, TJ.SAMP_420, 0));
+        }
+        return result;
+    }
+
+    private List<Map<String, Object>> release(List<Map<String, Object>> results) {
+        for (Map<String, Object> result : results) {
+            processor.releaseBuffer(ImageProcessInfo.fromMap(result).getOutputImage());
+        }
+        return results;
+    }
+
+}
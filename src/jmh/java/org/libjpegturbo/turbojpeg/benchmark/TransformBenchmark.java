@@ -0,0 +1,61 @@
+package org.libjpegturbo.turbojpeg.benchmark;
+
+import org.libjpegturbo.turbojpeg.TJ;
+import org.libjpegturbo.turbojpeg.TJTransform;
+import org.libjpegturbo.turbojpeg.TJTransformer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * Benchmark of the lossless {@link TJTransformer#transform(byte[][], TJTransform[], int)}.
+ *
+ * @since version 1.1,	10/18/2026
+ *
+ * @author Dmitry Viktorov
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransformBenchmark {
+
+    @Param({ BenchmarkImages.IMAGE_620P, BenchmarkImages.IMAGE_720P, BenchmarkImages.IMAGE_1080P })
+    public String image;
+
+    @Param({ "OP_NONE", "OP_HFLIP", "OP_ROT90", "OP_TRANSPOSE" })
+    public String op;
+
+    private TJTransformer transformer;
+    private TJTransform[] transforms;
+    private byte[][] dstBufs;
+
+    @Setup
+    public void setup() throws Exception {
+
+        transformer = new TJTransformer(BenchmarkImages.load(image));
+
+        TJTransform transform = new TJTransform();
+        transform.op = TJTransform.class.getField(op).getInt(null);
+        transform.options = TJTransform.OPT_TRIM;
+        transforms = new TJTransform[] { transform };
+        dstBufs = new byte[][] { new byte[TJ.bufSize(transformer.getWidth(), transformer.getHeight(), transformer.getSubsamp())] };
+
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        transformer.close();
+    }
+
+    @Benchmark
+    public int transform() throws Exception {
+        transformer.transform(dstBufs, transforms, 0);
+        return transformer.getTransformedSizes()[0];
+    }
+
+}
@@ -0,0 +1,83 @@
+package org.libjpegturbo.turbojpeg.benchmark;
+
+import org.libjpegturbo.turbojpeg.TJ;
+import org.libjpegturbo.turbojpeg.TJCompressor;
+import org.libjpegturbo.turbojpeg.TJDecompressor;
+import org.libjpegturbo.turbojpeg.YUVImage;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * Benchmark of the YUV planar paths: {@link TJCompressor#encodeYUV(YUVImage, int)} and
+ * {@link TJDecompressor#decompressToYUV(YUVImage, int)}.
+ *
+ * @since version 1.1,	10/18/2026
+ *
+ * @author Dmitry Viktorov
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class YUVBenchmark {
+
+    @Param({ BenchmarkImages.IMAGE_620P, BenchmarkImages.IMAGE_720P, BenchmarkImages.IMAGE_1080P })
+    public String image;
+
+    @Param({ "SAMP_444", "SAMP_422", "SAMP_420" })
+    public String subsamp;
+
+    @Param({ "FLAG_ACCURATEDCT", "FLAG_FASTDCT" })
+    public String dct;
+
+    private TJCompressor compressor;
+    private TJDecompressor decompressor;
+    private YUVImage encodedImage;
+    private YUVImage decompressedImage;
+    private int flags;
+
+    @Setup
+    public void setup() throws Exception {
+
+        byte[] jpegImage = BenchmarkImages.load(image);
+        int samp = BenchmarkImages.constant(subsamp);
+        flags = BenchmarkImages.constant(dct);
+
+        decompressor = new TJDecompressor(jpegImage);
+        int width = decompressor.getWidth();
+        int height = decompressor.getHeight();
+
+        compressor = new TJCompressor();
+        compressor.setSourceImage(BenchmarkImages.decompress(jpegImage, TJ.PF_BGRX), 0, 0, width, 0, height, TJ.PF_BGRX);
+        compressor.setSubsamp(samp);
+        encodedImage = new YUVImage(width, 4, height, samp);
+
+        // The image can be decompressed to YUV only with its own subsampling
+        decompressedImage = new YUVImage(width, 4, height, decompressor.getSubsamp());
+
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        compressor.close();
+        decompressor.close();
+    }
+
+    @Benchmark
+    public YUVImage encodeYUV() throws Exception {
+        compressor.encodeYUV(encodedImage, flags);
+        return encodedImage;
+    }
+
+    @Benchmark
+    public YUVImage decompressToYUV() throws Exception {
+        decompressor.decompressToYUV(decompressedImage, flags);
+        return decompressedImage;
+    }
+
+}
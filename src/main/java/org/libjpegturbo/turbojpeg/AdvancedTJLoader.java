@@ -32,12 +32,21 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.security.NoSuchAlgorithmException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Properties;
 
 /**
  *
@@ -62,6 +71,20 @@ class AdvancedTJLoader {
     protected final static String LIB_NAME = "libturbojpeg";
     protected final static String LIB_NAME_GENERIC = "turbojpeg";
 
+    /**
+     * Manifest written next to the extracted library once it's verified, so a warm start can trust the library
+     * without hashing it while its size and modification time are unchanged.
+     */
+    protected final static String MANIFEST_SUFFIX = ".manifest";
+    protected final static String MANIFEST_RESOURCE = "resource";
+    protected final static String MANIFEST_SIZE = "size";
+    protected final static String MANIFEST_MODIFIED = "modified";
+    protected final static String MANIFEST_MD5 = "md5";
+    /**
+     * Lock file which serializes the extraction among the JVMs of the host.
+     */
+    protected final static String LOCK_SUFFIX = ".lock";
+
     protected static volatile String loadedLibPath = null;
     protected static volatile String internalLibVersion = null;
     protected static volatile boolean internalLibRenewed = false;
@@ -121,11 +144,6 @@ class AdvancedTJLoader {
         // Apply the internal version if submitted
         internalLibVersion = System.getProperty(KEY_LIB_VERSION, LIB_VERSION_DEFAULT);
 
-        // Remove library if it should be renewed
-        if (internalLibRenewed) {
-            new File(getFullExtractedLibraryPath()).delete();
-        }
-
         // Set native library name
         String libName = System.getProperty(KEY_LIB_NAME);
         if (libName == null || libName.isEmpty()) {
@@ -140,9 +158,15 @@ class AdvancedTJLoader {
 
         String fullLibPath = libPath + File.separator + libName;
 
-        // If native library is not found, extract the internal library and reset the full path
+        // The internal library is extracted again if it should be renewed or its manifest doesn't match it,
+        // otherwise if native library is not found, extract the internal library and reset the full path
         File libFile = new File(fullLibPath);
-        if (!libFile.exists() || libFile.length() == 0) {
+        if (fullLibPath.equals(getFullExtractedLibraryPath())) {
+            if (internalLibRenewed || !isExtractedLibraryValid(getLibraryFullInternalPath("/"), fullLibPath)) {
+                log.debug("Extracting native mozjpeg library because it's renewed or not verified at {}", fullLibPath);
+                extractNativeLibraryWithRetrial();
+            }
+        } else if (!libFile.exists() || libFile.length() == 0) {
             log.debug("Extracting native mozjpeg library becuase it's not found at {}", fullLibPath);
             extractNativeLibraryWithRetrial();
             fullLibPath = getFullExtractedLibraryPath();
@@ -198,28 +222,150 @@ class AdvancedTJLoader {
         return result;
     }
 
-    protected static void extractNativeLibraryWithRetrial() throws IOException {
+    /**
+     * Extracts the internal library under an exclusive lock of the host, so JVMs starting at once don't corrupt
+     * each other's library. The library is extracted into a temporary file, verified by MD5 and renamed into
+     * place atomically, so the library path never holds a partial file. Extraction is skipped if another JVM
+     * has extracted the library while waiting for the lock.
+     */
+    protected static synchronized void extractNativeLibraryWithRetrial() throws IOException {
 
         String internalLibPath = getLibraryFullInternalPath("/");
         String extractedLibPath = getFullExtractedLibraryPath();
 
-        extractNativeLibrary(internalLibPath, extractedLibPath);
+        File extractedLibFile = new File(extractedLibPath);
+        File parentFile = extractedLibFile.getParentFile();
+        if (parentFile != null) {
+            parentFile.mkdirs();
+        }
+
+        try (FileChannel lockChannel = FileChannel.open(new File(extractedLibPath + LOCK_SUFFIX).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
 
-        // Verify MD5, and ignore exceptions since they don't confirm invalidity of MD5
-        boolean md5Matches = true;
-        try { md5Matches = verifyExtractedLibraryMD5(internalLibPath, extractedLibPath); } catch (Exception e) {}
+            FileLock lock = lockChannel.lock();
+            try {
+
+                if (!internalLibRenewed && isExtractedLibraryValid(internalLibPath, extractedLibPath)) {
+                    log.debug("Native mozjpeg library is already extracted at {}", extractedLibPath);
+                    return;
+                }
+
+                // If MD5 doesn't much, re-extract the library, and verify it again
+                boolean md5Matches = extractVerifiedLibrary(internalLibPath, extractedLibFile);
+                if (!md5Matches) {
+                    md5Matches = extractVerifiedLibrary(internalLibPath, extractedLibFile);
+                }
+
+                if (!md5Matches) {
+                    throw new IOException("MD5 for internal and extracted libraries don't match");
+                }
+
+            } finally {
+                lock.release();
+            }
 
-        // If MD5 doesn't much, re-extract the library, and verify it again
-        if (!md5Matches) {
-            new File(extractedLibPath).delete();
-            extractNativeLibrary(internalLibPath, extractedLibPath);
-            try { md5Matches = verifyExtractedLibraryMD5(internalLibPath, extractedLibPath); } catch (Exception e) {}
         }
 
-        if (!md5Matches) {
-            throw new IOException("MD5 for internal and extracted libraries don't match");
+    }
+
+    /**
+     * Extracts the library into a temporary file of the target directory, verifies its MD5 and moves it to the
+     * target path, and then writes its manifest. Returns false if MD5 doesn't match.
+     */
+    protected static boolean extractVerifiedLibrary(String internalLibPath, File extractedLibFile) throws IOException {
+
+        File tempFile = File.createTempFile(extractedLibFile.getName(), ".tmp", extractedLibFile.getParentFile());
+        try {
+
+            extractNativeLibrary(internalLibPath, tempFile.getPath());
+
+            // Verify MD5, and ignore exceptions since they don't confirm invalidity of MD5
+            boolean md5Matches = true;
+            try { md5Matches = verifyExtractedLibraryMD5(internalLibPath, tempFile.getPath()); } catch (Exception e) {}
+            if (!md5Matches) {
+                return false;
+            }
+
+            try {
+                moveAtomically(tempFile, extractedLibFile);
+            } catch (IOException e) {
+                // The library can't be replaced while it's loaded on some platforms, which is fine if it's valid
+                if (isExtractedLibraryValid(internalLibPath, extractedLibFile.getPath())) {
+                    log.warn("Native library couldn't be replaced, the verified library is kept at " + extractedLibFile, e);
+                    return true;
+                }
+                throw e;
+            }
+
+            String md5 = getLibrariesData().get(internalLibPath);
+            writeManifest(extractedLibFile, internalLibPath, md5 != null ? md5 : DigestUtils.getFileMD5Quietly(extractedLibFile));
+            return true;
+
+        } finally {
+            tempFile.delete();
+        }
+
+    }
+
+    /**
+     * Checks the extracted library against its manifest: the resource it was extracted from, its size and
+     * modification time, and the expected MD5 of the resource. The library itself is not hashed.
+     */
+    protected static boolean isExtractedLibraryValid(String internalLibPath, String extractedLibPath) {
+
+        File libFile = new File(extractedLibPath);
+        File manifestFile = new File(extractedLibPath + MANIFEST_SUFFIX);
+        if (!libFile.isFile() || !manifestFile.isFile()) {
+            return false;
+        }
+
+        Properties manifest = new Properties();
+        try (InputStream reader = new FileInputStream(manifestFile)) {
+            manifest.load(reader);
+        } catch (IOException e) {
+            return false;
+        }
+
+        String expectedMD5 = getLibrariesData().get(internalLibPath);
+        return internalLibPath.equals(manifest.getProperty(MANIFEST_RESOURCE)) &&
+                String.valueOf(libFile.length()).equals(manifest.getProperty(MANIFEST_SIZE)) &&
+                String.valueOf(libFile.lastModified()).equals(manifest.getProperty(MANIFEST_MODIFIED)) &&
+                (expectedMD5 == null || expectedMD5.equalsIgnoreCase(manifest.getProperty(MANIFEST_MD5)));
+
+    }
+
+    /**
+     * Writes the manifest of the extracted library, which is renamed into place atomically as well.
+     */
+    protected static void writeManifest(File extractedLibFile, String internalLibPath, String md5) throws IOException {
+
+        Properties manifest = new Properties();
+        manifest.setProperty(MANIFEST_RESOURCE, internalLibPath);
+        manifest.setProperty(MANIFEST_SIZE, String.valueOf(extractedLibFile.length()));
+        manifest.setProperty(MANIFEST_MODIFIED, String.valueOf(extractedLibFile.lastModified()));
+        if (md5 != null) {
+            manifest.setProperty(MANIFEST_MD5, md5);
         }
 
+        File manifestFile = new File(extractedLibFile.getPath() + MANIFEST_SUFFIX);
+        File tempFile = File.createTempFile(manifestFile.getName(), ".tmp", manifestFile.getParentFile());
+        try {
+            try (OutputStream writer = new FileOutputStream(tempFile)) {
+                manifest.store(writer, "Extracted native library");
+            }
+            moveAtomically(tempFile, manifestFile);
+        } finally {
+            tempFile.delete();
+        }
+
+    }
+
+    private static void moveAtomically(File source, File target) throws IOException {
+        try {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
     }
 
     protected static void extractNativeLibrary(String internalLibPath, String extractedLibPath) throws IOException {
@@ -32,6 +32,8 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.security.DigestInputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -49,6 +51,12 @@ public class DigestUtils {
 
     protected final static String MD5 = "MD5";
 
+    private final static long PRIME64_1 = 0x9E3779B185EBCA87L;
+    private final static long PRIME64_2 = 0xC2B2AE3D27D4EB4FL;
+    private final static long PRIME64_3 = 0x165667B19E3779F9L;
+    private final static long PRIME64_4 = 0x85EBCA77C2B2AE63L;
+    private final static long PRIME64_5 = 0x27D4EB2F165667C5L;
+
     /**
      * Generates MD5 for the provided InputStream or throws an exception.
      */
@@ -108,4 +116,81 @@ public class DigestUtils {
         }
     }
 
+    /**
+     * Generates a fast non-cryptographic 64-bit hash (XXH64) of the byte array. It's meant for lookups,
+     * e.g. cache keys, and must not be used where a malicious collision matters.
+     */
+    public static long hash64(byte[] data, long seed) {
+        return hash64(ByteBuffer.wrap(data), seed);
+    }
+
+    /**
+     * Generates a fast non-cryptographic 64-bit hash (XXH64) of the bytes between the position and the limit
+     * of the buffer, e.g. a memory-mapped file. The position and the byte order of the buffer are not changed.
+     */
+    public static long hash64(ByteBuffer data, long seed) {
+
+        ByteBuffer buffer = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int pos = buffer.position();
+        int end = buffer.limit();
+        int length = end - pos;
+        long hash;
+
+        if (length >= 32) {
+            long v1 = seed + PRIME64_1 + PRIME64_2;
+            long v2 = seed + PRIME64_2;
+            long v3 = seed;
+            long v4 = seed - PRIME64_1;
+            for (int limit = end - 32; pos <= limit; pos += 32) {
+                v1 = round(v1, buffer.getLong(pos));
+                v2 = round(v2, buffer.getLong(pos + 8));
+                v3 = round(v3, buffer.getLong(pos + 16));
+                v4 = round(v4, buffer.getLong(pos + 24));
+            }
+            hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            hash = mergeRound(hash, v1);
+            hash = mergeRound(hash, v2);
+            hash = mergeRound(hash, v3);
+            hash = mergeRound(hash, v4);
+        } else {
+            hash = seed + PRIME64_5;
+        }
+
+        hash += length;
+
+        for (; pos + 8 <= end; pos += 8) {
+            hash ^= round(0, buffer.getLong(pos));
+            hash = Long.rotateLeft(hash, 27) * PRIME64_1 + PRIME64_4;
+        }
+        if (pos + 4 <= end) {
+            hash ^= (buffer.getInt(pos) & 0xFFFFFFFFL) * PRIME64_1;
+            hash = Long.rotateLeft(hash, 23) * PRIME64_2 + PRIME64_3;
+            pos += 4;
+        }
+        for (; pos < end; pos++) {
+            hash ^= (buffer.get(pos) & 0xFF) * PRIME64_5;
+            hash = Long.rotateLeft(hash, 11) * PRIME64_1;
+        }
+
+        // Final avalanche
+        hash ^= hash >>> 33;
+        hash *= PRIME64_2;
+        hash ^= hash >>> 29;
+        hash *= PRIME64_3;
+        hash ^= hash >>> 32;
+        return hash;
+
+    }
+
+    private static long round(long acc, long input) {
+        acc += input * PRIME64_2;
+        acc = Long.rotateLeft(acc, 31);
+        return acc * PRIME64_1;
+    }
+
+    private static long mergeRound(long acc, long value) {
+        acc ^= round(0, value);
+        return acc * PRIME64_1 + PRIME64_4;
+    }
+
 }
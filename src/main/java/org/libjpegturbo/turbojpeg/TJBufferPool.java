@@ -0,0 +1,73 @@
+/*
+ * Copyright (C)2011-2013 D. R. Commander.  All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ * - Neither the name of the libjpeg-turbo Project nor the names of its
+ *   contributors may be used to endorse or promote products derived from this
+ *   software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS",
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.libjpegturbo.turbojpeg;
+
+/**
+ *
+ * Pool of byte buffers used for JPEG destination and pixel buffers.
+ *
+ * A leased buffer may be larger than requested. A buffer given back by {@link #release(byte[])}
+ * must not be used by the caller anymore. Buffers which are never released are simply
+ * garbage-collected.
+ *
+ * @since version 1.1,	10/18/2026
+ *
+ * @author Dmitry Viktorov
+ *
+ */
+public interface TJBufferPool {
+
+    /**
+     * Pool which doesn't keep any buffers. Every lease allocates a buffer of the requested size.
+     */
+    public final static TJBufferPool NONE = new TJBufferPool() {
+
+        @Override
+        public byte[] lease(int minSize) {
+            return new byte[minSize];
+        }
+
+        @Override
+        public void release(byte[] buffer) {
+        }
+
+    };
+
+    /**
+     * Returns a buffer which has at least <code>minSize</code> bytes.
+     */
+    public byte[] lease(int minSize);
+
+    /**
+     * Gives the buffer back to the pool. Null buffers are ignored.
+     */
+    public void release(byte[] buffer);
+
+}
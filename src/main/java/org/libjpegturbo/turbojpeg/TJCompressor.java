@@ -29,6 +29,7 @@
 package org.libjpegturbo.turbojpeg;
 
 import java.awt.image.*;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 
 /**
@@ -60,6 +61,9 @@ public class TJCompressor implements AutoCloseable {
     private int compressedSize = 0;
     private int yuvPad = 4;
     private ByteOrder byteOrder = null;
+    private TJBufferPool bufferPool = TJBufferPool.NONE;
+    private byte[] stagedSrcBuf = null;
+    private TJBufferPool stagedSrcBufPool = null;
 
     /**
      * Create a TurboJPEG compressor instance.
@@ -148,6 +152,7 @@ public class TJCompressor implements AutoCloseable {
         if (srcImage == null || x < 0 || y < 0 || width < 1 || height < 1 || pitch < 0 || pixelFormat < 0 || pixelFormat >= TJ.NUMPF) {
             throw new Exception("Invalid argument in setSourceImage()");
         }
+        releaseStagedSrcBuf();
         srcBuf = srcImage;
         srcWidth = width;
         if (pitch == 0) {
@@ -163,6 +168,77 @@ public class TJCompressor implements AutoCloseable {
         srcYUVImage = null;
     }
 
+    /**
+     * Associate an uncompressed RGB, grayscale, or CMYK source image stored in
+     * a <code>ByteBuffer</code> with this compressor instance.  The image is
+     * located relative to the buffer position, and the position of the buffer
+     * is not changed.
+     * <p/>
+     * If the buffer is backed by an accessible array that starts at the
+     * buffer position, the array is used directly.  Otherwise (for instance,
+     * for direct or memory-mapped buffers) the region to be compressed is
+     * copied to a staging buffer leased from the pool set by
+     * {@link #setBufferPool}, or from {@link TJSizeClassBufferPool#STAGING}
+     * if no pool is set, since the native library accepts only Java
+     * arrays.  The staging buffer is given back to the pool when another
+     * source image is associated or the source image is cleared.
+     *
+     * @param srcImage    buffer containing RGB, grayscale, or CMYK pixels to
+     *                    be compressed or encoded
+     * @param x           see
+     *                    {@link #setSourceImage(byte[], int, int, int, int, int, int)}
+     *                    for description
+     * @param y           see
+     *                    {@link #setSourceImage(byte[], int, int, int, int, int, int)}
+     *                    for description
+     * @param width       see
+     *                    {@link #setSourceImage(byte[], int, int, int, int, int, int)}
+     *                    for description
+     * @param pitch       see
+     *                    {@link #setSourceImage(byte[], int, int, int, int, int, int)}
+     *                    for description
+     * @param height      see
+     *                    {@link #setSourceImage(byte[], int, int, int, int, int, int)}
+     *                    for description
+     * @param pixelFormat pixel format of the source image (one of
+     *                    {@link TJ#PF_RGB TJ.PF_*})
+     */
+    public void setSourceImage(ByteBuffer srcImage, int x, int y, int width, int pitch, int height, int pixelFormat) throws Exception {
+        if (srcImage == null || x < 0 || y < 0 || width < 1 || height < 1 || pitch < 0 || pixelFormat < 0 || pixelFormat >= TJ.NUMPF) {
+            throw new Exception("Invalid argument in setSourceImage()");
+        }
+        if (TJDecompressor.isArrayAtPosition(srcImage)) {
+            setSourceImage(srcImage.array(), x, y, width, pitch, height, pixelFormat);
+            return;
+        }
+
+        int lineSize = width * TJ.getPixelSize(pixelFormat);
+        if (pitch == 0) {
+            pitch = lineSize;
+        }
+        int xOffset = x * TJ.getPixelSize(pixelFormat);
+        if (srcImage.remaining() < (y + height - 1) * pitch + xOffset + lineSize) {
+            throw new Exception("Source buffer is not large enough");
+        }
+
+        // Only the region to be compressed is copied
+        TJBufferPool pool = getStagingPool();
+        byte[] buf = pool.lease(lineSize * height);
+        ByteBuffer src = srcImage.duplicate();
+        for (int i = 0; i < height; i++) {
+            src.position(srcImage.position() + (y + i) * pitch + xOffset);
+            src.get(buf, i * lineSize, lineSize);
+        }
+        try {
+            setSourceImage(buf, 0, 0, width, lineSize, height, pixelFormat);
+        } catch (Exception e) {
+            pool.release(buf);
+            throw e;
+        }
+        stagedSrcBuf = buf;
+        stagedSrcBufPool = pool;
+    }
+
     /**
      * @deprecated Use
      * {@link #setSourceImage(byte[], int, int, int, int, int, int)} instead.
@@ -196,6 +272,7 @@ public class TJCompressor implements AutoCloseable {
         if (handle == 0) init();
         if (srcImage == null || x < 0 || y < 0 || width < 0 || height < 0)
             throw new Exception("Invalid argument in setSourceImage()");
+        releaseStagedSrcBuf();
         srcX = x;
         srcY = y;
         srcWidth = (width == 0) ? srcImage.getWidth() : width;
@@ -272,11 +349,45 @@ public class TJCompressor implements AutoCloseable {
         if (srcImage == null) {
             throw new Exception("Invalid argument in setSourceImage()");
         }
+        releaseStagedSrcBuf();
         srcYUVImage = srcImage;
         srcBuf = null;
         srcBufInt = null;
     }
 
+    /**
+     * Disassociate the source image from this compressor instance.  The native
+     * structures are kept, so the instance can be reused with another source
+     * image without initializing a new TurboJPEG compressor.
+     */
+    public void clearSourceImage() {
+        releaseStagedSrcBuf();
+        srcBuf = null;
+        srcBufInt = null;
+        srcYUVImage = null;
+        srcWidth = 0;
+        srcHeight = 0;
+        srcX = -1;
+        srcY = -1;
+        srcPitch = 0;
+        srcStride = 0;
+        srcPixelFormat = -1;
+    }
+
+    /**
+     * Disassociate the source image from this compressor instance and
+     * initialize a new TurboJPEG compressor in place of the current one.  The
+     * MozJPEG encoder keeps state between compress operations, so a compressor
+     * which is reused, e.g. from a pool, must be reset to produce the same
+     * output as a new instance.
+     */
+    public void reset() throws Exception {
+        clearSourceImage();
+        if (handle != 0)
+            destroy();
+        init();
+    }
+
     /**
      * Set the level of chrominance subsampling for subsequent compress/encode
      * operations.  When pixels are converted from RGB to YCbCr (see
@@ -318,6 +429,26 @@ public class TJCompressor implements AutoCloseable {
         jpegQuality = quality;
     }
 
+    /**
+     * Set the pool from which {@link #compress(int)} leases destination
+     * buffers.  By default every call allocates a new buffer.
+     *
+     * @param pool the buffer pool, or null to allocate a new buffer for every
+     *             compress operation
+     */
+    public void setBufferPool(TJBufferPool pool) {
+        bufferPool = (pool == null) ? TJBufferPool.NONE : pool;
+    }
+
+    /**
+     * Returns the pool from which destination buffers are leased.
+     *
+     * @return the pool from which destination buffers are leased.
+     */
+    public TJBufferPool getBufferPool() {
+        return bufferPool;
+    }
+
     /**
      * Compress the uncompressed source image associated with this compressor
      * instance and output a JPEG image to the given destination buffer.
@@ -378,16 +509,58 @@ public class TJCompressor implements AutoCloseable {
      *              {@link TJ#FLAG_BOTTOMUP TJ.FLAG_*}
      * @return a buffer containing a JPEG image.  The length of this buffer will
      * not be equal to the size of the JPEG image.  Use {@link
-     * #getCompressedSize} to obtain the size of the JPEG image.
+     * #getCompressedSize} to obtain the size of the JPEG image.  The buffer is
+     * leased from the pool set by {@link #setBufferPool} and may be given back
+     * to it once the JPEG image is not needed anymore.
      */
     public byte[] compress(int flags) throws Exception {
-        if (srcWidth < 1 || srcHeight < 1)
-            throw new Exception(NO_ASSOC_ERROR);
-        byte[] buf = new byte[TJ.bufSize(srcWidth, srcHeight, subsamp)];
+        byte[] buf = bufferPool.lease(getMaxCompressedSize());
         compress(buf, flags);
         return buf;
     }
 
+    /**
+     * Compress the uncompressed source image associated with this compressor
+     * instance and output a JPEG image to the given destination buffer.  The
+     * JPEG image is written at the buffer position, and the position is
+     * advanced by the size of the JPEG image.
+     * <p/>
+     * If the buffer is backed by an accessible array that starts at the
+     * buffer position and has room for {@link TJ#bufSize} bytes, the image is
+     * compressed straight into the array.  Otherwise (for instance, for direct
+     * buffers) the image is compressed into a staging buffer leased from the
+     * pool set by {@link #setBufferPool}, or from
+     * {@link TJSizeClassBufferPool#STAGING} if no pool is set, and then copied
+     * into the destination buffer, since the native library accepts only Java arrays.
+     *
+     * @param dstBuf buffer that will receive the JPEG image
+     * @param flags  the bitwise OR of one or more of
+     *               {@link TJ#FLAG_BOTTOMUP TJ.FLAG_*}
+     */
+    public void compress(ByteBuffer dstBuf, int flags) throws Exception {
+        if (dstBuf == null || dstBuf.isReadOnly() || flags < 0) {
+            throw new Exception("Invalid argument in compress()");
+        }
+        int maxSize = getMaxCompressedSize();
+        if (TJDecompressor.isArrayAtPosition(dstBuf) && dstBuf.remaining() >= maxSize) {
+            compress(dstBuf.array(), flags);
+            dstBuf.position(dstBuf.position() + compressedSize);
+            return;
+        }
+
+        TJBufferPool pool = getStagingPool();
+        byte[] buf = pool.lease(maxSize);
+        try {
+            compress(buf, flags);
+            if (dstBuf.remaining() < compressedSize) {
+                throw new Exception("Destination buffer is not large enough");
+            }
+            dstBuf.put(buf, 0, compressedSize);
+        } finally {
+            pool.release(buf);
+        }
+    }
+
     /**
      * @deprecated Use
      * {@link #setSourceImage(BufferedImage, int, int, int, int)} and
@@ -571,10 +744,32 @@ public class TJCompressor implements AutoCloseable {
      * Free the native structures associated with this compressor instance.
      */
     public void close() throws Exception {
+        releaseStagedSrcBuf();
         if (handle != 0)
             destroy();
     }
 
+    private int getMaxCompressedSize() throws Exception {
+        if (srcYUVImage != null)
+            return TJ.bufSize(srcYUVImage.getWidth(), srcYUVImage.getHeight(),
+                    srcYUVImage.getSubsamp());
+        if (srcWidth < 1 || srcHeight < 1)
+            throw new Exception(NO_ASSOC_ERROR);
+        return TJ.bufSize(srcWidth, srcHeight, subsamp);
+    }
+
+    private TJBufferPool getStagingPool() {
+        return bufferPool != TJBufferPool.NONE ? bufferPool : TJSizeClassBufferPool.STAGING;
+    }
+
+    private void releaseStagedSrcBuf() {
+        if (stagedSrcBuf != null) {
+            stagedSrcBufPool.release(stagedSrcBuf);
+            stagedSrcBuf = null;
+            stagedSrcBufPool = null;
+        }
+    }
+
     protected void finalize() throws Throwable {
         try {
             close();
@@ -29,6 +29,7 @@
 package org.libjpegturbo.turbojpeg;
 
 import java.awt.image.*;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 
 /**
@@ -52,6 +53,9 @@ public class TJDecompressor implements AutoCloseable {
     protected int jpegHeight = 0;
     protected int jpegSubsamp = -1;
     protected int jpegColorspace = -1;
+    protected TJBufferPool bufferPool = TJBufferPool.NONE;
+    private byte[] stagedJpegBuf = null;
+    private TJBufferPool stagedJpegBufPool = null;
     private ByteOrder byteOrder = null;
 
     /**
@@ -111,12 +115,49 @@ public class TJDecompressor implements AutoCloseable {
             throws Exception {
         if (jpegImage == null || imageSize < 1)
             throw new Exception("Invalid argument in setSourceImage()");
+        releaseStagedJpegBuf();
         jpegBuf = jpegImage;
         jpegBufSize = imageSize;
         decompressHeader(jpegBuf, jpegBufSize);
         yuvImage = null;
     }
 
+    /**
+     * Associate the JPEG image stored between the position and the limit of
+     * <code>jpegImage</code> with this decompressor instance.  The position of
+     * the buffer is not changed.
+     * <p/>
+     * If the buffer is backed by an accessible array that starts at the
+     * buffer position, the array is used directly.  Otherwise (for instance,
+     * for direct or memory-mapped buffers) the image is copied to a staging
+     * buffer leased from the pool set by {@link #setBufferPool}, or from
+     * {@link TJSizeClassBufferPool#STAGING} if no pool is set, since the
+     * native library accepts only Java arrays.  The staging buffer is given
+     * back to the pool when another source image is associated or the source
+     * image is cleared.
+     *
+     * @param jpegImage buffer containing the JPEG image
+     */
+    public void setSourceImage(ByteBuffer jpegImage) throws Exception {
+        if (jpegImage == null || !jpegImage.hasRemaining())
+            throw new Exception("Invalid argument in setSourceImage()");
+        int imageSize = jpegImage.remaining();
+        if (isArrayAtPosition(jpegImage)) {
+            setSourceImage(jpegImage.array(), imageSize);
+            return;
+        }
+        TJBufferPool pool = getStagingPool();
+        byte[] buf = pool.lease(imageSize);
+        jpegImage.duplicate().get(buf, 0, imageSize);
+        try {
+            setSourceImage(buf, imageSize);
+        } finally {
+            // The buffer stays associated even if the header can't be read
+            stagedJpegBuf = buf;
+            stagedJpegBufPool = pool;
+        }
+    }
+
     /**
      * @deprecated Use {@link #setSourceImage(byte[], int)} instead.
      */
@@ -136,11 +177,50 @@ public class TJDecompressor implements AutoCloseable {
     public void setSourceImage(YUVImage srcImage) throws Exception {
         if (srcImage == null)
             throw new Exception("Invalid argument in setSourceImage()");
+        releaseStagedJpegBuf();
         yuvImage = srcImage;
         jpegBuf = null;
         jpegBufSize = 0;
     }
 
+    /**
+     * Disassociate the source image (JPEG or YUV) from this decompressor
+     * instance.  The native structures are kept, so the instance can be reused
+     * with another source image without initializing a new TurboJPEG
+     * decompressor.
+     */
+    public void clearSourceImage() {
+        releaseStagedJpegBuf();
+        jpegBuf = null;
+        jpegBufSize = 0;
+        yuvImage = null;
+        jpegWidth = 0;
+        jpegHeight = 0;
+        jpegSubsamp = -1;
+        jpegColorspace = -1;
+    }
+
+
+    /**
+     * Set the pool from which destination buffers are leased by
+     * {@link #decompress(int, int, int, int, int)}.  By default every call
+     * allocates a new buffer.
+     *
+     * @param pool the buffer pool, or null to allocate a new buffer for every
+     *             decompress operation
+     */
+    public void setBufferPool(TJBufferPool pool) {
+        bufferPool = (pool == null) ? TJBufferPool.NONE : pool;
+    }
+
+    /**
+     * Returns the pool from which destination buffers are leased.
+     *
+     * @return the pool from which destination buffers are leased.
+     */
+    public TJBufferPool getBufferPool() {
+        return bufferPool;
+    }
 
     /**
      * Returns the width of the source image (JPEG or YUV) associated with this
@@ -215,6 +295,8 @@ public class TJDecompressor implements AutoCloseable {
 
     /**
      * Returns the JPEG image buffer associated with this decompressor instance.
+     * If the image was associated by {@link #setSourceImage(ByteBuffer)}, this
+     * may be the staging copy of the image.
      *
      * @return the JPEG image buffer associated with this decompressor instance.
      */
@@ -412,6 +494,89 @@ public class TJDecompressor implements AutoCloseable {
                 flags);
     }
 
+    /**
+     * Decompress the JPEG source image or decode the YUV source image associated
+     * with this decompressor instance and output a grayscale, RGB, or CMYK image
+     * to the given destination buffer.  The image (or image region) is written
+     * relative to the buffer position, and the position of the buffer is not
+     * changed.
+     * <p/>
+     * If the buffer is backed by an accessible array that starts at the
+     * buffer position, the image is decompressed straight into the array.
+     * Otherwise (for instance, for direct buffers) the image is decompressed
+     * into a staging buffer leased from the pool set by
+     * {@link #setBufferPool}, or from {@link TJSizeClassBufferPool#STAGING}
+     * if no pool is set, and then copied line by line into the destination
+     * buffer, since the native library accepts only Java arrays.
+     *
+     * @param dstBuf        buffer that will receive the decompressed/decoded
+     *                      image.  See
+     *                      {@link #decompress(byte[], int, int, int, int, int, int, int)}
+     *                      for the required size.
+     * @param x             see
+     *                      {@link #decompress(byte[], int, int, int, int, int, int, int)}
+     *                      for description
+     * @param y             see
+     *                      {@link #decompress(byte[], int, int, int, int, int, int, int)}
+     *                      for description
+     * @param desiredWidth  see
+     *                      {@link #decompress(byte[], int, int, int, int, int, int, int)}
+     *                      for description
+     * @param pitch         see
+     *                      {@link #decompress(byte[], int, int, int, int, int, int, int)}
+     *                      for description
+     * @param desiredHeight see
+     *                      {@link #decompress(byte[], int, int, int, int, int, int, int)}
+     *                      for description
+     * @param pixelFormat   pixel format of the decompressed/decoded image (one of
+     *                      {@link TJ#PF_RGB TJ.PF_*})
+     * @param flags         the bitwise OR of one or more of
+     *                      {@link TJ#FLAG_BOTTOMUP TJ.FLAG_*}
+     */
+    public void decompress(ByteBuffer dstBuf, int x, int y, int desiredWidth,
+                           int pitch, int desiredHeight, int pixelFormat,
+                           int flags) throws Exception {
+        if (dstBuf == null || dstBuf.isReadOnly())
+            throw new Exception("Invalid argument in decompress()");
+        if (isArrayAtPosition(dstBuf)) {
+            decompress(dstBuf.array(), x, y, desiredWidth, pitch, desiredHeight,
+                    pixelFormat, flags);
+            return;
+        }
+        if (x < 0 || y < 0 || pitch < 0 || pixelFormat < 0 ||
+                pixelFormat >= TJ.NUMPF)
+            throw new Exception("Invalid argument in decompress()");
+
+        int scaledWidth, scaledHeight;
+        if (yuvImage != null) {
+            scaledWidth = yuvImage.getWidth();
+            scaledHeight = yuvImage.getHeight();
+        } else {
+            scaledWidth = getScaledWidth(desiredWidth, desiredHeight);
+            scaledHeight = getScaledHeight(desiredWidth, desiredHeight);
+        }
+        int lineSize = scaledWidth * TJ.getPixelSize(pixelFormat);
+        if (pitch == 0)
+            pitch = lineSize;
+        int xOffset = x * TJ.getPixelSize(pixelFormat);
+        if (dstBuf.remaining() < (y + scaledHeight - 1) * pitch + xOffset + lineSize)
+            throw new Exception("Destination buffer is not large enough");
+
+        TJBufferPool pool = getStagingPool();
+        byte[] buf = pool.lease(lineSize * scaledHeight);
+        try {
+            decompress(buf, 0, 0, desiredWidth, lineSize, desiredHeight,
+                    pixelFormat, flags);
+            ByteBuffer dst = dstBuf.duplicate();
+            for (int i = 0; i < scaledHeight; i++) {
+                dst.position(dstBuf.position() + (y + i) * pitch + xOffset);
+                dst.put(buf, i * lineSize, lineSize);
+            }
+        } finally {
+            pool.release(buf);
+        }
+    }
+
     /**
      * Decompress the JPEG source image associated with this decompressor
      * instance and return a buffer containing the decompressed image.
@@ -429,7 +594,10 @@ public class TJDecompressor implements AutoCloseable {
      *                      {@link TJ#PF_RGB TJ.PF_*})
      * @param flags         the bitwise OR of one or more of
      *                      {@link TJ#FLAG_BOTTOMUP TJ.FLAG_*}
-     * @return a buffer containing the decompressed image.
+     * @return a buffer containing the decompressed image.  The buffer is leased
+     * from the pool set by {@link #setBufferPool}, so it may be larger than
+     * <code>pitch * scaledHeight</code>, and may be given back to the pool once
+     * the image is not needed anymore.
      */
     public byte[] decompress(int desiredWidth, int pitch, int desiredHeight,
                              int pixelFormat, int flags) throws Exception {
@@ -442,7 +610,7 @@ public class TJDecompressor implements AutoCloseable {
         int scaledHeight = getScaledHeight(desiredWidth, desiredHeight);
         if (pitch == 0)
             pitch = scaledWidth * pixelSize;
-        byte[] buf = new byte[pitch * scaledHeight];
+        byte[] buf = bufferPool.lease(pitch * scaledHeight);
         decompress(buf, desiredWidth, pitch, desiredHeight, pixelFormat, flags);
         return buf;
     }
@@ -821,11 +989,28 @@ public class TJDecompressor implements AutoCloseable {
      * Free the native structures associated with this decompressor instance.
      */
     public void close() throws Exception {
+        releaseStagedJpegBuf();
         if (handle != 0) {
             destroy();
         }
     }
 
+    private TJBufferPool getStagingPool() {
+        return bufferPool != TJBufferPool.NONE ? bufferPool : TJSizeClassBufferPool.STAGING;
+    }
+
+    private void releaseStagedJpegBuf() {
+        if (stagedJpegBuf != null) {
+            stagedJpegBufPool.release(stagedJpegBuf);
+            stagedJpegBuf = null;
+            stagedJpegBufPool = null;
+        }
+    }
+
+    static boolean isArrayAtPosition(ByteBuffer buf) {
+        return buf.hasArray() && buf.arrayOffset() + buf.position() == 0;
+    }
+
     protected void finalize() throws Throwable {
         try {
             close();
@@ -0,0 +1,206 @@
+/*
+ * Copyright (C)2011-2013 D. R. Commander.  All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ * - Neither the name of the libjpeg-turbo Project nor the names of its
+ *   contributors may be used to endorse or promote products derived from this
+ *   software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS",
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.libjpegturbo.turbojpeg;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ *
+ * Buffer pool with power-of-two size classes.
+ *
+ * A lease is rounded up to the next power of two and served from the idle buffers of that size
+ * class. Each size class keeps a fixed number of slots, so leasing and releasing don't allocate.
+ * The optional soft cap limits the total size of idle buffers. Released buffers above the cap,
+ * buffers whose length is not a size class, and leases larger than the biggest size class are
+ * not pooled. Releasing a buffer which is already idle in the pool is rejected, since the buffer
+ * would be leased to two callers, but a buffer released again after it was leased to another
+ * caller can't be detected, so every lease must be released only once.
+ *
+ * @since version 1.1,	10/18/2026
+ *
+ * @author Dmitry Viktorov
+ *
+ */
+public class TJSizeClassBufferPool implements TJBufferPool {
+
+    public final static int MIN_CLASS_SHIFT = 12;
+    public final static int MAX_CLASS_SHIFT = 30;
+    public final static int DEFAULT_BUFFERS_PER_CLASS = Runtime.getRuntime().availableProcessors() * 2;
+
+    public final static String KEY_STAGING_MAX_BYTES = "mozjpeg.staging.pool.max.bytes";
+    public final static long DEFAULT_STAGING_MAX_BYTES = 64L * 1024 * 1024;
+
+    /**
+     * Shared pool of the staging arrays into which direct and read-only buffers are copied for the native
+     * library, used by compressors, decompressors and YUV images which have no buffer pool of their own. Its
+     * soft cap is taken from system property {@link #KEY_STAGING_MAX_BYTES}.
+     */
+    public final static TJSizeClassBufferPool STAGING = new TJSizeClassBufferPool(DEFAULT_BUFFERS_PER_CLASS,
+            Long.getLong(KEY_STAGING_MAX_BYTES, DEFAULT_STAGING_MAX_BYTES));
+
+    /**
+     * Idle buffers of all size classes, <code>buffersPerClass</code> slots for each class.
+     */
+    private final AtomicReferenceArray<byte[]> slots;
+    private final int buffersPerClass;
+    private final long maxRetainedBytes;
+
+    private final AtomicLong retainedBytes = new AtomicLong();
+    private final AtomicLong leaseCount = new AtomicLong();
+    private final AtomicLong hitCount = new AtomicLong();
+
+    public TJSizeClassBufferPool() {
+        this(DEFAULT_BUFFERS_PER_CLASS, 0);
+    }
+
+    /**
+     * @param buffersPerClass  maximum number of idle buffers kept for each size class
+     * @param maxRetainedBytes soft cap for the total size of idle buffers (0 = no cap)
+     */
+    public TJSizeClassBufferPool(int buffersPerClass, long maxRetainedBytes) {
+        if (buffersPerClass < 1 || maxRetainedBytes < 0) {
+            throw new IllegalArgumentException("Invalid argument in TJSizeClassBufferPool()");
+        }
+        this.maxRetainedBytes = maxRetainedBytes;
+        this.buffersPerClass = buffersPerClass;
+        slots = new AtomicReferenceArray<byte[]>((MAX_CLASS_SHIFT - MIN_CLASS_SHIFT + 1) * buffersPerClass);
+    }
+
+    @Override
+    public byte[] lease(int minSize) {
+
+        if (minSize < 0) {
+            throw new IllegalArgumentException("Invalid argument in lease()");
+        }
+        leaseCount.incrementAndGet();
+
+        int shift = getClassShift(minSize);
+        if (shift > MAX_CLASS_SHIFT) {
+            return new byte[minSize];
+        }
+
+        int first = (shift - MIN_CLASS_SHIFT) * buffersPerClass;
+        for (int i = first; i < first + buffersPerClass; i++) {
+            byte[] buffer = slots.get(i);
+            if (buffer != null && slots.compareAndSet(i, buffer, null)) {
+                retainedBytes.addAndGet(-buffer.length);
+                hitCount.incrementAndGet();
+                return buffer;
+            }
+        }
+
+        return new byte[1 << shift];
+
+    }
+
+    /**
+     * Gives the buffer back to the pool.
+     *
+     * @throws IllegalStateException if the buffer is already idle in the pool
+     */
+    @Override
+    public void release(byte[] buffer) {
+
+        // Only buffers of the exact class size can be served again
+        if (buffer == null || Integer.bitCount(buffer.length) != 1) {
+            return;
+        }
+        int shift = Integer.numberOfTrailingZeros(buffer.length);
+        if (shift < MIN_CLASS_SHIFT || shift > MAX_CLASS_SHIFT) {
+            return;
+        }
+        if (maxRetainedBytes > 0 && retainedBytes.get() + buffer.length > maxRetainedBytes) {
+            return;
+        }
+
+        int first = (shift - MIN_CLASS_SHIFT) * buffersPerClass;
+        for (int i = first; i < first + buffersPerClass; i++) {
+            if (slots.get(i) == buffer) {
+                throw new IllegalStateException("Buffer is released twice");
+            }
+        }
+        for (int i = first; i < first + buffersPerClass; i++) {
+            if (slots.get(i) == null && slots.compareAndSet(i, null, buffer)) {
+                retainedBytes.addAndGet(buffer.length);
+                return;
+            }
+        }
+
+    }
+
+    /**
+     * Drops all idle buffers.
+     */
+    public void clear() {
+        for (int i = 0; i < slots.length(); i++) {
+            byte[] buffer = slots.getAndSet(i, null);
+            if (buffer != null) {
+                retainedBytes.addAndGet(-buffer.length);
+            }
+        }
+    }
+
+    protected static int getClassShift(int size) {
+        if (size <= (1 << MIN_CLASS_SHIFT)) {
+            return MIN_CLASS_SHIFT;
+        }
+        return 32 - Integer.numberOfLeadingZeros(size - 1);
+    }
+
+    /**
+     * Returns the total size of idle buffers kept by the pool.
+     */
+    public long getRetainedBytes() {
+        return retainedBytes.get();
+    }
+
+    public long getMaxRetainedBytes() {
+        return maxRetainedBytes;
+    }
+
+    public long getLeaseCount() {
+        return leaseCount.get();
+    }
+
+    /**
+     * Returns the number of leases served from idle buffers.
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[retained=" + getRetainedBytes() + ", leases=" + getLeaseCount() +
+                ", hits=" + getHitCount() + "]";
+    }
+
+}
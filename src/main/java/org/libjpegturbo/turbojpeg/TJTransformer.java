@@ -111,7 +111,8 @@ public class TJTransformer extends TJDecompressor {
      * @param flags      the bitwise OR of one or more of
      *                   {@link TJ#FLAG_BOTTOMUP TJ.FLAG_*}
      * @return an array of {@link TJDecompressor} instances, each of
-     * which has a transformed JPEG image associated with it.
+     * which has a transformed JPEG image associated with it.  The transformed
+     * JPEG buffers are leased from the pool set by {@link #setBufferPool}.
      */
     public TJDecompressor[] transform(TJTransform[] transforms, int flags) throws Exception {
         byte[][] dstBufs = new byte[transforms.length][];
@@ -123,12 +124,14 @@ public class TJTransformer extends TJDecompressor {
                 if (transforms[i].width != 0) w = transforms[i].width;
                 if (transforms[i].height != 0) h = transforms[i].height;
             }
-            dstBufs[i] = new byte[TJ.bufSize(w, h, jpegSubsamp)];
+            dstBufs[i] = bufferPool.lease(TJ.bufSize(w, h, jpegSubsamp));
         }
         TJDecompressor[] tjd = new TJDecompressor[transforms.length];
         transform(dstBufs, transforms, flags);
-        for (int i = 0; i < transforms.length; i++)
+        for (int i = 0; i < transforms.length; i++) {
             tjd[i] = new TJDecompressor(dstBufs[i], transformedSizes[i]);
+            tjd[i].setBufferPool(bufferPool);
+        }
         return tjd;
     }
 
@@ -28,6 +28,8 @@
 
 package org.libjpegturbo.turbojpeg;
 
+import java.nio.ByteBuffer;
+
 /**
  * This class encapsulates a YUV planar image and the metadata
  * associated with it.  The TurboJPEG API allows both the JPEG compression and
@@ -78,6 +80,8 @@ public class YUVImage {
     protected int yuvWidth = 0;
     protected int yuvHeight = 0;
     protected int yuvSubsamp = -1;
+    private byte[][] stagedPlanes = null;
+    private TJBufferPool stagedPlanesPool = null;
 
     /**
      * Create a new <code>YUVImage</code> instance backed by separate image
@@ -151,6 +155,77 @@ public class YUVImage {
         setBuf(planes, offsets, width, strides, height, subsamp, false);
     }
 
+    /**
+     * Create a new <code>YUVImage</code> instance from a set of existing image
+     * planes stored in <code>ByteBuffer</code>s.  Each plane starts at the
+     * position of the corresponding buffer.
+     * <p/>
+     * Planes backed by an accessible array are used directly, so the image
+     * shares its data with the buffers.  Other planes (for instance, direct or
+     * memory-mapped buffers) are copied to staging buffers leased from
+     * {@link TJSizeClassBufferPool#STAGING}, since the native library accepts
+     * only Java arrays, and changes made to them after the image has been
+     * created aren't visible to the image and vice versa.  The staging buffers
+     * are given back by {@link #releaseStagedPlanes()}.
+     *
+     * @param planes  an array of buffers representing the Y, U (Cb), and V (Cr)
+     *                image planes (or just the Y plane, if the image is
+     *                grayscale.)  See
+     *                {@link #setBuf(byte[][], int[], int, int[], int, int)}
+     *                for the required size of each plane.
+     * @param width   width (in pixels) of the YUV image
+     * @param strides see
+     *                {@link #setBuf(byte[][], int[], int, int[], int, int)}
+     *                for description
+     * @param height  height (in pixels) of the YUV image
+     * @param subsamp the level of chrominance subsampling used in the YUV
+     *                image (one of {@link TJ#SAMP_444 TJ.SAMP_*})
+     */
+    public YUVImage(ByteBuffer[] planes, int width, int[] strides, int height,
+                    int subsamp) throws Exception {
+        this(planes, width, strides, height, subsamp,
+                TJSizeClassBufferPool.STAGING);
+    }
+
+    /**
+     * Create a new <code>YUVImage</code> instance from a set of existing image
+     * planes stored in <code>ByteBuffer</code>s, copying the planes which
+     * aren't backed by an accessible array to staging buffers leased from the
+     * given pool.  See
+     * {@link #YUVImage(ByteBuffer[], int, int[], int, int)} for description.
+     *
+     * @param bufferPool pool of the staging buffers (null allocates them)
+     */
+    public YUVImage(ByteBuffer[] planes, int width, int[] strides, int height,
+                    int subsamp, TJBufferPool bufferPool) throws Exception {
+        if (planes == null)
+            throw new Exception("Invalid argument in YUVImage()");
+        TJBufferPool pool = (bufferPool == null) ? TJBufferPool.NONE : bufferPool;
+        byte[][] bufs = new byte[planes.length][];
+        byte[][] staged = new byte[planes.length][];
+        int[] offsets = new int[planes.length];
+        try {
+            for (int i = 0; i < planes.length; i++) {
+                if (planes[i] == null)
+                    throw new Exception("Invalid argument in YUVImage()");
+                if (planes[i].hasArray()) {
+                    bufs[i] = planes[i].array();
+                    offsets[i] = planes[i].arrayOffset() + planes[i].position();
+                } else {
+                    bufs[i] = staged[i] = pool.lease(planes[i].remaining());
+                    planes[i].duplicate().get(bufs[i], 0, planes[i].remaining());
+                }
+            }
+            setBuf(bufs, offsets, width, strides, height, subsamp, false);
+        } catch (Exception e) {
+            for (byte[] buf : staged)
+                pool.release(buf);
+            throw e;
+        }
+        stagedPlanes = staged;
+        stagedPlanesPool = pool;
+    }
+
     /**
      * Create a new <code>YUVImage</code> instance from an existing unified image
      * buffer.
@@ -204,6 +279,22 @@ public class YUVImage {
     public void setBuf(byte[][] planes, int[] offsets, int width, int strides[],
                        int height, int subsamp) throws Exception {
         setBuf(planes, offsets, width, strides, height, subsamp, false);
+        releaseStagedPlanes();
+    }
+
+    /**
+     * Give the planes copied from <code>ByteBuffer</code>s back to the pool
+     * they were leased from.  The planes must not be used by this image or by
+     * the caller anymore, so this should be called only once the image isn't
+     * needed.  Images without copied planes are not affected.
+     */
+    public void releaseStagedPlanes() {
+        if (stagedPlanes != null) {
+            for (byte[] buf : stagedPlanes)
+                stagedPlanesPool.release(buf);
+            stagedPlanes = null;
+            stagedPlanesPool = null;
+        }
     }
 
     private void setBuf(byte[][] planes, int[] offsets, int width, int strides[],
@@ -30,6 +30,9 @@ public class MozJpegGalleryApp {
 
     protected final static int[] QUALITIES = new int[] { 100, 95, 90, 85, 80, 70, 60 };
 
+    public final static String KEY_AUTO_QUALITY_MIN_SCORE = "mozjpeg.gallery.auto.quality.min.score";
+    protected final static double AUTO_QUALITY_MIN_SCORE = Double.parseDouble(System.getProperty(KEY_AUTO_QUALITY_MIN_SCORE, "0.95"));
+
     protected final static String VERSION = TJ.getDefaultVersion();
 
     private final static Logger log = LoggerFactory.getLogger(MozJpegGalleryApp.class);
@@ -85,6 +88,28 @@ public class MozJpegGalleryApp {
                 html.write("<img src='" + image.getName() + "'>&nbsp&nbsp&nbsp<img src='" + outImageName + "'><br>\r\n");
             }
 
+            // Quality picked from the same candidates by the SSIM score
+            String outImageName = "proc_auto_" + image.getName();
+            Path outImage = Paths.get(outDir.getPath() + File.separator + outImageName);
+
+            log.info("Processing image with auto quality, min score={}: {}", AUTO_QUALITY_MIN_SCORE, inImage.getFileName());
+
+            long startTime = System.currentTimeMillis();
+            ImageProcessInfo processInfo = ImageProcessInfo.fromMap(ImageProcessorUtils.compressImageAutoQuality(processor,
+                    inImage.toFile(), outImage.toFile(), QUALITIES, AUTO_QUALITY_MIN_SCORE, 0));
+            long totalTime = System.currentTimeMillis() - startTime;
+
+            long outImageSize = outImage.toFile().length();
+
+            html.write("<h2>" + inImage.getFileName() + "</h2>\r\n");
+            html.write("<h3>Quality: auto => " + processInfo.getQuality() +
+                    String.format(" (SSIM %.4f)", processInfo.getScore()) + "<br>\r\n");
+            html.write("In/Out Size: " + toReadableByteCount(inImageSize, false) +
+                    " / " + toReadableByteCount(outImageSize, false) + " => " +
+                    getPercent(inImageSize, outImageSize) + "%<br>\r\n");
+            html.write("Conversion time: " + totalTime + " msec</h3><br>\n");
+            html.write("<img src='" + image.getName() + "'>&nbsp&nbsp&nbsp<img src='" + outImageName + "'><br>\r\n");
+
             html.write("<br><hr>\r\n");
 
         }
@@ -0,0 +1,142 @@
+package org.libjpegturbo.turbojpeg.processor.api;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ *
+ * Compressed JPEG image which exposes the buffer of the encoder directly: the image occupies
+ * <code>length</code> bytes of the buffer starting at <code>offset</code>. The buffer may be larger than
+ * the image and is never copied, so the image may be written straight to a channel or a stream.
+ *
+ * Once the image is not needed anymore, {@link #release()} gives the buffer back to the pool of the
+ * processor which produced it. The image must not be used afterwards.
+ *
+ * @since version 1.1,	10/18/2026
+ *
+ * @author Dmitry Viktorov
+ *
+ */
+public final class CompressedImage {
+
+    private final byte[] buffer;
+    private final int offset;
+    private final int length;
+    private final int width;
+    private final int height;
+    private final int quality;
+    private final int subsampling;
+    private final ImageProcessor owner;
+
+    private volatile boolean released;
+
+    /**
+     * @param owner processor whose buffer pool the buffer is given back to, or null if the buffer
+     *              is not pooled
+     */
+    public CompressedImage(byte[] buffer, int offset, int length, int width, int height, int quality,
+                           int subsampling, ImageProcessor owner) {
+        if (buffer == null || offset < 0 || length < 0 || offset + length > buffer.length) {
+            throw new IllegalArgumentException("Invalid image bounds: offset " + offset + ", length " + length);
+        }
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+        this.width = width;
+        this.height = height;
+        this.quality = quality;
+        this.subsampling = subsampling;
+        this.owner = owner;
+    }
+
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getQuality() {
+        return quality;
+    }
+
+    public int getSubsampling() {
+        return subsampling;
+    }
+
+    /**
+     * Writes the whole image to the channel.
+     */
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        ByteBuffer data = ByteBuffer.wrap(buffer, offset, length);
+        while (data.hasRemaining()) {
+            channel.write(data);
+        }
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(buffer, offset, length);
+    }
+
+    /**
+     * Returns a read-only view of the image.
+     */
+    public ByteBuffer toByteBuffer() {
+        return ByteBuffer.wrap(buffer, offset, length).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns a stream reading the image from the buffer, without copying it.
+     */
+    public ByteArrayInputStream toInputStream() {
+        return new ByteArrayInputStream(buffer, offset, length);
+    }
+
+    /**
+     * Returns a copy of the image trimmed to its length.
+     */
+    public byte[] toByteArray() {
+        byte[] data = new byte[length];
+        System.arraycopy(buffer, offset, data, 0, length);
+        return data;
+    }
+
+    /**
+     * Gives the buffer back to the processor which produced the image. Releasing the image again has no effect.
+     */
+    public synchronized void release() {
+        if (!released) {
+            released = true;
+            if (owner != null) {
+                owner.releaseBuffer(buffer);
+            }
+        }
+    }
+
+    public boolean isReleased() {
+        return released;
+    }
+
+    @Override
+    public String toString() {
+        return "CompressedImage[width=" + width + ", height=" + height + ", length=" + length +
+                ", quality=" + quality + ", subsampling=" + subsampling + "]";
+    }
+
+}
@@ -0,0 +1,86 @@
+package org.libjpegturbo.turbojpeg.processor.api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ *
+ * Immutable result of a batch operation. Results and failures are kept in the order of the input images,
+ * and a failure of one image doesn't affect the results of the other images.
+ *
+ * @since version 1.1,	10/18/2026
+ *
+ * @author Dmitry Viktorov
+ *
+ */
+public final class ImageBatchResult<T> {
+
+    private final List<T> results;
+    private final List<ImageProcessException> failures;
+    private final int failureCount;
+
+    /**
+     * @param results  results in the order of the input images, null for the failed images
+     * @param failures failures in the order of the input images, null for the processed images
+     */
+    public ImageBatchResult(T[] results, ImageProcessException[] failures) {
+        if (results == null || failures == null || results.length != failures.length) {
+            throw new IllegalArgumentException("Results and failures must have the same size");
+        }
+        this.results = Collections.unmodifiableList(new ArrayList<T>(Arrays.asList(results)));
+        this.failures = Collections.unmodifiableList(new ArrayList<ImageProcessException>(Arrays.asList(failures)));
+        int count = 0;
+        for (ImageProcessException failure : failures) {
+            if (failure != null) {
+                count++;
+            }
+        }
+        this.failureCount = count;
+    }
+
+    public int size() {
+        return results.size();
+    }
+
+    /**
+     * Returns the result of the image at the given index, or null if the image failed.
+     */
+    public T get(int index) {
+        return results.get(index);
+    }
+
+    /**
+     * Returns the failure of the image at the given index, or null if the image was processed.
+     */
+    public ImageProcessException getFailure(int index) {
+        return failures.get(index);
+    }
+
+    public boolean isFailed(int index) {
+        return failures.get(index) != null;
+    }
+
+    public boolean hasFailures() {
+        return failureCount > 0;
+    }
+
+    public int getFailureCount() {
+        return failureCount;
+    }
+
+    public List<T> getResults() {
+        return results;
+    }
+
+    public List<ImageProcessException> getFailures() {
+        return failures;
+    }
+
+    @Override
+    public String toString() {
+        return "ImageBatchResult[size=" + size() + ", failures=" + failureCount + "]";
+    }
+
+}
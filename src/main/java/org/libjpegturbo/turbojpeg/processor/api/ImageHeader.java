@@ -0,0 +1,71 @@
+package org.libjpegturbo.turbojpeg.processor.api;
+
+/**
+ *
+ * Immutable header of a JPEG image: its dimensions, level of chrominance subsampling and colorspace.
+ * Subsampling and colorspace values are the ones of TJ.SAMP_* and TJ.CS_* constants.
+ *
+ * @since version 1.1,	10/18/2026
+ *
+ * @author Dmitry Viktorov
+ *
+ */
+public final class ImageHeader {
+
+    private final int width;
+    private final int height;
+    private final int subsamp;
+    private final int colorspace;
+
+    public ImageHeader(int width, int height, int subsamp, int colorspace) {
+        this.width = width;
+        this.height = height;
+        this.subsamp = subsamp;
+        this.colorspace = colorspace;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getSubsamp() {
+        return subsamp;
+    }
+
+    public int getColorspace() {
+        return colorspace;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ImageHeader)) {
+            return false;
+        }
+        ImageHeader header = (ImageHeader) o;
+        return width == header.width && height == header.height &&
+                subsamp == header.subsamp && colorspace == header.colorspace;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = width;
+        result = 31 * result + height;
+        result = 31 * result + subsamp;
+        result = 31 * result + colorspace;
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "ImageHeader[width=" + width + ", height=" + height +
+                ", subsamp=" + subsamp + ", colorspace=" + colorspace + "]";
+    }
+
+}
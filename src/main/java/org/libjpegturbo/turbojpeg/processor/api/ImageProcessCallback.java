@@ -0,0 +1,22 @@
+package org.libjpegturbo.turbojpeg.processor.api;
+
+/**
+ *
+ * Callback notified when an asynchronous image operation is completed. It's called by the thread which
+ * completed the operation, so it must not block.
+ *
+ * @since version 1.1,	10/18/2026
+ *
+ * @author Dmitry Viktorov
+ *
+ */
+public interface ImageProcessCallback<T> {
+
+    public void onSuccess(T result);
+
+    /**
+     * Called if the operation failed or was cancelled.
+     */
+    public void onFailure(Throwable failure);
+
+}
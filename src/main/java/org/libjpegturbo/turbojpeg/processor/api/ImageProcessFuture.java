@@ -0,0 +1,24 @@
+package org.libjpegturbo.turbojpeg.processor.api;
+
+import java.util.concurrent.Future;
+
+/**
+ *
+ * Result of an asynchronous image operation, which may notify callbacks when it's completed.
+ *
+ * @since version 1.1,	10/18/2026
+ *
+ * @author Dmitry Viktorov
+ *
+ */
+public interface ImageProcessFuture<T> extends Future<T> {
+
+    /**
+     * Adds the callback notified when the operation is completed. If the operation is already completed,
+     * the callback is notified immediately by the calling thread.
+     *
+     * @return this future
+     */
+    public ImageProcessFuture<T> addCallback(ImageProcessCallback<? super T> callback);
+
+}
@@ -72,6 +72,30 @@ public class ImageProcessInfo {
         return setValue(ProcessKey.OUTPUT_IMAGE_SIZE, size);
     }
 
+    public int getQuality() {
+        return getValue(ProcessKey.QUALITY);
+    }
+
+    public ImageProcessInfo setQuality(int quality) {
+        return setValue(ProcessKey.QUALITY, quality);
+    }
+
+    public int getIterations() {
+        return getValue(ProcessKey.ITERATIONS);
+    }
+
+    public ImageProcessInfo setIterations(int iterations) {
+        return setValue(ProcessKey.ITERATIONS, iterations);
+    }
+
+    public double getScore() {
+        return getValue(ProcessKey.SCORE);
+    }
+
+    public ImageProcessInfo setScore(double score) {
+        return setValue(ProcessKey.SCORE, score);
+    }
+
     public Map<String, Object> toMap() {
         return Collections.unmodifiableMap(map);
     }
@@ -109,7 +133,10 @@ public class ImageProcessInfo {
         OUTPUT_WIDTH(0),
         OUTPUT_HEIGHT(0),
         OUTPUT_IMAGE(null),
-        OUTPUT_IMAGE_SIZE(0);
+        OUTPUT_IMAGE_SIZE(0),
+        QUALITY(0),
+        ITERATIONS(0),
+        SCORE(0.0);
 
         private final Object defaultValue;
 
@@ -0,0 +1,174 @@
+package org.libjpegturbo.turbojpeg.processor.api;
+
+import java.util.Map;
+
+/**
+ *
+ * Result of a processed image kept in primitive fields, which carries the same information as the map
+ * wrapped by {@link ImageProcessInfo} without boxing the values or allocating map entries.
+ *
+ * The result is mutable and is not thread-safe. A hot loop may pass the same instance to every call, which
+ * resets and fills it instead of allocating a new one. The map form is available by {@link #toMap()} for
+ * the code written against the map contract.
+ *
+ * @since version 1.1,	10/18/2026
+ *
+ * @author Dmitry Viktorov
+ *
+ */
+public final class ImageProcessResult {
+
+    private int inputWidth;
+    private int inputHeight;
+    private int outputWidth;
+    private int outputHeight;
+    private byte[] outputImage;
+    private int outputImageSize;
+    private int quality;
+    private int iterations;
+    private double score;
+
+    /**
+     * Returns the given result reset for reuse, or a new result if it's null.
+     */
+    public static ImageProcessResult reuse(ImageProcessResult result) {
+        return result != null ? result.clear() : new ImageProcessResult();
+    }
+
+    public int getInputWidth() {
+        return inputWidth;
+    }
+
+    public ImageProcessResult setInputWidth(int width) {
+        this.inputWidth = width;
+        return this;
+    }
+
+    public int getInputHeight() {
+        return inputHeight;
+    }
+
+    public ImageProcessResult setInputHeight(int height) {
+        this.inputHeight = height;
+        return this;
+    }
+
+    public int getOutputWidth() {
+        return outputWidth;
+    }
+
+    public ImageProcessResult setOutputWidth(int width) {
+        this.outputWidth = width;
+        return this;
+    }
+
+    public int getOutputHeight() {
+        return outputHeight;
+    }
+
+    public ImageProcessResult setOutputHeight(int height) {
+        this.outputHeight = height;
+        return this;
+    }
+
+    public byte[] getOutputImage() {
+        return outputImage;
+    }
+
+    public ImageProcessResult setOutputImage(byte[] outputImage) {
+        this.outputImage = outputImage;
+        return this;
+    }
+
+    public int getOutputImageSize() {
+        return outputImageSize;
+    }
+
+    public ImageProcessResult setOutputImageSize(int size) {
+        this.outputImageSize = size;
+        return this;
+    }
+
+    public int getQuality() {
+        return quality;
+    }
+
+    public ImageProcessResult setQuality(int quality) {
+        this.quality = quality;
+        return this;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    public ImageProcessResult setIterations(int iterations) {
+        this.iterations = iterations;
+        return this;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    public ImageProcessResult setScore(double score) {
+        this.score = score;
+        return this;
+    }
+
+    /**
+     * Resets all the fields to their defaults. The output image is only dereferenced, so it should be
+     * released before.
+     */
+    public ImageProcessResult clear() {
+        inputWidth = 0;
+        inputHeight = 0;
+        outputWidth = 0;
+        outputHeight = 0;
+        outputImage = null;
+        outputImageSize = 0;
+        quality = 0;
+        iterations = 0;
+        score = 0.0;
+        return this;
+    }
+
+    /**
+     * Returns the map form of the result, as returned by the map based methods of {@link ImageProcessor}.
+     */
+    public Map<String, Object> toMap() {
+        ImageProcessInfo info = ImageProcessInfo.newInstance().
+                setInputWidth(inputWidth).setInputHeight(inputHeight).
+                setOutputWidth(outputWidth).setOutputHeight(outputHeight).
+                setOutputImage(outputImage).setOutputImageSize(outputImageSize);
+        // Quality keys are set only by the operations which choose the quality
+        if (quality != 0 || iterations != 0 || score != 0.0) {
+            info.setQuality(quality).setIterations(iterations).setScore(score);
+        }
+        return info.toMap();
+    }
+
+    public static ImageProcessResult fromMap(Map<String, Object> map) {
+        ImageProcessInfo info = ImageProcessInfo.fromMap(map);
+        return new ImageProcessResult().
+                setInputWidth(info.getInputWidth()).setInputHeight(info.getInputHeight()).
+                setOutputWidth(info.getOutputWidth()).setOutputHeight(info.getOutputHeight()).
+                setOutputImage(info.getOutputImage()).setOutputImageSize(info.getOutputImageSize()).
+                setQuality(info.getQuality()).setIterations(info.getIterations()).setScore(info.getScore());
+    }
+
+    public String getInputDimension() {
+        return inputWidth + "x" + inputHeight;
+    }
+
+    public String getOutputDimension() {
+        return outputWidth + "x" + outputHeight;
+    }
+
+    @Override
+    public String toString() {
+        return "ImageProcessResult[input=" + getInputDimension() + ", output=" + getOutputDimension() +
+                ", size=" + outputImageSize + "]";
+    }
+
+}
@@ -0,0 +1,17 @@
+package org.libjpegturbo.turbojpeg.processor.api;
+
+/**
+ *
+ * Unit of work executed against an image processor, e.g. by an executor which runs the processing
+ * outside of the calling thread.
+ *
+ * @since version 1.1,	10/18/2026
+ *
+ * @author Dmitry Viktorov
+ *
+ */
+public interface ImageProcessTask<T> {
+
+    public T call(ImageProcessor processor) throws ImageProcessException;
+
+}
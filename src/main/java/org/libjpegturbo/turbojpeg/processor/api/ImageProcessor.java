@@ -1,7 +1,12 @@
 package org.libjpegturbo.turbojpeg.processor.api;
 
+import org.libjpegturbo.turbojpeg.TJTransform;
+
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -19,8 +24,22 @@ public interface ImageProcessor {
     public final static String METHOD_IS_USABLE = "isUsable";
     public final static String METHOD_COMPRESS_GENERAL = "compressGeneralImage";
     public final static String METHOD_COMPRESS_JPEG = "compressJpegImage";
+    public final static String METHOD_COMPRESS_JPEG_PARALLEL = "compressJpegImageParallel";
+    public final static String METHOD_COMPRESS_GENERAL_DIRECT = "compressGeneralImageDirect";
+    public final static String METHOD_COMPRESS_JPEG_DIRECT = "compressJpegImageDirect";
     public final static String METHOD_DECOMPRESS_JPEG = "decompressJpegImage";
+    public final static String METHOD_DECOMPRESS_JPEG_PARALLEL = "decompressJpegImageParallel";
+    public final static String METHOD_DECOMPRESS_JPEG_REGION = "decompressJpegRegion";
     public final static String METHOD_DECOMPRESS_GENERAL = "decompressGeneralImage";
+    public final static String METHOD_RELEASE_BUFFER = "releaseBuffer";
+    public final static String METHOD_PROBE = "probe";
+    public final static String METHOD_DECOMPRESS_BATCH = "decompressBatch";
+    public final static String METHOD_COMPRESS_BATCH = "compressBatch";
+    public final static String METHOD_TRANSCODE_JPEG = "transcodeJpegImage";
+    public final static String METHOD_TRANSFORM_JPEG = "transformJpegImage";
+    public final static String METHOD_CREATE_THUMBNAILS = "createThumbnails";
+    public final static String METHOD_COMPRESS_TO_SIZE = "compressToSize";
+    public final static String METHOD_COMPRESS_AUTO_QUALITY = "compressAutoQuality";
 
     public boolean isUsable();
 
@@ -40,6 +59,145 @@ public interface ImageProcessor {
      */
     public Map<String, Object> decompressJpegImage(byte[] inImage, int numerator, int denominator, int flags) throws ImageProcessException;
 
+    /**
+     * Decompresses the JPEG image stored between the position and the limit of the buffer, e.g. a memory-mapped
+     * file. The position of the buffer is not changed. Heap buffers starting at the beginning of their array
+     * are not copied.
+     *
+     * The results can be obtained by wrapping the map over ImageProcessInfo.
+     */
+    public Map<String, Object> decompressJpegImage(ByteBuffer inImage, int numerator, int denominator, int flags) throws ImageProcessException;
+
+    /**
+     * Decompresses the given JPEG image, see {@link #decompressJpegImage(byte[], int, int, int)}, into the typed
+     * result. The given result is reset and filled, which lets a hot loop reuse one instance; a new result is
+     * created if it's null.
+     */
+    public ImageProcessResult decompressJpegImage(byte[] inImage, int numerator, int denominator, int flags, ImageProcessResult result) throws ImageProcessException;
+
+    /**
+     * Decompresses the JPEG image stored in the buffer, see {@link #decompressJpegImage(ByteBuffer, int, int, int)},
+     * into the typed result, see {@link #decompressJpegImage(byte[], int, int, int, ImageProcessResult)}.
+     */
+    public ImageProcessResult decompressJpegImage(ByteBuffer inImage, int numerator, int denominator, int flags, ImageProcessResult result) throws ImageProcessException;
+
+    /**
+     * Decompresses only the given region of the JPEG image, e.g. a preview crop. The area enclosing the region
+     * from the nearest MCU boundaries is losslessly cropped first, so the pixels outside of it are never
+     * decompressed, and the result is trimmed to the region. The region may be scaled by one of the scaling
+     * factors supported by the decompressor.
+     *
+     * The results can be obtained by wrapping the map over ImageProcessInfo, the output image holds the BGRX
+     * pixels of the region.
+     */
+    public Map<String, Object> decompressJpegRegion(byte[] inImage, Rectangle region, int numerator, int denominator, int flags) throws ImageProcessException;
+
+    /**
+     * Decompresses the given JPEG image in parallel, for very large images. The image is split into horizontal
+     * strips aligned to the MCU rows, which are cropped losslessly in a single pass and decompressed concurrently
+     * in place into one output image. Small images are decompressed by a single thread.
+     *
+     * Since every strip is upsampled on its own, the chrominance at the strip borders may slightly differ from
+     * {@link #decompressJpegImage(byte[], int, int, int)} with fancy upsampling. The results can be obtained by
+     * wrapping the map over ImageProcessInfo, as for an unscaled {@link #decompressJpegImage(byte[], int, int, int)}.
+     */
+    public Map<String, Object> decompressJpegImageParallel(byte[] inImage, int flags) throws ImageProcessException;
+
+    /**
+     * Recompresses the given JPEG image with the given quality and subsampling, optionally scaling it.
+     *
+     * If the target subsampling is the subsampling of the image, or grayscale, the image is decoded to planar
+     * YUV and compressed from it. It skips the YCbCr to RGB to YCbCr conversion and needs about 1.5 bytes per
+     * pixel of intermediate memory for 4:2:0 instead of 4. Other images are decoded to BGRX pixels first.
+     *
+     * The results can be obtained by wrapping the map over ImageProcessInfo. The output image is the
+     * compressed JPEG image.
+     */
+    public Map<String, Object> transcodeJpegImage(byte[] inImage, int numerator, int denominator, int quality, int subsampling, int flags) throws ImageProcessException;
+
+    /**
+     * Recompresses the JPEG image stored between the position and the limit of the buffer, see
+     * {@link #transcodeJpegImage(byte[], int, int, int, int, int)}. The position of the buffer is not changed.
+     */
+    public Map<String, Object> transcodeJpegImage(ByteBuffer inImage, int numerator, int denominator, int quality, int subsampling, int flags) throws ImageProcessException;
+
+    /**
+     * Recompresses the given JPEG image, see {@link #transcodeJpegImage(byte[], int, int, int, int, int)}, into
+     * the typed result, see {@link #decompressJpegImage(byte[], int, int, int, ImageProcessResult)}.
+     */
+    public ImageProcessResult transcodeJpegImage(byte[] inImage, int numerator, int denominator, int quality, int subsampling, int flags, ImageProcessResult result) throws ImageProcessException;
+
+    /**
+     * Recompresses the JPEG image stored in the buffer, see
+     * {@link #transcodeJpegImage(ByteBuffer, int, int, int, int, int)}, into the typed result, see
+     * {@link #decompressJpegImage(byte[], int, int, int, ImageProcessResult)}.
+     */
+    public ImageProcessResult transcodeJpegImage(ByteBuffer inImage, int numerator, int denominator, int quality, int subsampling, int flags, ImageProcessResult result) throws ImageProcessException;
+
+    /**
+     * Recompresses the given JPEG image with the highest quality in the <code>minQuality</code> to
+     * <code>maxQuality</code> range whose output fits <code>maxImageSize</code> bytes. The image is decoded
+     * only once and the quality is bisected by recompressing it with the same compressor. If even the
+     * minimum quality doesn't fit, the image compressed with the minimum quality is returned.
+     *
+     * The results can be obtained by wrapping the map over ImageProcessInfo, which also reports the chosen
+     * quality and the number of compressions.
+     */
+    public Map<String, Object> compressToSize(byte[] inImage, int maxImageSize, int minQuality, int maxQuality, int subsampling, int flags) throws ImageProcessException;
+
+    /**
+     * Recompresses the given JPEG image with every candidate quality in parallel and scores each candidate
+     * by the structural similarity (SSIM) of its luminance plane to the one of the decoded image. Returns the
+     * smallest candidate whose score is at least <code>minScore</code>, or the best scored candidate if none
+     * reaches it.
+     *
+     * The results can be obtained by wrapping the map over ImageProcessInfo, which also reports the chosen
+     * quality, its score and the number of compressed candidates.
+     */
+    public Map<String, Object> compressAutoQuality(byte[] inImage, int[] qualities, double minScore, int subsampling, int flags) throws ImageProcessException;
+
+    /**
+     * Creates thumbnails of the given JPEG image which fit the boxes of the given sizes, e.g. 320 for
+     * a 320x320 box, images are never upscaled. The image is decoded only once, at the smallest DCT scale which
+     * still covers the largest thumbnail, and each smaller thumbnail is box filtered from the previous one.
+     *
+     * The results are in the order of the sizes, each of them can be obtained by wrapping the map over
+     * ImageProcessInfo. The output images may be given back by {@link #releaseBuffer(byte[])}.
+     */
+    public List<Map<String, Object>> createThumbnails(byte[] inImage, int[] sizes, int quality, int subsampling, int flags) throws ImageProcessException;
+
+    /**
+     * Losslessly transforms the given JPEG image, e.g. rotates, flips or crops it, without
+     * decoding its pixels. Use {@link TJTransform#OPT_TRIM} or {@link TJTransform#OPT_PERFECT} to handle partial
+     * MCU blocks at the image edges.
+     *
+     * The results can be obtained by wrapping the map over ImageProcessInfo. The output image is the
+     * transformed JPEG image, which may be given back by {@link #releaseBuffer(byte[])}.
+     */
+    public Map<String, Object> transformJpegImage(byte[] inImage, TJTransform transform, int flags) throws ImageProcessException;
+
+    /**
+     * Losslessly transforms the given JPEG image by all the given transforms in a single pass, so the source
+     * coefficients are read only once, e.g. to produce several crops or rotations of the same image. Crop regions
+     * are checked to be aligned to the iMCU boundaries of the transformed image before any work is done.
+     *
+     * The results are in the order of the transforms, each of them can be obtained by wrapping the map over
+     * ImageProcessInfo.
+     */
+    public List<Map<String, Object>> transformJpegImage(byte[] inImage, List<TJTransform> transforms, int flags) throws ImageProcessException;
+
+    /**
+     * Reads only the header of the given JPEG image and returns its dimensions, subsampling and colorspace.
+     * No pixel memory is allocated.
+     */
+    public ImageHeader probe(byte[] inImage) throws ImageProcessException;
+
+    /**
+     * Reads only the header of the JPEG image stored between the position and the limit of the buffer.
+     * The position of the buffer is not changed.
+     */
+    public ImageHeader probe(ByteBuffer inImage) throws ImageProcessException;
+
     /**
      * Compresses the submitted decompressed BufferedImage.
      *
@@ -56,4 +214,55 @@ public interface ImageProcessor {
      */
     public ByteArrayInputStream compressJpegImage(byte[] inImage, int width, int height, int quality, int subsampling, int flags) throws ImageProcessException;
 
+    /**
+     * Compresses the submitted decompressed BufferedImage, see
+     * {@link #compressGeneralImage(BufferedImage, int, int, int)}. The result exposes the pooled buffer of
+     * the encoder without copying it and should be given back by {@link CompressedImage#release()}.
+     */
+    public CompressedImage compressGeneralImageDirect(BufferedImage inImage, int quality, int subsampling, int flags) throws ImageProcessException;
+
+    /**
+     * Compresses the submitted decompressed JPEG file, see
+     * {@link #compressJpegImage(byte[], int, int, int, int, int)}. The result exposes the pooled buffer of
+     * the encoder without copying it and should be given back by {@link CompressedImage#release()}.
+     */
+    public CompressedImage compressJpegImageDirect(byte[] inImage, int width, int height, int quality, int subsampling, int flags) throws ImageProcessException;
+
+    /**
+     * Compresses the given image in parallel, for very large images. The image is split into horizontal strips
+     * of whole MCU rows, which are compressed concurrently and joined into one baseline JPEG image by restart
+     * markers. Since the MozJPEG defaults produce progressive strips with their own Huffman tables, the
+     * quantized coefficients of the strips are re-encoded concurrently with Huffman tables optimized for the
+     * whole image, so the image is baseline and may be slightly larger than a progressive one compressed by
+     * {@link #compressJpegImage(byte[], int, int, int, int, int)}. Small images are compressed by a single thread.
+     */
+    public ByteArrayInputStream compressJpegImageParallel(byte[] inImage, int width, int height, int quality, int subsampling, int flags) throws ImageProcessException;
+
+    /**
+     * Decompresses the given JPEG images in parallel, see {@link #decompressJpegImage(byte[], int, int, int)}.
+     * The results are returned in the order of the input images. Images which can't be decompressed are
+     * reported as failures of the batch result and don't affect the other images.
+     */
+    public ImageBatchResult<Map<String, Object>> decompressBatch(List<byte[]> inImages, int numerator, int denominator, int flags) throws ImageProcessException;
+
+    /**
+     * Compresses the given decompressed images in parallel, see
+     * {@link #compressJpegImage(byte[], int, int, int, int, int)}. Each input image is the map returned by
+     * {@link #decompressJpegImage(byte[], int, int, int)}. The results are returned in the order of the input
+     * images. Images which can't be compressed are reported as failures of the batch result and don't affect
+     * the other images.
+     */
+    public ImageBatchResult<ByteArrayInputStream> compressBatch(List<Map<String, Object>> inImages, int quality, int subsampling, int flags) throws ImageProcessException;
+
+    /**
+     * Gives a buffer produced by this processor back to its buffer pool, e.g. the output image of
+     * {@link #decompressJpegImage} once it's compressed. The buffer must not be used afterwards.
+     * Buffers which are not released are simply garbage-collected.
+     *
+     * Processors don't pool buffers unless they are configured with a buffer pool. Output images leased from
+     * a pool may be longer than the image, e.g. rounded up to a power of two, so the image must be read up to
+     * the reported output image size or dimensions rather than the length of the array.
+     */
+    public void releaseBuffer(byte[] buffer);
+
 }
@@ -0,0 +1,526 @@
+package org.libjpegturbo.turbojpeg.processor.impl;
+
+import org.libjpegturbo.turbojpeg.TJTransform;
+import org.libjpegturbo.turbojpeg.processor.api.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *
+ * Asynchronous wrapper of an image processor. Every operation is queued to a dedicated pool of codec threads
+ * and returns a future immediately, so the calling threads never block on the native processing.
+ *
+ * The submission queue is bounded. When it's full, the rejection policy decides what happens to a new
+ * operation: the default policy throws RejectedExecutionException, and the caller-runs policy processes the
+ * operation in the calling thread, which slows the producers down. Policies which silently drop operations
+ * leave their futures incomplete and must not be used. Operations submitted after shutdown are always rejected
+ * with RejectedExecutionException, since the caller-runs policy would drop them as well.
+ *
+ * @since version 1.1,	10/18/2026
+ *
+ * @author Dmitry Viktorov
+ *
+ */
+public class AsyncImageProcessor implements AutoCloseable {
+
+    public final static String KEY_THREADS = "mozjpeg.processor.async.threads";
+    public final static String KEY_QUEUE_CAPACITY = "mozjpeg.processor.async.queue.capacity";
+    public final static String KEY_REJECTION_POLICY = "mozjpeg.processor.async.rejection.policy";
+
+    public final static String POLICY_ABORT = "abort";
+    public final static String POLICY_CALLER_RUNS = "caller-runs";
+
+    public final static int DEFAULT_THREADS = Runtime.getRuntime().availableProcessors();
+    public final static int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    private final static Logger log = LoggerFactory.getLogger(AsyncImageProcessor.class);
+    private final static AtomicInteger poolNumber = new AtomicInteger();
+
+    protected final ImageProcessor processor;
+    protected final ThreadPoolExecutor executor;
+    private final int queueCapacity;
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+
+    /**
+     * Creates asynchronous processor over {@link ImageProcessorImpl} with settings taken from system properties
+     * {@link #KEY_THREADS}, {@link #KEY_QUEUE_CAPACITY} and {@link #KEY_REJECTION_POLICY}.
+     */
+    public AsyncImageProcessor() {
+        this(new ImageProcessorImpl(),
+                Integer.getInteger(KEY_THREADS, DEFAULT_THREADS),
+                Integer.getInteger(KEY_QUEUE_CAPACITY, DEFAULT_QUEUE_CAPACITY),
+                createRejectionHandler(System.getProperty(KEY_REJECTION_POLICY, POLICY_ABORT)));
+    }
+
+    /**
+     * @param processor        processor executing the operations
+     * @param threads          number of codec threads
+     * @param queueCapacity    maximum number of operations waiting for a codec thread
+     * @param rejectionHandler policy applied when the queue is full (null throws RejectedExecutionException)
+     */
+    public AsyncImageProcessor(ImageProcessor processor, int threads, int queueCapacity, final RejectedExecutionHandler rejectionHandler) {
+
+        if (processor == null) {
+            throw new IllegalArgumentException("Image processor can't be null");
+        }
+        if (threads < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("Number of threads and queue capacity must be positive");
+        }
+
+        this.processor = processor;
+        this.queueCapacity = queueCapacity;
+
+        final RejectedExecutionHandler handler = rejectionHandler != null ? rejectionHandler : new ThreadPoolExecutor.AbortPolicy();
+        final String namePrefix = "mozjpeg-codec-" + poolNumber.incrementAndGet() + "-";
+
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queueCapacity),
+                new ThreadFactory() {
+                    private final AtomicInteger threadNumber = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, namePrefix + threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                },
+                new RejectedExecutionHandler() {
+                    @Override
+                    public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+                        rejectedCount.incrementAndGet();
+                        if (executor.isShutdown()) {
+                            throw new RejectedExecutionException("Asynchronous image processor is shut down");
+                        }
+                        handler.rejectedExecution(r, executor);
+                    }
+                });
+
+    }
+
+    /**
+     * Returns the handler of the given policy name, {@link #POLICY_ABORT} or {@link #POLICY_CALLER_RUNS}.
+     */
+    public static RejectedExecutionHandler createRejectionHandler(String policy) {
+        if (POLICY_CALLER_RUNS.equalsIgnoreCase(policy)) {
+            return new ThreadPoolExecutor.CallerRunsPolicy();
+        }
+        if (!POLICY_ABORT.equalsIgnoreCase(policy)) {
+            log.warn("Unknown rejection policy {}, {} is used instead", policy, POLICY_ABORT);
+        }
+        return new ThreadPoolExecutor.AbortPolicy();
+    }
+
+    /**
+     * Queues the task to be executed against the wrapped processor by a codec thread.
+     *
+     * @throws RejectedExecutionException if the processor is shut down, or the queue is full and the rejection
+     *                                    policy aborts the task
+     */
+    public <T> ImageProcessFuture<T> submit(final ImageProcessTask<T> task) {
+
+        if (task == null) {
+            throw new IllegalArgumentException("Task can't be null");
+        }
+
+        ProcessFutureTask<T> future = new ProcessFutureTask<T>(new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                return task.call(processor);
+            }
+        });
+        executor.execute(future);
+
+        int depth = executor.getQueue().size();
+        int max;
+        while (depth > (max = maxQueueDepth.get()) && !maxQueueDepth.compareAndSet(max, depth)) {
+        }
+
+        return future;
+
+    }
+
+    public boolean isUsable() {
+        return processor.isUsable() && !executor.isShutdown();
+    }
+
+    public ImageProcessFuture<BufferedImage> decompressGeneralImage(final byte[] inImage, final int numerator, final int denominator, final int flags) {
+        return submit(new ImageProcessTask<BufferedImage>() {
+            @Override
+            public BufferedImage call(ImageProcessor processor) throws ImageProcessException {
+                return processor.decompressGeneralImage(inImage, numerator, denominator, flags);
+            }
+        });
+    }
+
+    public ImageProcessFuture<Map<String, Object>> decompressJpegImage(final byte[] inImage, final int numerator, final int denominator, final int flags) {
+        return submit(new ImageProcessTask<Map<String, Object>>() {
+            @Override
+            public Map<String, Object> call(ImageProcessor processor) throws ImageProcessException {
+                return processor.decompressJpegImage(inImage, numerator, denominator, flags);
+            }
+        });
+    }
+
+    public ImageProcessFuture<ImageProcessResult> decompressJpegImage(final byte[] inImage, final int numerator, final int denominator, final int flags, final ImageProcessResult result) {
+        return submit(new ImageProcessTask<ImageProcessResult>() {
+            @Override
+            public ImageProcessResult call(ImageProcessor processor) throws ImageProcessException {
+                return processor.decompressJpegImage(inImage, numerator, denominator, flags, result);
+            }
+        });
+    }
+
+    public ImageProcessFuture<Map<String, Object>> decompressJpegImage(final ByteBuffer inImage, final int numerator, final int denominator, final int flags) {
+        return submit(new ImageProcessTask<Map<String, Object>>() {
+            @Override
+            public Map<String, Object> call(ImageProcessor processor) throws ImageProcessException {
+                return processor.decompressJpegImage(inImage, numerator, denominator, flags);
+            }
+        });
+    }
+
+    public ImageProcessFuture<ImageProcessResult> decompressJpegImage(final ByteBuffer inImage, final int numerator, final int denominator, final int flags, final ImageProcessResult result) {
+        return submit(new ImageProcessTask<ImageProcessResult>() {
+            @Override
+            public ImageProcessResult call(ImageProcessor processor) throws ImageProcessException {
+                return processor.decompressJpegImage(inImage, numerator, denominator, flags, result);
+            }
+        });
+    }
+
+    public ImageProcessFuture<Map<String, Object>> decompressJpegImageParallel(final byte[] inImage, final int flags) {
+        return submit(new ImageProcessTask<Map<String, Object>>() {
+            @Override
+            public Map<String, Object> call(ImageProcessor processor) throws ImageProcessException {
+                return processor.decompressJpegImageParallel(inImage, flags);
+            }
+        });
+    }
+
+    public ImageProcessFuture<Map<String, Object>> decompressJpegRegion(final byte[] inImage, final Rectangle region, final int numerator, final int denominator, final int flags) {
+        return submit(new ImageProcessTask<Map<String, Object>>() {
+            @Override
+            public Map<String, Object> call(ImageProcessor processor) throws ImageProcessException {
+                return processor.decompressJpegRegion(inImage, region, numerator, denominator, flags);
+            }
+        });
+    }
+
+    public ImageProcessFuture<Map<String, Object>> transcodeJpegImage(final byte[] inImage, final int numerator, final int denominator, final int quality, final int subsampling, final int flags) {
+        return submit(new ImageProcessTask<Map<String, Object>>() {
+            @Override
+            public Map<String, Object> call(ImageProcessor processor) throws ImageProcessException {
+                return processor.transcodeJpegImage(inImage, numerator, denominator, quality, subsampling, flags);
+            }
+        });
+    }
+
+    public ImageProcessFuture<ImageProcessResult> transcodeJpegImage(final byte[] inImage, final int numerator, final int denominator, final int quality, final int subsampling, final int flags, final ImageProcessResult result) {
+        return submit(new ImageProcessTask<ImageProcessResult>() {
+            @Override
+            public ImageProcessResult call(ImageProcessor processor) throws ImageProcessException {
+                return processor.transcodeJpegImage(inImage, numerator, denominator, quality, subsampling, flags, result);
+            }
+        });
+    }
+
+    public ImageProcessFuture<Map<String, Object>> transcodeJpegImage(final ByteBuffer inImage, final int numerator, final int denominator, final int quality, final int subsampling, final int flags) {
+        return submit(new ImageProcessTask<Map<String, Object>>() {
+            @Override
+            public Map<String, Object> call(ImageProcessor processor) throws ImageProcessException {
+                return processor.transcodeJpegImage(inImage, numerator, denominator, quality, subsampling, flags);
+            }
+        });
+    }
+
+    public ImageProcessFuture<ImageProcessResult> transcodeJpegImage(final ByteBuffer inImage, final int numerator, final int denominator, final int quality, final int subsampling, final int flags, final ImageProcessResult result) {
+        return submit(new ImageProcessTask<ImageProcessResult>() {
+            @Override
+            public ImageProcessResult call(ImageProcessor processor) throws ImageProcessException {
+                return processor.transcodeJpegImage(inImage, numerator, denominator, quality, subsampling, flags, result);
+            }
+        });
+    }
+
+    public ImageProcessFuture<Map<String, Object>> compressToSize(final byte[] inImage, final int maxImageSize, final int minQuality, final int maxQuality, final int subsampling, final int flags) {
+        return submit(new ImageProcessTask<Map<String, Object>>() {
+            @Override
+            public Map<String, Object> call(ImageProcessor processor) throws ImageProcessException {
+                return processor.compressToSize(inImage, maxImageSize, minQuality, maxQuality, subsampling, flags);
+            }
+        });
+    }
+
+    public ImageProcessFuture<Map<String, Object>> compressAutoQuality(final byte[] inImage, final int[] qualities, final double minScore, final int subsampling, final int flags) {
+        return submit(new ImageProcessTask<Map<String, Object>>() {
+            @Override
+            public Map<String, Object> call(ImageProcessor processor) throws ImageProcessException {
+                return processor.compressAutoQuality(inImage, qualities, minScore, subsampling, flags);
+            }
+        });
+    }
+
+    public ImageProcessFuture<List<Map<String, Object>>> createThumbnails(final byte[] inImage, final int[] sizes, final int quality, final int subsampling, final int flags) {
+        return submit(new ImageProcessTask<List<Map<String, Object>>>() {
+            @Override
+            public List<Map<String, Object>> call(ImageProcessor processor) throws ImageProcessException {
+                return processor.createThumbnails(inImage, sizes, quality, subsampling, flags);
+            }
+        });
+    }
+
+    public ImageProcessFuture<Map<String, Object>> transformJpegImage(final byte[] inImage, final TJTransform transform, final int flags) {
+        return submit(new ImageProcessTask<Map<String, Object>>() {
+            @Override
+            public Map<String, Object> call(ImageProcessor processor) throws ImageProcessException {
+                return processor.transformJpegImage(inImage, transform, flags);
+            }
+        });
+    }
+
+    public ImageProcessFuture<List<Map<String, Object>>> transformJpegImage(final byte[] inImage, final List<TJTransform> transforms, final int flags) {
+        return submit(new ImageProcessTask<List<Map<String, Object>>>() {
+            @Override
+            public List<Map<String, Object>> call(ImageProcessor processor) throws ImageProcessException {
+                return processor.transformJpegImage(inImage, transforms, flags);
+            }
+        });
+    }
+
+    public ImageProcessFuture<ImageHeader> probe(final byte[] inImage) {
+        return submit(new ImageProcessTask<ImageHeader>() {
+            @Override
+            public ImageHeader call(ImageProcessor processor) throws ImageProcessException {
+                return processor.probe(inImage);
+            }
+        });
+    }
+
+    public ImageProcessFuture<ImageHeader> probe(final ByteBuffer inImage) {
+        return submit(new ImageProcessTask<ImageHeader>() {
+            @Override
+            public ImageHeader call(ImageProcessor processor) throws ImageProcessException {
+                return processor.probe(inImage);
+            }
+        });
+    }
+
+    public ImageProcessFuture<ByteArrayInputStream> compressGeneralImage(final BufferedImage inImage, final int quality, final int subsampling, final int flags) {
+        return submit(new ImageProcessTask<ByteArrayInputStream>() {
+            @Override
+            public ByteArrayInputStream call(ImageProcessor processor) throws ImageProcessException {
+                return processor.compressGeneralImage(inImage, quality, subsampling, flags);
+            }
+        });
+    }
+
+    public ImageProcessFuture<ByteArrayInputStream> compressJpegImage(final byte[] inImage, final int width, final int height, final int quality, final int subsampling, final int flags) {
+        return submit(new ImageProcessTask<ByteArrayInputStream>() {
+            @Override
+            public ByteArrayInputStream call(ImageProcessor processor) throws ImageProcessException {
+                return processor.compressJpegImage(inImage, width, height, quality, subsampling, flags);
+            }
+        });
+    }
+
+    public ImageProcessFuture<CompressedImage> compressGeneralImageDirect(final BufferedImage inImage, final int quality, final int subsampling, final int flags) {
+        return submit(new ImageProcessTask<CompressedImage>() {
+            @Override
+            public CompressedImage call(ImageProcessor processor) throws ImageProcessException {
+                return processor.compressGeneralImageDirect(inImage, quality, subsampling, flags);
+            }
+        });
+    }
+
+    public ImageProcessFuture<CompressedImage> compressJpegImageDirect(final byte[] inImage, final int width, final int height, final int quality, final int subsampling, final int flags) {
+        return submit(new ImageProcessTask<CompressedImage>() {
+            @Override
+            public CompressedImage call(ImageProcessor processor) throws ImageProcessException {
+                return processor.compressJpegImageDirect(inImage, width, height, quality, subsampling, flags);
+            }
+        });
+    }
+
+    public ImageProcessFuture<ByteArrayInputStream> compressJpegImageParallel(final byte[] inImage, final int width, final int height, final int quality, final int subsampling, final int flags) {
+        return submit(new ImageProcessTask<ByteArrayInputStream>() {
+            @Override
+            public ByteArrayInputStream call(ImageProcessor processor) throws ImageProcessException {
+                return processor.compressJpegImageParallel(inImage, width, height, quality, subsampling, flags);
+            }
+        });
+    }
+
+    public ImageProcessFuture<ImageBatchResult<Map<String, Object>>> decompressBatch(final List<byte[]> inImages, final int numerator, final int denominator, final int flags) {
+        return submit(new ImageProcessTask<ImageBatchResult<Map<String, Object>>>() {
+            @Override
+            public ImageBatchResult<Map<String, Object>> call(ImageProcessor processor) throws ImageProcessException {
+                return processor.decompressBatch(inImages, numerator, denominator, flags);
+            }
+        });
+    }
+
+    public ImageProcessFuture<ImageBatchResult<ByteArrayInputStream>> compressBatch(final List<Map<String, Object>> inImages, final int quality, final int subsampling, final int flags) {
+        return submit(new ImageProcessTask<ImageBatchResult<ByteArrayInputStream>>() {
+            @Override
+            public ImageBatchResult<ByteArrayInputStream> call(ImageProcessor processor) throws ImageProcessException {
+                return processor.compressBatch(inImages, quality, subsampling, flags);
+            }
+        });
+    }
+
+    /**
+     * Gives a buffer produced by the wrapped processor back to its buffer pool. This call is synchronous.
+     */
+    public void releaseBuffer(byte[] buffer) {
+        processor.releaseBuffer(buffer);
+    }
+
+    public ImageProcessor getProcessor() {
+        return processor;
+    }
+
+    /**
+     * Returns the number of operations waiting for a codec thread.
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Returns the highest number of waiting operations observed after a submission.
+     */
+    public int getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Returns the number of codec threads which are processing an operation.
+     */
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public long getCompletedCount() {
+        return executor.getCompletedTaskCount();
+    }
+
+    /**
+     * Returns the number of operations which were submitted while the queue was full.
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * Stops accepting new operations. Queued operations are still processed.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    @Override
+    public void close() {
+        shutdown();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[queued=" + getQueueDepth() + ", maxQueued=" + getMaxQueueDepth() +
+                ", capacity=" + getQueueCapacity() + ", active=" + getActiveCount() +
+                ", completed=" + getCompletedCount() + ", rejected=" + getRejectedCount() + "]";
+    }
+
+    protected static class ProcessFutureTask<T> extends FutureTask<T> implements ImageProcessFuture<T> {
+
+        private final List<ImageProcessCallback<? super T>> callbacks = new ArrayList<ImageProcessCallback<? super T>>(1);
+        private boolean completed = false;
+
+        protected ProcessFutureTask(Callable<T> callable) {
+            super(callable);
+        }
+
+        @Override
+        public ImageProcessFuture<T> addCallback(ImageProcessCallback<? super T> callback) {
+            if (callback == null) {
+                throw new IllegalArgumentException("Callback can't be null");
+            }
+            synchronized (callbacks) {
+                // A completed task may not have run done() yet
+                if (!completed && !isDone()) {
+                    callbacks.add(callback);
+                    return this;
+                }
+            }
+            notify(callback);
+            return this;
+        }
+
+        @Override
+        protected void done() {
+            List<ImageProcessCallback<? super T>> toNotify;
+            synchronized (callbacks) {
+                completed = true;
+                toNotify = new ArrayList<ImageProcessCallback<? super T>>(callbacks);
+                callbacks.clear();
+            }
+            for (ImageProcessCallback<? super T> callback : toNotify) {
+                notify(callback);
+            }
+        }
+
+        private void notify(ImageProcessCallback<? super T> callback) {
+            T result;
+            try {
+                // The task is completed, so the result is never waited for
+                result = get();
+            } catch (ExecutionException e) {
+                notifyFailure(callback, e.getCause());
+                return;
+            } catch (CancellationException e) {
+                notifyFailure(callback, e);
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                notifyFailure(callback, e);
+                return;
+            }
+            try {
+                callback.onSuccess(result);
+            } catch (RuntimeException e) {
+                log.warn("Callback of an image operation failed", e);
+            }
+        }
+
+        private void notifyFailure(ImageProcessCallback<? super T> callback, Throwable failure) {
+            try {
+                callback.onFailure(failure);
+            } catch (RuntimeException e) {
+                log.warn("Callback of an image operation failed", e);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,259 @@
+package org.libjpegturbo.turbojpeg.processor.impl;
+
+import org.libjpegturbo.turbojpeg.DigestUtils;
+import org.libjpegturbo.turbojpeg.processor.api.ImageProcessException;
+import org.libjpegturbo.turbojpeg.processor.api.ImageProcessResult;
+import org.libjpegturbo.turbojpeg.processor.api.ImageProcessor;
+
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ *
+ * Image processor which caches the compressed outputs of recompressing operations, so repeated requests for
+ * the same image and parameters skip the native decode and encode.
+ *
+ * Outputs are keyed by the 64-bit XXH64 hash and the length of the input image together with the operation
+ * and its parameters. The hash is seeded with a random value drawn per instance, so inputs colliding with a
+ * cached image can't be crafted ahead of time to receive its output. Outputs are kept in an {@link ImageOutputCache} bounded by their size in bytes. Cached are
+ * {@link #transcodeJpegImage}, {@link #compressToSize} and {@link #compressAutoQuality}; other operations are
+ * forwarded as is. The cache keeps its own copy of every output and every hit returns a new copy, so the
+ * outputs may be given back by {@link #releaseBuffer(byte[])} as usual.
+ *
+ * @since version 1.1,	10/18/2026
+ *
+ * @author Dmitry Viktorov
+ *
+ */
+public class CachingImageProcessor extends ForwardingImageProcessor {
+
+    public final static String KEY_MAX_BYTES = "mozjpeg.processor.cache.max.bytes";
+
+    public final static long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    /**
+     * Approximate size of an entry besides the image, counted towards the cache size.
+     */
+    protected final static int ENTRY_OVERHEAD = 128;
+    /**
+     * Assumed average size of an output image, which sizes the frequency sketch of the cache.
+     */
+    protected final static int AVERAGE_OUTPUT_SIZE = 32 * 1024;
+
+    protected final ImageOutputCache<OutputKey, CachedOutput> cache;
+    /**
+     * Random seed of the input hashes, unknown outside of this instance.
+     */
+    private final long seed = new SecureRandom().nextLong();
+
+    /**
+     * Creates processor with the cache size taken from system property {@link #KEY_MAX_BYTES}.
+     */
+    public CachingImageProcessor(ImageProcessor delegate) {
+        this(delegate, Long.getLong(KEY_MAX_BYTES, DEFAULT_MAX_BYTES));
+    }
+
+    /**
+     * @param delegate processor executing the operations
+     * @param maxBytes maximum total size of the cached outputs
+     */
+    public CachingImageProcessor(ImageProcessor delegate, long maxBytes) {
+        super(delegate);
+        this.cache = new ImageOutputCache<OutputKey, CachedOutput>(maxBytes,
+                (int) Math.min(Integer.MAX_VALUE, maxBytes / AVERAGE_OUTPUT_SIZE));
+    }
+
+    /**
+     * Returns the cache, e.g. to read its hit, miss and eviction statistics.
+     */
+    public ImageOutputCache<?, ?> getCache() {
+        return cache;
+    }
+
+    @Override
+    public Map<String, Object> transcodeJpegImage(byte[] inImage, int numerator, int denominator, int quality, int subsampling, int flags) throws ImageProcessException {
+        return transcodeJpegImage(inImage, numerator, denominator, quality, subsampling, flags, null).toMap();
+    }
+
+    @Override
+    public Map<String, Object> transcodeJpegImage(ByteBuffer inImage, int numerator, int denominator, int quality, int subsampling, int flags) throws ImageProcessException {
+        return transcodeJpegImage(inImage, numerator, denominator, quality, subsampling, flags, null).toMap();
+    }
+
+    @Override
+    public ImageProcessResult transcodeJpegImage(byte[] inImage, int numerator, int denominator, int quality, int subsampling, int flags, ImageProcessResult result) throws ImageProcessException {
+        checkInputImage(inImage);
+        OutputKey key = new OutputKey(METHOD_TRANSCODE_JPEG, hash(inImage), inImage.length,
+                numerator, denominator, quality, subsampling, flags);
+        CachedOutput output = cache.get(key);
+        if (output != null) {
+            return output.toResult(result);
+        }
+        return store(key, super.transcodeJpegImage(inImage, numerator, denominator, quality, subsampling, flags, result));
+    }
+
+    @Override
+    public ImageProcessResult transcodeJpegImage(ByteBuffer inImage, int numerator, int denominator, int quality, int subsampling, int flags, ImageProcessResult result) throws ImageProcessException {
+        checkInputImage(inImage);
+        OutputKey key = new OutputKey(METHOD_TRANSCODE_JPEG, hash(inImage), inImage.remaining(),
+                numerator, denominator, quality, subsampling, flags);
+        CachedOutput output = cache.get(key);
+        if (output != null) {
+            return output.toResult(result);
+        }
+        return store(key, super.transcodeJpegImage(inImage, numerator, denominator, quality, subsampling, flags, result));
+    }
+
+    @Override
+    public Map<String, Object> compressToSize(byte[] inImage, int maxImageSize, int minQuality, int maxQuality, int subsampling, int flags) throws ImageProcessException {
+        checkInputImage(inImage);
+        OutputKey key = new OutputKey(METHOD_COMPRESS_TO_SIZE, hash(inImage), inImage.length,
+                maxImageSize, minQuality, maxQuality, subsampling, flags);
+        CachedOutput output = cache.get(key);
+        if (output != null) {
+            return output.toResult(null).toMap();
+        }
+        Map<String, Object> result = super.compressToSize(inImage, maxImageSize, minQuality, maxQuality, subsampling, flags);
+        store(key, ImageProcessResult.fromMap(result));
+        return result;
+    }
+
+    @Override
+    public Map<String, Object> compressAutoQuality(byte[] inImage, int[] qualities, double minScore, int subsampling, int flags) throws ImageProcessException {
+        checkInputImage(inImage);
+        if (qualities == null) {
+            return super.compressAutoQuality(inImage, qualities, minScore, subsampling, flags);
+        }
+        long score = Double.doubleToLongBits(minScore);
+        int[] params = Arrays.copyOf(qualities, qualities.length + 4);
+        params[qualities.length] = (int) (score >>> 32);
+        params[qualities.length + 1] = (int) score;
+        params[qualities.length + 2] = subsampling;
+        params[qualities.length + 3] = flags;
+        OutputKey key = new OutputKey(METHOD_COMPRESS_AUTO_QUALITY, hash(inImage), inImage.length, params);
+        CachedOutput output = cache.get(key);
+        if (output != null) {
+            return output.toResult(null).toMap();
+        }
+        Map<String, Object> result = super.compressAutoQuality(inImage, qualities, minScore, subsampling, flags);
+        store(key, ImageProcessResult.fromMap(result));
+        return result;
+    }
+
+    /**
+     * Caches a copy of the output and returns the output.
+     */
+    protected ImageProcessResult store(OutputKey key, ImageProcessResult result) {
+        if (result.getOutputImage() != null) {
+            CachedOutput output = new CachedOutput(result);
+            cache.put(key, output, output.image.length + ENTRY_OVERHEAD);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the seeded hash of the input image keying its outputs.
+     */
+    protected long hash(byte[] inImage) {
+        return DigestUtils.hash64(inImage, seed);
+    }
+
+    /**
+     * Returns the seeded hash of the remaining bytes of the input image keying its outputs.
+     */
+    protected long hash(ByteBuffer inImage) {
+        return DigestUtils.hash64(inImage, seed);
+    }
+
+    private static void checkInputImage(Object inImage) throws ImageProcessException {
+        if (inImage == null) {
+            throw new ImageProcessException("Input image can't be null");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CachingImageProcessor[" + cache + "]";
+    }
+
+    /**
+     * Key of a cached output: the operation, the hash and the length of the input image and the parameters.
+     */
+    protected static final class OutputKey {
+
+        private final String operation;
+        private final long hash;
+        private final int length;
+        private final int[] params;
+        private final int hashCode;
+
+        protected OutputKey(String operation, long hash, int length, int... params) {
+            this.operation = operation;
+            this.hash = hash;
+            this.length = length;
+            this.params = params;
+            int result = operation.hashCode();
+            result = 31 * result + (int) (hash ^ (hash >>> 32));
+            result = 31 * result + length;
+            result = 31 * result + Arrays.hashCode(params);
+            this.hashCode = result;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof OutputKey)) {
+                return false;
+            }
+            OutputKey key = (OutputKey) o;
+            return hash == key.hash && length == key.length && operation.equals(key.operation) &&
+                    Arrays.equals(params, key.params);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+    }
+
+    /**
+     * Immutable copy of an output trimmed to the size of its image.
+     */
+    protected static final class CachedOutput {
+
+        private final byte[] image;
+        private final int inputWidth;
+        private final int inputHeight;
+        private final int outputWidth;
+        private final int outputHeight;
+        private final int quality;
+        private final int iterations;
+        private final double score;
+
+        private CachedOutput(ImageProcessResult result) {
+            this.image = Arrays.copyOf(result.getOutputImage(), result.getOutputImageSize());
+            this.inputWidth = result.getInputWidth();
+            this.inputHeight = result.getInputHeight();
+            this.outputWidth = result.getOutputWidth();
+            this.outputHeight = result.getOutputHeight();
+            this.quality = result.getQuality();
+            this.iterations = result.getIterations();
+            this.score = result.getScore();
+        }
+
+        private ImageProcessResult toResult(ImageProcessResult result) {
+            return ImageProcessResult.reuse(result).
+                    setInputWidth(inputWidth).setInputHeight(inputHeight).
+                    setOutputWidth(outputWidth).setOutputHeight(outputHeight).
+                    setOutputImage(image.clone()).setOutputImageSize(image.length).
+                    setQuality(quality).setIterations(iterations).setScore(score);
+        }
+
+    }
+
+}
@@ -0,0 +1,306 @@
+package org.libjpegturbo.turbojpeg.processor.impl;
+
+import org.libjpegturbo.turbojpeg.TJTransform;
+import org.libjpegturbo.turbojpeg.processor.api.*;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *
+ * Image processor which forwards all operations to another processor. Every operation except
+ * {@link #isUsable()} and {@link #releaseBuffer(byte[])} is executed by {@link #call(ImageProcessTask)}, so
+ * decorators may change how operations are executed by overriding just that method.
+ *
+ * @since version 1.1,	10/18/2026
+ *
+ * @author Dmitry Viktorov
+ *
+ */
+public class ForwardingImageProcessor implements ImageProcessor {
+
+    protected final ImageProcessor delegate;
+
+    public ForwardingImageProcessor(ImageProcessor delegate) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("Image processor can't be null");
+        }
+        this.delegate = delegate;
+    }
+
+    /**
+     * Executes the operation against the delegate.
+     */
+    protected <T> T call(ImageProcessTask<T> task) throws ImageProcessException {
+        return task.call(delegate);
+    }
+
+    public ImageProcessor getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public boolean isUsable() {
+        return delegate.isUsable();
+    }
+
+    @Override
+    public BufferedImage decompressGeneralImage(final byte[] inImage, final int numerator, final int denominator, final int flags) throws ImageProcessException {
+        return call(new ImageProcessTask<BufferedImage>() {
+            @Override
+            public BufferedImage call(ImageProcessor processor) throws ImageProcessException {
+                return processor.decompressGeneralImage(inImage, numerator, denominator, flags);
+            }
+        });
+    }
+
+    @Override
+    public Map<String, Object> decompressJpegImage(final byte[] inImage, final int numerator, final int denominator, final int flags) throws ImageProcessException {
+        return call(new ImageProcessTask<Map<String, Object>>() {
+            @Override
+            public Map<String, Object> call(ImageProcessor processor) throws ImageProcessException {
+                return processor.decompressJpegImage(inImage, numerator, denominator, flags);
+            }
+        });
+    }
+
+    @Override
+    public ImageProcessResult decompressJpegImage(final byte[] inImage, final int numerator, final int denominator, final int flags, final ImageProcessResult result) throws ImageProcessException {
+        return call(new ImageProcessTask<ImageProcessResult>() {
+            @Override
+            public ImageProcessResult call(ImageProcessor processor) throws ImageProcessException {
+                return processor.decompressJpegImage(inImage, numerator, denominator, flags, result);
+            }
+        });
+    }
+
+    @Override
+    public Map<String, Object> decompressJpegImage(final ByteBuffer inImage, final int numerator, final int denominator, final int flags) throws ImageProcessException {
+        return call(new ImageProcessTask<Map<String, Object>>() {
+            @Override
+            public Map<String, Object> call(ImageProcessor processor) throws ImageProcessException {
+                return processor.decompressJpegImage(inImage, numerator, denominator, flags);
+            }
+        });
+    }
+
+    @Override
+    public ImageProcessResult decompressJpegImage(final ByteBuffer inImage, final int numerator, final int denominator, final int flags, final ImageProcessResult result) throws ImageProcessException {
+        return call(new ImageProcessTask<ImageProcessResult>() {
+            @Override
+            public ImageProcessResult call(ImageProcessor processor) throws ImageProcessException {
+                return processor.decompressJpegImage(inImage, numerator, denominator, flags, result);
+            }
+        });
+    }
+
+    @Override
+    public Map<String, Object> decompressJpegImageParallel(final byte[] inImage, final int flags) throws ImageProcessException {
+        return call(new ImageProcessTask<Map<String, Object>>() {
+            @Override
+            public Map<String, Object> call(ImageProcessor processor) throws ImageProcessException {
+                return processor.decompressJpegImageParallel(inImage, flags);
+            }
+        });
+    }
+
+    @Override
+    public Map<String, Object> decompressJpegRegion(final byte[] inImage, final Rectangle region, final int numerator, final int denominator, final int flags) throws ImageProcessException {
+        return call(new ImageProcessTask<Map<String, Object>>() {
+            @Override
+            public Map<String, Object> call(ImageProcessor processor) throws ImageProcessException {
+                return processor.decompressJpegRegion(inImage, region, numerator, denominator, flags);
+            }
+        });
+    }
+
+    @Override
+    public Map<String, Object> transcodeJpegImage(final byte[] inImage, final int numerator, final int denominator, final int quality, final int subsampling, final int flags) throws ImageProcessException {
+        return call(new ImageProcessTask<Map<String, Object>>() {
+            @Override
+            public Map<String, Object> call(ImageProcessor processor) throws ImageProcessException {
+                return processor.transcodeJpegImage(inImage, numerator, denominator, quality, subsampling, flags);
+            }
+        });
+    }
+
+    @Override
+    public ImageProcessResult transcodeJpegImage(final byte[] inImage, final int numerator, final int denominator, final int quality, final int subsampling, final int flags, final ImageProcessResult result) throws ImageProcessException {
+        return call(new ImageProcessTask<ImageProcessResult>() {
+            @Override
+            public ImageProcessResult call(ImageProcessor processor) throws ImageProcessException {
+                return processor.transcodeJpegImage(inImage, numerator, denominator, quality, subsampling, flags, result);
+            }
+        });
+    }
+
+    @Override
+    public Map<String, Object> transcodeJpegImage(final ByteBuffer inImage, final int numerator, final int denominator, final int quality, final int subsampling, final int flags) throws ImageProcessException {
+        return call(new ImageProcessTask<Map<String, Object>>() {
+            @Override
+            public Map<String, Object> call(ImageProcessor processor) throws ImageProcessException {
+                return processor.transcodeJpegImage(inImage, numerator, denominator, quality, subsampling, flags);
+            }
+        });
+    }
+
+    @Override
+    public ImageProcessResult transcodeJpegImage(final ByteBuffer inImage, final int numerator, final int denominator, final int quality, final int subsampling, final int flags, final ImageProcessResult result) throws ImageProcessException {
+        return call(new ImageProcessTask<ImageProcessResult>() {
+            @Override
+            public ImageProcessResult call(ImageProcessor processor) throws ImageProcessException {
+                return processor.transcodeJpegImage(inImage, numerator, denominator, quality, subsampling, flags, result);
+            }
+        });
+    }
+
+    @Override
+    public Map<String, Object> compressToSize(final byte[] inImage, final int maxImageSize, final int minQuality, final int maxQuality, final int subsampling, final int flags) throws ImageProcessException {
+        return call(new ImageProcessTask<Map<String, Object>>() {
+            @Override
+            public Map<String, Object> call(ImageProcessor processor) throws ImageProcessException {
+                return processor.compressToSize(inImage, maxImageSize, minQuality, maxQuality, subsampling, flags);
+            }
+        });
+    }
+
+    @Override
+    public Map<String, Object> compressAutoQuality(final byte[] inImage, final int[] qualities, final double minScore, final int subsampling, final int flags) throws ImageProcessException {
+        return call(new ImageProcessTask<Map<String, Object>>() {
+            @Override
+            public Map<String, Object> call(ImageProcessor processor) throws ImageProcessException {
+                return processor.compressAutoQuality(inImage, qualities, minScore, subsampling, flags);
+            }
+        });
+    }
+
+    @Override
+    public List<Map<String, Object>> createThumbnails(final byte[] inImage, final int[] sizes, final int quality, final int subsampling, final int flags) throws ImageProcessException {
+        return call(new ImageProcessTask<List<Map<String, Object>>>() {
+            @Override
+            public List<Map<String, Object>> call(ImageProcessor processor) throws ImageProcessException {
+                return processor.createThumbnails(inImage, sizes, quality, subsampling, flags);
+            }
+        });
+    }
+
+    @Override
+    public Map<String, Object> transformJpegImage(final byte[] inImage, final TJTransform transform, final int flags) throws ImageProcessException {
+        return call(new ImageProcessTask<Map<String, Object>>() {
+            @Override
+            public Map<String, Object> call(ImageProcessor processor) throws ImageProcessException {
+                return processor.transformJpegImage(inImage, transform, flags);
+            }
+        });
+    }
+
+    @Override
+    public List<Map<String, Object>> transformJpegImage(final byte[] inImage, final List<TJTransform> transforms, final int flags) throws ImageProcessException {
+        return call(new ImageProcessTask<List<Map<String, Object>>>() {
+            @Override
+            public List<Map<String, Object>> call(ImageProcessor processor) throws ImageProcessException {
+                return processor.transformJpegImage(inImage, transforms, flags);
+            }
+        });
+    }
+
+    @Override
+    public ImageHeader probe(final byte[] inImage) throws ImageProcessException {
+        return call(new ImageProcessTask<ImageHeader>() {
+            @Override
+            public ImageHeader call(ImageProcessor processor) throws ImageProcessException {
+                return processor.probe(inImage);
+            }
+        });
+    }
+
+    @Override
+    public ImageHeader probe(final ByteBuffer inImage) throws ImageProcessException {
+        return call(new ImageProcessTask<ImageHeader>() {
+            @Override
+            public ImageHeader call(ImageProcessor processor) throws ImageProcessException {
+                return processor.probe(inImage);
+            }
+        });
+    }
+
+    @Override
+    public ByteArrayInputStream compressGeneralImage(final BufferedImage inImage, final int quality, final int subsampling, final int flags) throws ImageProcessException {
+        return call(new ImageProcessTask<ByteArrayInputStream>() {
+            @Override
+            public ByteArrayInputStream call(ImageProcessor processor) throws ImageProcessException {
+                return processor.compressGeneralImage(inImage, quality, subsampling, flags);
+            }
+        });
+    }
+
+    @Override
+    public ByteArrayInputStream compressJpegImage(final byte[] inImage, final int width, final int height, final int quality, final int subsampling, final int flags) throws ImageProcessException {
+        return call(new ImageProcessTask<ByteArrayInputStream>() {
+            @Override
+            public ByteArrayInputStream call(ImageProcessor processor) throws ImageProcessException {
+                return processor.compressJpegImage(inImage, width, height, quality, subsampling, flags);
+            }
+        });
+    }
+
+    @Override
+    public CompressedImage compressGeneralImageDirect(final BufferedImage inImage, final int quality, final int subsampling, final int flags) throws ImageProcessException {
+        return call(new ImageProcessTask<CompressedImage>() {
+            @Override
+            public CompressedImage call(ImageProcessor processor) throws ImageProcessException {
+                return processor.compressGeneralImageDirect(inImage, quality, subsampling, flags);
+            }
+        });
+    }
+
+    @Override
+    public CompressedImage compressJpegImageDirect(final byte[] inImage, final int width, final int height, final int quality, final int subsampling, final int flags) throws ImageProcessException {
+        return call(new ImageProcessTask<CompressedImage>() {
+            @Override
+            public CompressedImage call(ImageProcessor processor) throws ImageProcessException {
+                return processor.compressJpegImageDirect(inImage, width, height, quality, subsampling, flags);
+            }
+        });
+    }
+
+    @Override
+    public ByteArrayInputStream compressJpegImageParallel(final byte[] inImage, final int width, final int height, final int quality, final int subsampling, final int flags) throws ImageProcessException {
+        return call(new ImageProcessTask<ByteArrayInputStream>() {
+            @Override
+            public ByteArrayInputStream call(ImageProcessor processor) throws ImageProcessException {
+                return processor.compressJpegImageParallel(inImage, width, height, quality, subsampling, flags);
+            }
+        });
+    }
+
+    @Override
+    public ImageBatchResult<Map<String, Object>> decompressBatch(final List<byte[]> inImages, final int numerator, final int denominator, final int flags) throws ImageProcessException {
+        return call(new ImageProcessTask<ImageBatchResult<Map<String, Object>>>() {
+            @Override
+            public ImageBatchResult<Map<String, Object>> call(ImageProcessor processor) throws ImageProcessException {
+                return processor.decompressBatch(inImages, numerator, denominator, flags);
+            }
+        });
+    }
+
+    @Override
+    public ImageBatchResult<ByteArrayInputStream> compressBatch(final List<Map<String, Object>> inImages, final int quality, final int subsampling, final int flags) throws ImageProcessException {
+        return call(new ImageProcessTask<ImageBatchResult<ByteArrayInputStream>>() {
+            @Override
+            public ImageBatchResult<ByteArrayInputStream> call(ImageProcessor processor) throws ImageProcessException {
+                return processor.compressBatch(inImages, quality, subsampling, flags);
+            }
+        });
+    }
+
+    @Override
+    public void releaseBuffer(byte[] buffer) {
+        delegate.releaseBuffer(buffer);
+    }
+
+}
@@ -0,0 +1,229 @@
+package org.libjpegturbo.turbojpeg.processor.impl;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *
+ * Cache of processed images bounded by the total weight of its values, e.g. their size in bytes.
+ *
+ * Values are evicted in the least recently used order. A new value which doesn't fit is admitted only if its
+ * key was requested more often than the keys of all the values it would evict (TinyLFU admission), so a burst
+ * of one-off requests can't flush the values requested again and again. Request frequencies are estimated by
+ * a count-min sketch of 4-bit counters, which are halved periodically to let old popularity fade away.
+ *
+ * @since version 1.1,	10/18/2026
+ *
+ * @author Dmitry Viktorov
+ *
+ */
+public class ImageOutputCache<K, V> {
+
+    private final long maxWeight;
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+    private long weight;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private final AtomicLong rejectionCount = new AtomicLong();
+
+    /**
+     * @param maxWeight       maximum total weight of the values
+     * @param expectedEntries expected number of entries, which sizes the frequency sketch
+     */
+    public ImageOutputCache(long maxWeight, int expectedEntries) {
+        if (maxWeight <= 0) {
+            throw new IllegalArgumentException("Maximum weight must be positive");
+        }
+        this.maxWeight = maxWeight;
+        this.sketch = new FrequencySketch(Math.max(16, expectedEntries));
+    }
+
+    /**
+     * Returns the value of the key or null, and counts the request of the key.
+     */
+    public synchronized V get(K key) {
+        sketch.increment(spread(key.hashCode()));
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        return entry.value;
+    }
+
+    /**
+     * Puts the value of the given weight, evicting the least recently used values if needed. Returns false if
+     * the value is heavier than the cache or its key is not requested more often than the evicted ones.
+     */
+    public synchronized boolean put(K key, V value, int valueWeight) {
+
+        if (valueWeight > maxWeight) {
+            rejectionCount.incrementAndGet();
+            return false;
+        }
+
+        Entry<V> previous = entries.remove(key);
+        if (previous != null) {
+            weight -= previous.weight;
+        }
+
+        // Victims are chosen first, so nothing is evicted if the value is not admitted
+        long excess = weight + valueWeight - maxWeight;
+        if (excess > 0) {
+            int frequency = sketch.frequency(spread(key.hashCode()));
+            List<K> victims = new ArrayList<K>();
+            Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator();
+            while (excess > 0) {
+                Map.Entry<K, Entry<V>> victim = iterator.next();
+                if (frequency <= sketch.frequency(spread(victim.getKey().hashCode()))) {
+                    rejectionCount.incrementAndGet();
+                    return false;
+                }
+                victims.add(victim.getKey());
+                excess -= victim.getValue().weight;
+            }
+            for (K victim : victims) {
+                weight -= entries.remove(victim).weight;
+                evictionCount.incrementAndGet();
+            }
+        }
+
+        entries.put(key, new Entry<V>(value, valueWeight));
+        weight += valueWeight;
+        return true;
+
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Returns the number of values evicted to admit new ones.
+     */
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * Returns the number of values which were not admitted.
+     */
+    public long getRejectionCount() {
+        return rejectionCount.get();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ImageOutputCache[size=" + entries.size() + ", weight=" + weight + "/" + maxWeight +
+                ", hits=" + hitCount + ", misses=" + missCount + ", evictions=" + evictionCount +
+                ", rejections=" + rejectionCount + "]";
+    }
+
+    private static int spread(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static final class Entry<V> {
+
+        private final V value;
+        private final int weight;
+
+        private Entry(V value, int weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+
+    }
+
+    /**
+     * Count-min sketch of 4-bit counters packed 16 to a long. Every key is counted by 4 counters and its
+     * frequency is the minimum of them. Once the number of increments reaches 10 times the width of the sketch,
+     * all the counters are halved.
+     */
+    static final class FrequencySketch {
+
+        private final static long[] SEEDS = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+        private final static long RESET_MASK = 0x7777777777777777L;
+
+        private final long[] table;
+        private final int counterMask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int expectedEntries) {
+            int counters = Integer.highestOneBit(Math.min(expectedEntries, 1 << 26) - 1) << 1;
+            table = new long[Math.max(1, counters >>> 4)];
+            counterMask = table.length * 16 - 1;
+            sampleSize = 10 * counters;
+        }
+
+        int frequency(int hash) {
+            int frequency = Integer.MAX_VALUE;
+            for (int i = 0; i < SEEDS.length; i++) {
+                int counter = indexOf(hash, i);
+                frequency = Math.min(frequency, (int) ((table[counter >>> 4] >>> ((counter & 15) << 2)) & 15));
+            }
+            return frequency;
+        }
+
+        void increment(int hash) {
+            boolean added = false;
+            for (int i = 0; i < SEEDS.length; i++) {
+                int counter = indexOf(hash, i);
+                int shift = (counter & 15) << 2;
+                if (((table[counter >>> 4] >>> shift) & 15) != 15) {
+                    table[counter >>> 4] += 1L << shift;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                reset();
+            }
+        }
+
+        private void reset() {
+            for (int i = 0; i < table.length; i++) {
+                table[i] = (table[i] >>> 1) & RESET_MASK;
+            }
+            additions /= 2;
+        }
+
+        private int indexOf(int hash, int row) {
+            long h = (hash + SEEDS[row]) * SEEDS[row];
+            h += h >>> 32;
+            return (int) h & counterMask;
+        }
+
+    }
+
+}
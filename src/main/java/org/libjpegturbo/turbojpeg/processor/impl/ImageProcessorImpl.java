@@ -1,18 +1,37 @@
 package org.libjpegturbo.turbojpeg.processor.impl;
 
 import org.libjpegturbo.turbojpeg.*;
+import org.libjpegturbo.turbojpeg.processor.api.CompressedImage;
+import org.libjpegturbo.turbojpeg.processor.api.ImageBatchResult;
+import org.libjpegturbo.turbojpeg.processor.api.ImageHeader;
 import org.libjpegturbo.turbojpeg.processor.api.ImageProcessException;
 import org.libjpegturbo.turbojpeg.processor.api.ImageProcessInfo;
+import org.libjpegturbo.turbojpeg.processor.api.ImageProcessResult;
 import org.libjpegturbo.turbojpeg.processor.api.ImageProcessor;
 
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  *
  * Implementation of JPEG compression algorithms.
  *
+ * Native compressors, decompressors and transformers are taken from bounded pools and given back after
+ * each operation, so the steady-state processing doesn't initialize and destroy native handles. JPEG
+ * destination and pixel buffers are leased from a size-class buffer pool and may be given back by
+ * {@link #releaseBuffer(byte[])}.
+ *
  * @since version 1.0,	01/06/2016
  *
  * @author Dmitry Viktorov
@@ -20,6 +39,15 @@ import java.util.Map;
  */
 public class ImageProcessorImpl implements ImageProcessor {
 
+    public final static String KEY_POOL_MAX_IDLE = "mozjpeg.processor.pool.max.idle";
+    public final static String KEY_POOL_IDLE_TIMEOUT = "mozjpeg.processor.pool.idle.timeout";
+    public final static String KEY_BUFFER_POOL_ENABLED = "mozjpeg.processor.buffer.pool.enabled";
+    public final static String KEY_BUFFER_POOL_MAX_BYTES = "mozjpeg.processor.buffer.pool.max.bytes";
+    public final static String KEY_BATCH_PARALLELISM = "mozjpeg.processor.batch.parallelism";
+
+    protected final static int YUV_PAD = 4;
+    protected final static int MIN_STRIP_HEIGHT = 256;
+
     static TJScalingFactor[] sf = null;
 
     // Retrieve scaling factors
@@ -27,6 +55,108 @@ public class ImageProcessorImpl implements ImageProcessor {
         try { sf = TJ.getScalingFactors(); } catch (Exception e) {}
     }
 
+    protected final TJHandlePool<TJCompressor> compressorPool;
+    protected final TJHandlePool<TJDecompressor> decompressorPool;
+    protected final TJHandlePool<TJTransformer> transformerPool;
+    protected final TJBufferPool bufferPool;
+
+    private volatile ForkJoinPool batchPool;
+
+    /**
+     * Creates processor with pool settings taken from system properties
+     * {@link #KEY_POOL_MAX_IDLE}, {@link #KEY_POOL_IDLE_TIMEOUT}, {@link #KEY_BUFFER_POOL_ENABLED} and
+     * {@link #KEY_BUFFER_POOL_MAX_BYTES}. Buffers are not pooled unless {@link #KEY_BUFFER_POOL_ENABLED} is true.
+     */
+    public ImageProcessorImpl() {
+        this(Integer.getInteger(KEY_POOL_MAX_IDLE, TJHandlePool.DEFAULT_MAX_IDLE),
+                Long.getLong(KEY_POOL_IDLE_TIMEOUT, TJHandlePool.DEFAULT_IDLE_TIMEOUT),
+                Boolean.getBoolean(KEY_BUFFER_POOL_ENABLED) ?
+                        new TJSizeClassBufferPool(TJSizeClassBufferPool.DEFAULT_BUFFERS_PER_CLASS,
+                                Long.getLong(KEY_BUFFER_POOL_MAX_BYTES, 0L)) : null);
+    }
+
+    /**
+     * Creates processor which doesn't pool buffers.
+     *
+     * @param poolMaxIdle           maximum number of idle native handles of each type
+     * @param poolIdleTimeoutMillis time after which an idle native handle is destroyed
+     */
+    public ImageProcessorImpl(int poolMaxIdle, long poolIdleTimeoutMillis) {
+        this(poolMaxIdle, poolIdleTimeoutMillis, null);
+    }
+
+    /**
+     * @param poolMaxIdle           maximum number of idle native handles of each type
+     * @param poolIdleTimeoutMillis time after which an idle native handle is destroyed
+     * @param bufferPool            pool of JPEG destination and pixel buffers (null disables pooling). Output
+     *                              images leased from the pool may be longer than the image, see
+     *                              {@link ImageProcessor#releaseBuffer(byte[])}
+     */
+    public ImageProcessorImpl(int poolMaxIdle, long poolIdleTimeoutMillis, TJBufferPool bufferPool) {
+        this(poolMaxIdle, poolIdleTimeoutMillis, bufferPool, null);
+    }
+
+    /**
+     * @param poolMaxIdle           maximum number of idle native handles of each type
+     * @param poolIdleTimeoutMillis time after which an idle native handle is destroyed
+     * @param bufferPool            pool of JPEG destination and pixel buffers (null disables pooling)
+     * @param batchPool             pool running the batch operations (null creates a pool of
+     *                              {@link TJWorkerThread}s on the first batch, with parallelism taken from
+     *                              {@link #KEY_BATCH_PARALLELISM}). Workers of pools created with
+     *                              {@link TJWorkerThread#FACTORY} own their native handles, other threads
+     *                              borrow them from the handle pools.
+     */
+    public ImageProcessorImpl(int poolMaxIdle, long poolIdleTimeoutMillis, TJBufferPool bufferPool, ForkJoinPool batchPool) {
+
+        this.bufferPool = bufferPool != null ? bufferPool : TJBufferPool.NONE;
+        this.batchPool = batchPool;
+
+        compressorPool = new TJHandlePool<TJCompressor>(poolMaxIdle, poolIdleTimeoutMillis) {
+            @Override
+            protected TJCompressor create() throws Exception {
+                TJCompressor compressor = new TJCompressor();
+                compressor.setBufferPool(ImageProcessorImpl.this.bufferPool);
+                return compressor;
+            }
+
+            @Override
+            protected void passivate(TJCompressor handle) throws Exception {
+                // Output of a reused MozJPEG encoder differs from the output of a new one
+                handle.reset();
+                reinitialized(handle);
+            }
+        };
+
+        decompressorPool = new TJHandlePool<TJDecompressor>(poolMaxIdle, poolIdleTimeoutMillis) {
+            @Override
+            protected TJDecompressor create() throws Exception {
+                TJDecompressor decompressor = new TJDecompressor();
+                decompressor.setBufferPool(ImageProcessorImpl.this.bufferPool);
+                return decompressor;
+            }
+
+            @Override
+            protected void passivate(TJDecompressor handle) {
+                handle.clearSourceImage();
+            }
+        };
+
+        transformerPool = new TJHandlePool<TJTransformer>(poolMaxIdle, poolIdleTimeoutMillis) {
+            @Override
+            protected TJTransformer create() throws Exception {
+                TJTransformer transformer = new TJTransformer();
+                transformer.setBufferPool(ImageProcessorImpl.this.bufferPool);
+                return transformer;
+            }
+
+            @Override
+            protected void passivate(TJTransformer handle) {
+                handle.clearSourceImage();
+            }
+        };
+
+    }
+
     @Override
     public boolean isUsable() {
         return TJ.isUsable();
@@ -38,8 +168,12 @@ public class ImageProcessorImpl implements ImageProcessor {
         checkUsable();
         checkInputImage(inImage);
 
+        TJDecompressor decompressor = null;
+
         // Create decompressor and retrieve attributes
-        try (TJDecompressor decompressor = createDecompressor(inImage, new TJTransform())) {
+        try {
+
+            decompressor = createDecompressor(inImage, new TJTransform());
 
             TJScalingFactor scaleFactor = new TJScalingFactor(numerator, denominator);
             int width = scaleFactor.getScaled(decompressor.getWidth());
@@ -51,18 +185,53 @@ public class ImageProcessorImpl implements ImageProcessor {
 
         } catch (Exception e) {
             throw new ImageProcessException(e);
+        } finally {
+            releaseDecompressor(decompressor, inImage);
         }
 
     }
 
     @Override
     public Map<String, Object> decompressJpegImage(byte[] inImage, int numerator, int denominator, int flags) throws ImageProcessException {
+        return decompressJpegImage(inImage, numerator, denominator, flags, null).toMap();
+    }
+
+    @Override
+    public Map<String, Object> decompressJpegImage(ByteBuffer inImage, int numerator, int denominator, int flags) throws ImageProcessException {
+        return decompressJpegImage(inImage, numerator, denominator, flags, null).toMap();
+    }
+
+    @Override
+    public ImageProcessResult decompressJpegImage(byte[] inImage, int numerator, int denominator, int flags, ImageProcessResult result) throws ImageProcessException {
+        checkInputImage(inImage);
+        return decompressJpegImage(inImage, inImage.length, numerator, denominator, flags, result);
+    }
+
+    @Override
+    public ImageProcessResult decompressJpegImage(ByteBuffer inImage, int numerator, int denominator, int flags, ImageProcessResult result) throws ImageProcessException {
+
+        checkInputImage(inImage);
+
+        byte[] image = leaseImage(inImage);
+        try {
+            return decompressJpegImage(image, inImage.remaining(), numerator, denominator, flags, result);
+        } finally {
+            releaseImage(inImage, image);
+        }
+
+    }
+
+    protected ImageProcessResult decompressJpegImage(byte[] inImage, int imageSize, int numerator, int denominator, int flags, ImageProcessResult result) throws ImageProcessException {
 
         checkUsable();
         checkInputImage(inImage);
 
+        TJDecompressor decompressor = null;
+
         // Create decompressor and retrieve attributes
-        try (TJDecompressor decompressor = createDecompressor(inImage, new TJTransform())) {
+        try {
+
+            decompressor = createDecompressor(inImage, imageSize, new TJTransform());
 
             TJScalingFactor scaleFactor = new TJScalingFactor(numerator, denominator);
             int width = scaleFactor.getScaled(decompressor.getWidth());
@@ -70,38 +239,1043 @@ public class ImageProcessorImpl implements ImageProcessor {
 
             byte[] bmpBuffer = decompressor.decompress(width, 0, height, TJ.PF_BGRX, flags);
 
-            ImageProcessInfo info = ImageProcessInfo.newInstance().
+            return ImageProcessResult.reuse(result).
                     setInputWidth(width).setInputHeight(height).
                     setOutputWidth(width).setOutputHeight(height).
                     setOutputImage(bmpBuffer).
                     setOutputImageSize(decompressor.getJPEGSize());
 
+        } catch (Exception e) {
+            throw new ImageProcessException(e);
+        } finally {
+            releaseDecompressor(decompressor, inImage);
+        }
+
+    }
+
+    @Override
+    public Map<String, Object> decompressJpegRegion(byte[] inImage, Rectangle region, int numerator, int denominator, int flags) throws ImageProcessException {
+
+        checkUsable();
+        checkInputImage(inImage);
+        if (region == null || region.isEmpty()) {
+            throw new ImageProcessException("Region can't be null or empty");
+        }
+
+        TJTransformer transformer = null;
+        TJDecompressor decompressor = null;
+        byte[] jpegBuf = null;
+        byte[] bmpBuffer = null;
+
+        try {
+
+            transformer = borrow(transformerPool);
+            transformer.setSourceImage(inImage, inImage.length);
+            int inWidth = transformer.getWidth();
+            int inHeight = transformer.getHeight();
+            if (region.x < 0 || region.y < 0 || region.x + region.width > inWidth || region.y + region.height > inHeight) {
+                throw new ImageProcessException("Region " + region + " exceeds the " + inWidth + "x" + inHeight + " image");
+            }
+
+            // Only the area enclosing the region from the nearest MCU boundary is losslessly cropped
+            int mcuWidth = TJ.getMCUWidth(transformer.getSubsamp());
+            int mcuHeight = TJ.getMCUHeight(transformer.getSubsamp());
+            int cropX = region.x / mcuWidth * mcuWidth;
+            int cropY = region.y / mcuHeight * mcuHeight;
+            int cropWidth = region.x + region.width - cropX;
+            int cropHeight = region.y + region.height - cropY;
+
+            decompressor = borrow(decompressorPool);
+            if (cropX == 0 && cropY == 0 && cropWidth == inWidth && cropHeight == inHeight) {
+                decompressor.setSourceImage(inImage, inImage.length);
+            } else {
+                TJTransform transform = new TJTransform(cropX, cropY, cropWidth, cropHeight, TJTransform.OP_NONE, TJTransform.OPT_CROP, null);
+                byte[][] dstBufs = new byte[][] { jpegBuf = bufferPool.lease(getTransformedBufSize(transformer, transform)) };
+                transformer.transform(dstBufs, new TJTransform[] { transform }, 0);
+                decompressor.setSourceImage(jpegBuf, transformer.getTransformedSizes()[0]);
+            }
+            release(transformerPool, transformer);
+            transformer = null;
+
+            TJScalingFactor scaleFactor = new TJScalingFactor(numerator, denominator);
+            int scaledWidth = scaleFactor.getScaled(cropWidth);
+            int scaledHeight = scaleFactor.getScaled(cropHeight);
+            int pixelSize = TJ.getPixelSize(TJ.PF_BGRX);
+            bmpBuffer = bufferPool.lease(scaledWidth * pixelSize * scaledHeight);
+            decompressor.decompress(bmpBuffer, 0, 0, scaledWidth, 0, scaledHeight, TJ.PF_BGRX, flags);
+
+            // The pixels left of and above the region are trimmed in place
+            int offsetX = (region.x - cropX) * scaleFactor.getNum() / scaleFactor.getDenom();
+            int offsetY = (region.y - cropY) * scaleFactor.getNum() / scaleFactor.getDenom();
+            int width = Math.min(scaleFactor.getScaled(region.width), scaledWidth - offsetX);
+            int height = Math.min(scaleFactor.getScaled(region.height), scaledHeight - offsetY);
+            if (offsetX != 0 || offsetY != 0 || width != scaledWidth) {
+                for (int y = 0; y < height; y++) {
+                    System.arraycopy(bmpBuffer, ((offsetY + y) * scaledWidth + offsetX) * pixelSize,
+                            bmpBuffer, y * width * pixelSize, width * pixelSize);
+                }
+            }
+
+            ImageProcessInfo info = ImageProcessInfo.newInstance().
+                    setInputWidth(inWidth).setInputHeight(inHeight).
+                    setOutputWidth(width).setOutputHeight(height).
+                    setOutputImage(bmpBuffer).
+                    setOutputImageSize(width * pixelSize * height);
+            bmpBuffer = null;
+
+            return info.toMap();
+
+        } catch (Exception e) {
+            throw e instanceof ImageProcessException ? (ImageProcessException) e : new ImageProcessException(e);
+        } finally {
+            release(transformerPool, transformer);
+            release(decompressorPool, decompressor);
+            bufferPool.release(jpegBuf);
+            bufferPool.release(bmpBuffer);
+        }
+
+    }
+
+    @Override
+    public Map<String, Object> decompressJpegImageParallel(byte[] inImage, int flags) throws ImageProcessException {
+        checkInputImage(inImage);
+        return decompressJpegImageParallel(inImage, getBatchPool().getParallelism(), flags);
+    }
+
+    /**
+     * Decompresses the image in at most <code>strips</code> horizontal strips of at least
+     * {@link #MIN_STRIP_HEIGHT} rows, falling back to a single decompression if the image is too small.
+     */
+    protected Map<String, Object> decompressJpegImageParallel(byte[] inImage, int strips, int flags) throws ImageProcessException {
+
+        checkUsable();
+        checkInputImage(inImage);
+
+        TJTransformer transformer = null;
+        TJTransform[] transforms = null;
+        byte[][] stripBufs = null;
+        byte[] bmpBuffer = null;
+
+        try {
+
+            transformer = borrow(transformerPool);
+            transformer.setSourceImage(inImage, inImage.length);
+
+            final int width = transformer.getWidth();
+            final int height = transformer.getHeight();
+            int mcuHeight = TJ.getMCUHeight(transformer.getSubsamp());
+
+            // Strip heights are rounded up to whole MCU rows, so every strip is a lossless crop
+            int stripHeight = Math.max(MIN_STRIP_HEIGHT, (height + strips - 1) / Math.max(1, strips));
+            stripHeight = (stripHeight + mcuHeight - 1) / mcuHeight * mcuHeight;
+            int count = (height + stripHeight - 1) / stripHeight;
+            if (count <= 1) {
+                release(transformerPool, transformer);
+                transformer = null;
+                return decompressJpegImage(inImage, inImage.length, 1, 1, flags, null).toMap();
+            }
+
+            // All the strips are cropped in a single pass over the source coefficients
+            transforms = new TJTransform[count];
+            stripBufs = new byte[count][];
+            for (int i = 0; i < count; i++) {
+                int y = i * stripHeight;
+                transforms[i] = new TJTransform(0, y, width, Math.min(stripHeight, height - y), TJTransform.OP_NONE, TJTransform.OPT_CROP, null);
+                stripBufs[i] = bufferPool.lease(getTransformedBufSize(transformer, transforms[i]));
+            }
+            transformer.transform(stripBufs, transforms, 0);
+            final int[] stripSizes = transformer.getTransformedSizes();
+            release(transformerPool, transformer);
+            transformer = null;
+
+            // Every strip is decompressed in place into its own rows of the output image
+            final int pitch = width * TJ.getPixelSize(TJ.PF_BGRX);
+            final byte[] dstBuf = bufferPool.lease(pitch * height);
+            bmpBuffer = dstBuf;
+            final TJTransform[] stripTransforms = transforms;
+            final byte[][] stripImages = stripBufs;
+            final int stripFlags = flags;
+            List<Integer> indexes = new ArrayList<Integer>(count);
+            for (int i = 0; i < count; i++) {
+                indexes.add(i);
+            }
+
+            ImageBatchResult<Boolean> results = processBatch(indexes, new BatchOperation<Integer, Boolean>() {
+                @Override
+                public Boolean process(Integer index) throws ImageProcessException {
+                    TJDecompressor decompressor = null;
+                    try {
+                        decompressor = borrow(decompressorPool);
+                        decompressor.setSourceImage(stripImages[index], stripSizes[index]);
+                        TJTransform strip = stripTransforms[index];
+                        decompressor.decompress(dstBuf, 0, strip.y, width, pitch, strip.height, TJ.PF_BGRX, stripFlags);
+                        return Boolean.TRUE;
+                    } catch (Exception e) {
+                        throw new ImageProcessException(e);
+                    } finally {
+                        release(decompressorPool, decompressor);
+                    }
+                }
+            });
+            for (int i = 0; i < count; i++) {
+                if (results.isFailed(i)) {
+                    throw results.getFailure(i);
+                }
+            }
+
+            ImageProcessInfo info = ImageProcessInfo.newInstance().
+                    setInputWidth(width).setInputHeight(height).
+                    setOutputWidth(width).setOutputHeight(height).
+                    setOutputImage(dstBuf).
+                    setOutputImageSize(inImage.length);
+            bmpBuffer = null;
+
+            return info.toMap();
+
+        } catch (Exception e) {
+            throw e instanceof ImageProcessException ? (ImageProcessException) e : new ImageProcessException(e);
+        } finally {
+            release(transformerPool, transformer);
+            bufferPool.release(bmpBuffer);
+            if (stripBufs != null) {
+                for (byte[] stripBuf : stripBufs) {
+                    bufferPool.release(stripBuf);
+                }
+            }
+        }
+
+    }
+
+    @Override
+    public Map<String, Object> transcodeJpegImage(byte[] inImage, int numerator, int denominator, int quality, int subsampling, int flags) throws ImageProcessException {
+        return transcodeJpegImage(inImage, numerator, denominator, quality, subsampling, flags, null).toMap();
+    }
+
+    @Override
+    public Map<String, Object> transcodeJpegImage(ByteBuffer inImage, int numerator, int denominator, int quality, int subsampling, int flags) throws ImageProcessException {
+        return transcodeJpegImage(inImage, numerator, denominator, quality, subsampling, flags, null).toMap();
+    }
+
+    @Override
+    public ImageProcessResult transcodeJpegImage(byte[] inImage, int numerator, int denominator, int quality, int subsampling, int flags, ImageProcessResult result) throws ImageProcessException {
+        checkInputImage(inImage);
+        return transcodeJpegImage(inImage, inImage.length, numerator, denominator, quality, subsampling, flags, result);
+    }
+
+    @Override
+    public ImageProcessResult transcodeJpegImage(ByteBuffer inImage, int numerator, int denominator, int quality, int subsampling, int flags, ImageProcessResult result) throws ImageProcessException {
+
+        checkInputImage(inImage);
+
+        byte[] image = leaseImage(inImage);
+        try {
+            return transcodeJpegImage(image, inImage.remaining(), numerator, denominator, quality, subsampling, flags, result);
+        } finally {
+            releaseImage(inImage, image);
+        }
+
+    }
+
+    protected ImageProcessResult transcodeJpegImage(byte[] inImage, int imageSize, int numerator, int denominator, int quality, int subsampling, int flags, ImageProcessResult result) throws ImageProcessException {
+
+        checkUsable();
+        checkInputImage(inImage);
+
+        TJDecompressor decompressor = null;
+        TJCompressor compressor = null;
+        byte[] buffer = null;
+
+        try {
+
+            decompressor = createDecompressor(inImage, imageSize, new TJTransform());
+            compressor = createCompressor(quality, subsampling);
+
+            TJScalingFactor scaleFactor = new TJScalingFactor(numerator, denominator);
+            int width = scaleFactor.getScaled(decompressor.getWidth());
+            int height = scaleFactor.getScaled(decompressor.getHeight());
+
+            if (isYUVTranscodable(decompressor, subsampling)) {
+
+                // Planes are decoded with the subsampling of the image, which is the target one or the target
+                // is grayscale, for which only the luminance plane is compressed
+                int scaledWidth = decompressor.getScaledWidth(width, height);
+                height = decompressor.getScaledHeight(width, height);
+                width = scaledWidth;
+                int yuvSubsamp = decompressor.getSubsamp();
+                buffer = bufferPool.lease(TJ.bufSizeYUV(width, YUV_PAD, height, yuvSubsamp));
+                YUVImage yuvImage = new YUVImage(buffer, width, YUV_PAD, height, yuvSubsamp);
+                decompressor.decompressToYUV(yuvImage, flags);
+
+                if (yuvSubsamp != subsampling) {
+                    yuvImage = new YUVImage(new byte[][] { yuvImage.getPlanes()[0] }, new int[] { yuvImage.getOffsets()[0] },
+                            width, new int[] { yuvImage.getStrides()[0] }, height, TJ.SAMP_GRAY);
+                }
+                compressor.setSourceImage(yuvImage);
+
+            } else {
+                buffer = decompressor.decompress(width, 0, height, TJ.PF_BGRX, flags);
+                compressor.setSourceImage(buffer, 0, 0, width, 0, height, TJ.PF_BGRX);
+            }
+
+            byte[] data = compressor.compress(flags);
+
+            return ImageProcessResult.reuse(result).
+                    setInputWidth(decompressor.getWidth()).setInputHeight(decompressor.getHeight()).
+                    setOutputWidth(width).setOutputHeight(height).
+                    setOutputImage(data).
+                    setOutputImageSize(compressor.getCompressedSize());
+
+        } catch (Exception e) {
+            throw new ImageProcessException(e);
+        } finally {
+            // The compressor drops its reference to the intermediate buffer first
+            release(compressorPool, compressor);
+            bufferPool.release(buffer);
+            releaseDecompressor(decompressor, inImage);
+        }
+
+    }
+
+    @Override
+    public Map<String, Object> compressToSize(byte[] inImage, int maxImageSize, int minQuality, int maxQuality, int subsampling, int flags) throws ImageProcessException {
+
+        checkUsable();
+        checkInputImage(inImage);
+        if (maxImageSize <= 0 || minQuality < 1 || maxQuality > 100 || minQuality > maxQuality) {
+            throw new ImageProcessException("Invalid image size or quality range: " + maxImageSize + ", " + minQuality + "-" + maxQuality);
+        }
+
+        TJDecompressor decompressor = null;
+        TJCompressor compressor = null;
+        byte[] buffer = null;
+        byte[] data = null;
+
+        try {
+
+            decompressor = createDecompressor(inImage, new TJTransform());
+            compressor = createCompressor(maxQuality, subsampling);
+
+            int width = decompressor.getWidth();
+            int height = decompressor.getHeight();
+
+            // The image is decoded once and every iteration only recompresses it
+            if (isYUVTranscodable(decompressor, subsampling)) {
+                int yuvSubsamp = decompressor.getSubsamp();
+                buffer = bufferPool.lease(TJ.bufSizeYUV(width, YUV_PAD, height, yuvSubsamp));
+                YUVImage yuvImage = new YUVImage(buffer, width, YUV_PAD, height, yuvSubsamp);
+                decompressor.decompressToYUV(yuvImage, flags);
+                if (yuvSubsamp != subsampling) {
+                    yuvImage = new YUVImage(new byte[][] { yuvImage.getPlanes()[0] }, new int[] { yuvImage.getOffsets()[0] },
+                            width, new int[] { yuvImage.getStrides()[0] }, height, TJ.SAMP_GRAY);
+                }
+                compressor.setSourceImage(yuvImage);
+            } else {
+                buffer = decompressor.decompress(width, 0, height, TJ.PF_BGRX, flags);
+                compressor.setSourceImage(buffer, 0, 0, width, 0, height, TJ.PF_BGRX);
+            }
+
+            // Bisection for the highest quality which fits, the maximum quality is tried first as it often does.
+            // If even the minimum quality doesn't fit, its output is returned.
+            int low = minQuality;
+            int high = maxQuality;
+            int quality = maxQuality;
+            int dataQuality = 0;
+            int dataSize = 0;
+            int iterations = 0;
+
+            while (low <= high) {
+
+                compressor.setJPEGQuality(quality);
+                byte[] output = compressor.compress(flags);
+                int size = compressor.getCompressedSize();
+                iterations++;
+
+                if (size <= maxImageSize || (quality == minQuality && data == null)) {
+                    bufferPool.release(data);
+                    data = output;
+                    dataQuality = quality;
+                    dataSize = size;
+                } else {
+                    bufferPool.release(output);
+                }
+
+                if (size <= maxImageSize) {
+                    low = quality + 1;
+                } else {
+                    high = quality - 1;
+                }
+                quality = (low + high) >>> 1;
+
+            }
+
+            ImageProcessInfo info = ImageProcessInfo.newInstance().
+                    setInputWidth(width).setInputHeight(height).
+                    setOutputWidth(width).setOutputHeight(height).
+                    setOutputImage(data).
+                    setOutputImageSize(dataSize).
+                    setQuality(dataQuality).
+                    setIterations(iterations);
+            data = null;
+
+            return info.toMap();
+
+        } catch (Exception e) {
+            throw new ImageProcessException(e);
+        } finally {
+            // The compressor drops its reference to the intermediate buffer first
+            release(compressorPool, compressor);
+            bufferPool.release(buffer);
+            bufferPool.release(data);
+            releaseDecompressor(decompressor, inImage);
+        }
+
+    }
+
+    @Override
+    public Map<String, Object> compressAutoQuality(byte[] inImage, int[] qualities, double minScore, final int subsampling, final int flags) throws ImageProcessException {
+
+        checkUsable();
+        checkInputImage(inImage);
+        if (qualities == null || qualities.length == 0) {
+            throw new ImageProcessException("Candidate qualities can't be null or empty");
+        }
+        List<Integer> candidates = new ArrayList<Integer>(qualities.length);
+        for (int quality : qualities) {
+            if (quality < 1 || quality > 100) {
+                throw new ImageProcessException("Invalid candidate quality: " + quality);
+            }
+            candidates.add(quality);
+        }
+
+        TJDecompressor decompressor = null;
+        byte[] refBuffer = null;
+        byte[] buffer = null;
+        ImageBatchResult<Map<String, Object>> results = null;
+
+        try {
+
+            // The luminance plane of the decoded source is the reference for the candidates
+            decompressor = createDecompressor(inImage, new TJTransform());
+            final int width = decompressor.getWidth();
+            final int height = decompressor.getHeight();
+            int refSubsamp = decompressor.getSubsamp();
+            refBuffer = bufferPool.lease(TJ.bufSizeYUV(width, YUV_PAD, height, refSubsamp));
+            final YUVImage refImage = new YUVImage(refBuffer, width, YUV_PAD, height, refSubsamp);
+            decompressor.decompressToYUV(refImage, flags);
+
+            final YUVImage yuvSource;
+            final byte[] pixelSource;
+            if (isYUVTranscodable(decompressor, subsampling)) {
+                yuvSource = refSubsamp != subsampling ? new YUVImage(new byte[][] { refImage.getPlanes()[0] },
+                        new int[] { refImage.getOffsets()[0] }, width, new int[] { refImage.getStrides()[0] }, height, TJ.SAMP_GRAY) : refImage;
+                pixelSource = null;
+            } else {
+                yuvSource = null;
+                buffer = decompressor.decompress(width, 0, height, TJ.PF_BGRX, flags);
+                pixelSource = buffer;
+            }
+            releaseDecompressor(decompressor, inImage);
+            decompressor = null;
+
+            // Candidates are compressed and scored in parallel, the source is shared read-only
+            results = processBatch(candidates, new BatchOperation<Integer, Map<String, Object>>() {
+                @Override
+                public Map<String, Object> process(Integer quality) throws ImageProcessException {
+                    return compressCandidate(yuvSource, pixelSource, width, height, refImage, quality, subsampling, flags);
+                }
+            });
+
+            // The smallest candidate which reaches the score, or the best scored one if none does
+            Map<String, Object> chosen = null;
+            ImageProcessInfo chosenInfo = null;
+            for (Map<String, Object> result : results.getResults()) {
+                if (result == null) {
+                    continue;
+                }
+                ImageProcessInfo info = ImageProcessInfo.fromMap(result);
+                boolean better;
+                if (chosenInfo == null) {
+                    better = true;
+                } else if (info.getScore() >= minScore) {
+                    better = chosenInfo.getScore() < minScore || info.getOutputImageSize() < chosenInfo.getOutputImageSize();
+                } else {
+                    better = chosenInfo.getScore() < minScore && info.getScore() > chosenInfo.getScore();
+                }
+                if (better) {
+                    chosen = result;
+                    chosenInfo = info;
+                }
+            }
+            if (chosen == null) {
+                throw results.getFailure(0);
+            }
+
+            ImageProcessInfo info = ImageProcessInfo.newInstance().
+                    setInputWidth(width).setInputHeight(height).
+                    setOutputWidth(chosenInfo.getOutputWidth()).setOutputHeight(chosenInfo.getOutputHeight()).
+                    setOutputImage(chosenInfo.getOutputImage()).
+                    setOutputImageSize(chosenInfo.getOutputImageSize()).
+                    setQuality(chosenInfo.getQuality()).
+                    setIterations(candidates.size()).
+                    setScore(chosenInfo.getScore());
+            for (Map<String, Object> result : results.getResults()) {
+                if (result != null && result != chosen) {
+                    bufferPool.release(ImageProcessInfo.fromMap(result).getOutputImage());
+                }
+            }
+            results = null;
+
             return info.toMap();
 
+        } catch (Exception e) {
+            if (results != null) {
+                for (Map<String, Object> result : results.getResults()) {
+                    if (result != null) {
+                        bufferPool.release(ImageProcessInfo.fromMap(result).getOutputImage());
+                    }
+                }
+            }
+            throw e instanceof ImageProcessException ? (ImageProcessException) e : new ImageProcessException(e);
+        } finally {
+            bufferPool.release(buffer);
+            bufferPool.release(refBuffer);
+            releaseDecompressor(decompressor, inImage);
+        }
+
+    }
+
+    /**
+     * Compresses the source with the candidate quality and scores the result against the luminance plane
+     * of the reference image.
+     */
+    protected Map<String, Object> compressCandidate(YUVImage yuvSource, byte[] pixelSource, int width, int height,
+                                                    YUVImage refImage, int quality, int subsampling, int flags) throws ImageProcessException {
+
+        TJCompressor compressor = null;
+        TJDecompressor decompressor = null;
+        byte[] data = null;
+        byte[] buffer = null;
+
+        try {
+
+            compressor = createCompressor(quality, subsampling);
+            if (yuvSource != null) {
+                compressor.setSourceImage(yuvSource);
+            } else {
+                compressor.setSourceImage(pixelSource, 0, 0, width, 0, height, TJ.PF_BGRX);
+            }
+            data = compressor.compress(flags);
+            int size = compressor.getCompressedSize();
+
+            decompressor = borrow(decompressorPool);
+            decompressor.setSourceImage(data, size);
+            int subsamp = decompressor.getSubsamp();
+            buffer = bufferPool.lease(TJ.bufSizeYUV(width, YUV_PAD, height, subsamp));
+            YUVImage image = new YUVImage(buffer, width, YUV_PAD, height, subsamp);
+            decompressor.decompressToYUV(image, flags);
+
+            double score = ssim(refImage.getPlanes()[0], refImage.getOffsets()[0], refImage.getStrides()[0],
+                    image.getPlanes()[0], image.getOffsets()[0], image.getStrides()[0], width, height);
+
+            ImageProcessInfo info = ImageProcessInfo.newInstance().
+                    setInputWidth(width).setInputHeight(height).
+                    setOutputWidth(width).setOutputHeight(height).
+                    setOutputImage(data).
+                    setOutputImageSize(size).
+                    setQuality(quality).
+                    setIterations(1).
+                    setScore(score);
+            data = null;
+
+            return info.toMap();
+
+        } catch (Exception e) {
+            throw new ImageProcessException(e);
+        } finally {
+            release(compressorPool, compressor);
+            release(decompressorPool, decompressor);
+            bufferPool.release(buffer);
+            bufferPool.release(data);
+        }
+
+    }
+
+    /**
+     * Returns the mean structural similarity (SSIM) of two 8-bit planes, computed over non-overlapping
+     * 8x8 windows. The score is 1 for identical planes and decreases with the visible distortion.
+     */
+    protected static double ssim(byte[] a, int aOffset, int aStride, byte[] b, int bOffset, int bStride, int width, int height) {
+
+        final double c1 = (0.01 * 255) * (0.01 * 255);
+        final double c2 = (0.03 * 255) * (0.03 * 255);
+
+        double total = 0;
+        int windows = 0;
+
+        for (int y = 0; y < height; y += 8) {
+            int windowHeight = Math.min(8, height - y);
+            for (int x = 0; x < width; x += 8) {
+                int windowWidth = Math.min(8, width - x);
+
+                long sumA = 0, sumB = 0, sumAA = 0, sumBB = 0, sumAB = 0;
+                for (int wy = 0; wy < windowHeight; wy++) {
+                    int ia = aOffset + (y + wy) * aStride + x;
+                    int ib = bOffset + (y + wy) * bStride + x;
+                    for (int wx = 0; wx < windowWidth; wx++) {
+                        int pa = a[ia + wx] & 0xff;
+                        int pb = b[ib + wx] & 0xff;
+                        sumA += pa;
+                        sumB += pb;
+                        sumAA += pa * pa;
+                        sumBB += pb * pb;
+                        sumAB += pa * pb;
+                    }
+                }
+
+                double n = windowWidth * windowHeight;
+                double meanA = sumA / n;
+                double meanB = sumB / n;
+                double varA = sumAA / n - meanA * meanA;
+                double varB = sumBB / n - meanB * meanB;
+                double cov = sumAB / n - meanA * meanB;
+
+                total += ((2 * meanA * meanB + c1) * (2 * cov + c2)) /
+                        ((meanA * meanA + meanB * meanB + c1) * (varA + varB + c2));
+                windows++;
+            }
+        }
+
+        return windows > 0 ? total / windows : 1;
+
+    }
+
+    /**
+     * Returns true if the image may be recompressed with the given subsampling from its planar YUV
+     * representation, i.e. without YCbCr to RGB to YCbCr conversion.
+     */
+    protected static boolean isYUVTranscodable(TJDecompressor decompressor, int subsampling) throws Exception {
+        int colorspace = decompressor.getColorspace();
+        if (colorspace != TJ.CS_YCbCr && colorspace != TJ.CS_GRAY) {
+            return false;
+        }
+        return decompressor.getSubsamp() == subsampling || subsampling == TJ.SAMP_GRAY;
+    }
+
+    @Override
+    public List<Map<String, Object>> createThumbnails(byte[] inImage, int[] sizes, int quality, int subsampling, int flags) throws ImageProcessException {
+
+        checkUsable();
+        checkInputImage(inImage);
+        if (sizes == null || sizes.length == 0) {
+            throw new ImageProcessException("Thumbnail sizes can't be null or empty");
+        }
+
+        // Levels are derived from the largest to the smallest one
+        Integer[] order = new Integer[sizes.length];
+        for (int i = 0; i < sizes.length; i++) {
+            if (sizes[i] <= 0) {
+                throw new ImageProcessException("Thumbnail size must be positive: " + sizes[i]);
+            }
+            order[i] = i;
+        }
+        final int[] levelSizes = sizes;
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer i1, Integer i2) {
+                return levelSizes[i2] - levelSizes[i1];
+            }
+        });
+
+        TJDecompressor decompressor = null;
+        TJCompressor compressor = null;
+        byte[] buffer = null;
+        byte[] levelBuffer = null;
+        List<Map<String, Object>> results = new ArrayList<Map<String, Object>>(Collections.<Map<String, Object>>nCopies(sizes.length, null));
+
+        try {
+
+            decompressor = createDecompressor(inImage, new TJTransform());
+            compressor = createCompressor(quality, subsampling);
+
+            int inWidth = decompressor.getWidth();
+            int inHeight = decompressor.getHeight();
+
+            // Single decode at the smallest DCT scale which still covers the largest level
+            int maxSize = sizes[order[0]];
+            int width = getThumbnailWidth(inWidth, inHeight, maxSize);
+            int height = getThumbnailHeight(inWidth, inHeight, maxSize);
+            TJScalingFactor scaleFactor = getCoveringScalingFactor(inWidth, inHeight, width, height);
+            width = scaleFactor.getScaled(inWidth);
+            height = scaleFactor.getScaled(inHeight);
+            buffer = decompressor.decompress(width, 0, height, TJ.PF_BGRX, flags);
+
+            for (int index : order) {
+
+                int levelWidth = getThumbnailWidth(inWidth, inHeight, sizes[index]);
+                int levelHeight = getThumbnailHeight(inWidth, inHeight, sizes[index]);
+
+                // Every level is box filtered from the previous, larger one
+                if (levelWidth != width || levelHeight != height) {
+                    levelBuffer = bufferPool.lease(levelWidth * levelHeight * 4);
+                    downsample(buffer, width, height, levelBuffer, levelWidth, levelHeight);
+                    bufferPool.release(buffer);
+                    buffer = levelBuffer;
+                    levelBuffer = null;
+                    width = levelWidth;
+                    height = levelHeight;
+                }
+
+                compressor.setSourceImage(buffer, 0, 0, width, 0, height, TJ.PF_BGRX);
+                byte[] data = compressor.compress(flags);
+
+                results.set(index, ImageProcessInfo.newInstance().
+                        setInputWidth(inWidth).setInputHeight(inHeight).
+                        setOutputWidth(width).setOutputHeight(height).
+                        setOutputImage(data).
+                        setOutputImageSize(compressor.getCompressedSize()).toMap());
+
+            }
+
+            return results;
+
+        } catch (Exception e) {
+            for (Map<String, Object> result : results) {
+                if (result != null) {
+                    bufferPool.release(ImageProcessInfo.fromMap(result).getOutputImage());
+                }
+            }
+            throw e instanceof ImageProcessException ? (ImageProcessException) e : new ImageProcessException(e);
+        } finally {
+            // The compressor drops its reference to the intermediate buffers first
+            release(compressorPool, compressor);
+            bufferPool.release(buffer);
+            bufferPool.release(levelBuffer);
+            releaseDecompressor(decompressor, inImage);
+        }
+
+    }
+
+    @Override
+    public Map<String, Object> transformJpegImage(byte[] inImage, TJTransform transform, int flags) throws ImageProcessException {
+        if (transform == null) {
+            throw new ImageProcessException("Transform can't be null");
+        }
+        return transformJpegImage(inImage, new TJTransform[] { transform }, flags).get(0);
+    }
+
+    @Override
+    public List<Map<String, Object>> transformJpegImage(byte[] inImage, List<TJTransform> transforms, int flags) throws ImageProcessException {
+        if (transforms == null || transforms.isEmpty() || transforms.contains(null)) {
+            throw new ImageProcessException("Transforms can't be null or empty");
+        }
+        return transformJpegImage(inImage, transforms.toArray(new TJTransform[transforms.size()]), flags);
+    }
+
+    /**
+     * Losslessly transforms the image by all the transforms in one native call, so the source coefficients are
+     * read only once. The transforms are validated before any buffer is leased, and the transformed images are
+     * leased from the buffer pool.
+     */
+    protected List<Map<String, Object>> transformJpegImage(byte[] inImage, TJTransform[] transforms, int flags) throws ImageProcessException {
+
+        checkUsable();
+        checkInputImage(inImage);
+
+        TJTransformer transformer = null;
+        TJDecompressor decompressor = null;
+        byte[][] dstBufs = new byte[transforms.length][];
+
+        try {
+
+            transformer = borrow(transformerPool);
+            transformer.setSourceImage(inImage, inImage.length);
+            for (int i = 0; i < transforms.length; i++) {
+                checkTransform(transformer, transforms[i], i);
+            }
+            for (int i = 0; i < transforms.length; i++) {
+                dstBufs[i] = bufferPool.lease(getTransformedBufSize(transformer, transforms[i]));
+            }
+
+            transformer.transform(dstBufs, transforms, flags);
+            int[] sizes = transformer.getTransformedSizes();
+
+            // Only the headers of the transformed images are read to report their dimensions
+            decompressor = borrow(decompressorPool);
+            List<Map<String, Object>> results = new ArrayList<Map<String, Object>>(transforms.length);
+            for (int i = 0; i < transforms.length; i++) {
+                ImageProcessInfo info = ImageProcessInfo.newInstance().
+                        setInputWidth(transformer.getWidth()).setInputHeight(transformer.getHeight()).
+                        setOutputImage(dstBufs[i]).
+                        setOutputImageSize(sizes[i]);
+                if (sizes[i] > 0) {
+                    decompressor.setSourceImage(dstBufs[i], sizes[i]);
+                    info.setOutputWidth(decompressor.getWidth()).setOutputHeight(decompressor.getHeight());
+                }
+                results.add(info.toMap());
+            }
+            return results;
+
+        } catch (Exception e) {
+            for (byte[] dstBuf : dstBufs) {
+                bufferPool.release(dstBuf);
+            }
+            throw e instanceof ImageProcessException ? (ImageProcessException) e : new ImageProcessException(e);
+        } finally {
+            release(decompressorPool, decompressor);
+            release(transformerPool, transformer);
+        }
+
+    }
+
+    @Override
+    public ImageHeader probe(byte[] inImage) throws ImageProcessException {
+        checkInputImage(inImage);
+        return probe(inImage, inImage.length);
+    }
+
+    @Override
+    public ImageHeader probe(ByteBuffer inImage) throws ImageProcessException {
+
+        checkInputImage(inImage);
+
+        byte[] image = leaseImage(inImage);
+        try {
+            return probe(image, inImage.remaining());
+        } finally {
+            releaseImage(inImage, image);
+        }
+
+    }
+
+    protected ImageHeader probe(byte[] inImage, int imageSize) throws ImageProcessException {
+
+        checkUsable();
+
+        TJDecompressor decompressor = null;
+
+        try {
+
+            // Associating the image reads only its header
+            decompressor = borrow(decompressorPool);
+            decompressor.setSourceImage(inImage, imageSize);
+
+            return new ImageHeader(decompressor.getWidth(), decompressor.getHeight(),
+                    decompressor.getSubsamp(), decompressor.getColorspace());
+
         } catch (Exception e) {
             throw new ImageProcessException(e);
+        } finally {
+            release(decompressorPool, decompressor);
         }
 
     }
 
     @Override
     public ByteArrayInputStream compressGeneralImage(BufferedImage inImage, int quality, int subsampling, int flags) throws ImageProcessException {
-        return compressImage(inImage, 0, 0, quality, subsampling, flags);
+        return compressImage(inImage, 0, 0, quality, subsampling, flags).toInputStream();
     }
 
     @Override
     public ByteArrayInputStream compressJpegImage(byte[] inImage, int width, int height, int quality, int subsampling, int flags) throws ImageProcessException {
+        return compressImage(inImage, width, height, quality, subsampling, flags).toInputStream();
+    }
+
+    @Override
+    public CompressedImage compressGeneralImageDirect(BufferedImage inImage, int quality, int subsampling, int flags) throws ImageProcessException {
+        return compressImage(inImage, 0, 0, quality, subsampling, flags);
+    }
+
+    @Override
+    public CompressedImage compressJpegImageDirect(byte[] inImage, int width, int height, int quality, int subsampling, int flags) throws ImageProcessException {
         return compressImage(inImage, width, height, quality, subsampling, flags);
     }
 
-    protected static ByteArrayInputStream compressImage(Object inImage, int width, int height, int quality, int subsampling, int flags) throws ImageProcessException {
+    @Override
+    public ByteArrayInputStream compressJpegImageParallel(byte[] inImage, int width, int height, int quality, int subsampling, int flags) throws ImageProcessException {
+        return compressJpegImageParallel(inImage, width, height, quality, subsampling, getBatchPool().getParallelism(), flags).toInputStream();
+    }
+
+    /**
+     * Compresses the image in at most <code>strips</code> horizontal strips of at least
+     * {@link #MIN_STRIP_HEIGHT} rows, which are joined by {@link TJStripWriter} if the native encoder produces
+     * baseline strips, or re-encoded into one baseline image by {@link TJStripEncoder} otherwise. Falls back to
+     * a single compression if the image is too small or the strips can't be joined.
+     */
+    protected CompressedImage compressJpegImageParallel(byte[] inImage, final int width, int height, final int quality,
+                                                        final int subsampling, int strips, final int flags) throws ImageProcessException {
+
+        checkUsable();
+        checkInputImage(inImage);
+
+        ImageBatchResult<Map<String, Object>> results = null;
+
+        try {
+
+            // Strip heights are whole MCU rows, and a strip must fit the restart interval
+            int mcuWidth = TJ.getMCUWidth(subsampling);
+            int mcuHeight = TJ.getMCUHeight(subsampling);
+            int mcusPerRow = (width + mcuWidth - 1) / mcuWidth;
+            int stripHeight = Math.max(MIN_STRIP_HEIGHT, (height + strips - 1) / Math.max(1, strips));
+            stripHeight = Math.min((stripHeight + mcuHeight - 1) / mcuHeight, TJStripWriter.MAX_RESTART_INTERVAL / mcusPerRow) * mcuHeight;
+            int count = stripHeight > 0 ? (height + stripHeight - 1) / stripHeight : 0;
+            if (count <= 1) {
+                return compressImage(inImage, width, height, quality, subsampling, flags);
+            }
+
+            final byte[] image = inImage;
+            final int[] stripY = new int[count];
+            final int[] stripHeights = new int[count];
+            List<Integer> indexes = new ArrayList<Integer>(count);
+            for (int i = 0; i < count; i++) {
+                stripY[i] = i * stripHeight;
+                stripHeights[i] = Math.min(stripHeight, height - stripY[i]);
+                indexes.add(i);
+            }
+
+            results = processBatch(indexes, new BatchOperation<Integer, Map<String, Object>>() {
+                @Override
+                public Map<String, Object> process(Integer index) throws ImageProcessException {
+                    return compressStrip(image, width, stripY[index], stripHeights[index], quality, subsampling, flags);
+                }
+            });
+            checkBatch(results);
+
+            byte[][] stripImages = new byte[count][];
+            int[] stripSizes = new int[count];
+            for (int i = 0; i < count; i++) {
+                ImageProcessInfo info = ImageProcessInfo.fromMap(results.get(i));
+                stripImages[i] = info.getOutputImage();
+                stripSizes[i] = info.getOutputImageSize();
+            }
+            int restartInterval = mcusPerRow * (stripHeight / mcuHeight);
+
+            TJStripWriter writer = new TJStripWriter(stripImages, stripSizes);
+            if (writer.isJoinable()) {
+                byte[] data = bufferPool.lease(writer.getJoinedSize());
+                int size = writer.write(height, restartInterval, data);
+                return new CompressedImage(data, 0, size, width, height, quality, subsampling, this);
+            }
+
+            final TJStripEncoder encoder = new TJStripEncoder(stripImages, stripSizes);
+            if (!encoder.isEncodable()) {
+                return compressImage(inImage, width, height, quality, subsampling, flags);
+            }
+
+            // Coefficients of the strips are read and then encoded concurrently with the tables of all the strips
+            checkBatch(processBatch(indexes, new BatchOperation<Integer, Boolean>() {
+                @Override
+                public Boolean process(Integer index) throws ImageProcessException {
+                    TJTransformer transformer = null;
+                    try {
+                        transformer = borrow(transformerPool);
+                        encoder.decode(index, transformer, bufferPool);
+                        return Boolean.TRUE;
+                    } catch (Exception e) {
+                        throw new ImageProcessException(e);
+                    } finally {
+                        release(transformerPool, transformer);
+                    }
+                }
+            }));
+            encoder.buildTables();
+            checkBatch(processBatch(indexes, new BatchOperation<Integer, Boolean>() {
+                @Override
+                public Boolean process(Integer index) {
+                    encoder.encode(index);
+                    return Boolean.TRUE;
+                }
+            }));
+
+            byte[] data = bufferPool.lease(encoder.getEncodedSize());
+            int size = encoder.write(height, restartInterval, data);
+
+            return new CompressedImage(data, 0, size, width, height, quality, subsampling, this);
+
+        } catch (Exception e) {
+            throw e instanceof ImageProcessException ? (ImageProcessException) e : new ImageProcessException(e);
+        } finally {
+            if (results != null) {
+                for (Map<String, Object> result : results.getResults()) {
+                    if (result != null) {
+                        bufferPool.release(ImageProcessInfo.fromMap(result).getOutputImage());
+                    }
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Compresses the rows of the image from <code>y</code> as a separate image. The result holds the compressed
+     * strip in a buffer of the pool.
+     */
+    protected Map<String, Object> compressStrip(byte[] image, int width, int y, int height, int quality, int subsampling, int flags) throws ImageProcessException {
+        TJCompressor compressor = null;
+        try {
+            compressor = createCompressor(quality, subsampling);
+            compressor.setSourceImage(image, 0, y, width, width * 4, height, TJ.PF_BGRX);
+            byte[] data = compressor.compress(flags);
+            return ImageProcessInfo.newInstance().setOutputImage(data).
+                    setOutputImageSize(compressor.getCompressedSize()).toMap();
+        } catch (Exception e) {
+            throw new ImageProcessException(e);
+        } finally {
+            release(compressorPool, compressor);
+        }
+    }
+
+    /**
+     * Throws the failure of the first failed image of the batch, if any.
+     */
+    private static void checkBatch(ImageBatchResult<?> results) throws ImageProcessException {
+        for (int i = 0; i < results.size(); i++) {
+            if (results.isFailed(i)) {
+                throw results.getFailure(i);
+            }
+        }
+    }
+
+    @Override
+    public ImageBatchResult<Map<String, Object>> decompressBatch(List<byte[]> inImages, final int numerator, final int denominator, final int flags) throws ImageProcessException {
+        return processBatch(inImages, new BatchOperation<byte[], Map<String, Object>>() {
+            @Override
+            public Map<String, Object> process(byte[] inImage) throws ImageProcessException {
+                return decompressJpegImage(inImage, numerator, denominator, flags);
+            }
+        });
+    }
+
+    @Override
+    public ImageBatchResult<ByteArrayInputStream> compressBatch(List<Map<String, Object>> inImages, final int quality, final int subsampling, final int flags) throws ImageProcessException {
+        return processBatch(inImages, new BatchOperation<Map<String, Object>, ByteArrayInputStream>() {
+            @Override
+            public ByteArrayInputStream process(Map<String, Object> inImage) throws ImageProcessException {
+                checkInputImage(inImage);
+                ImageProcessInfo info = ImageProcessInfo.fromMap(inImage);
+                return compressJpegImage(info.getOutputImage(), info.getOutputWidth(), info.getOutputHeight(), quality, subsampling, flags);
+            }
+        });
+    }
+
+    @Override
+    public void releaseBuffer(byte[] buffer) {
+        bufferPool.release(buffer);
+    }
+
+    protected CompressedImage compressImage(Object inImage, int width, int height, int quality, int subsampling, int flags) throws ImageProcessException {
 
         checkUsable();
         checkInputImage(inImage);
 
-        try (TJCompressor compressor = createCompressor(quality, subsampling)) {
+        TJCompressor compressor = null;
+
+        try {
+
+            compressor = createCompressor(quality, subsampling);
 
             if (inImage instanceof BufferedImage) {
+                width = ((BufferedImage) inImage).getWidth();
+                height = ((BufferedImage) inImage).getHeight();
                 compressor.setSourceImage((BufferedImage) inImage, 0, 0, 0, 0);
             } else {
                 compressor.setSourceImage((byte[]) inImage, 0, 0, width, 0, height, TJ.PF_BGRX);
@@ -110,44 +1284,318 @@ public class ImageProcessorImpl implements ImageProcessor {
             byte[] data = compressor.compress(flags);
             int size = compressor.getCompressedSize();
 
-            return new ByteArrayInputStream(data, 0, size);
+            return new CompressedImage(data, 0, size, width, height, quality, subsampling, this);
 
         } catch (Exception e) {
             throw new ImageProcessException(e);
+        } finally {
+            release(compressorPool, compressor);
         }
 
     }
 
-    protected static TJDecompressor createDecompressor(byte[] image, TJTransform transform) throws Exception {
+    protected TJDecompressor createDecompressor(byte[] image, TJTransform transform) throws Exception {
+        return createDecompressor(image, image.length, transform);
+    }
 
-        TJDecompressor decompressor = null;
+    /**
+     * Returns a pooled decompressor associated with the first <code>imageSize</code> bytes of the image,
+     * or with its transformed copy if the transformation is needed. The decompressor must be given back by
+     * {@link #releaseDecompressor(TJDecompressor, byte[])}.
+     */
+    protected TJDecompressor createDecompressor(byte[] image, int imageSize, TJTransform transform) throws Exception {
 
-        // If transformation is needed
-        if (transform.op != TJTransform.OP_NONE || transform.options != 0 || transform.cf != null) {
+        TJDecompressor decompressor = borrow(decompressorPool);
 
-            TJTransform[] transforms = new TJTransform[1];
-            transforms[0] = transform;
-            transforms[0].options |= TJTransform.OPT_TRIM;
+        try {
 
-            TJTransformer transformer = new TJTransformer(image);
-            TJDecompressor[] decompressors = transformer.transform(transforms, 0);
-            decompressor = decompressors[0];
+            // If transformation is needed
+            if (transform.op != TJTransform.OP_NONE || transform.options != 0 || transform.cf != null) {
 
-        } else {
-            decompressor = new TJDecompressor(image);
+                TJTransform[] transforms = new TJTransform[1];
+                transforms[0] = transform;
+                transforms[0].options |= TJTransform.OPT_TRIM;
+
+                TJTransformer transformer = borrow(transformerPool);
+                try {
+                    transformer.setSourceImage(image, imageSize);
+                    byte[][] dstBufs = new byte[][] { bufferPool.lease(getTransformedBufSize(transformer, transform)) };
+                    try {
+                        transformer.transform(dstBufs, transforms, 0);
+                        decompressor.setSourceImage(dstBufs[0], transformer.getTransformedSizes()[0]);
+                    } catch (Exception e) {
+                        bufferPool.release(dstBufs[0]);
+                        throw e;
+                    }
+                } finally {
+                    release(transformerPool, transformer);
+                }
+
+            } else {
+                decompressor.setSourceImage(image, imageSize);
+            }
+
+        } catch (Exception e) {
+            release(decompressorPool, decompressor);
+            throw e;
         }
 
         return decompressor;
 
     }
 
-    protected static TJCompressor createCompressor(int quality, int subsamp) throws Exception {
-        TJCompressor compressor = new TJCompressor();
-        compressor.setJPEGQuality(quality);
-        compressor.setSubsamp(subsamp);
+    /**
+     * Gives the decompressor back to the pool. If the decompressor is associated with a transformed copy
+     * of the input image, the copy is given back to the buffer pool.
+     */
+    protected void releaseDecompressor(TJDecompressor decompressor, byte[] inImage) {
+        if (decompressor == null) {
+            return;
+        }
+        try {
+            byte[] jpegBuf = decompressor.getJPEGBuf();
+            if (jpegBuf != inImage) {
+                bufferPool.release(jpegBuf);
+            }
+        } catch (Exception e) {}
+        release(decompressorPool, decompressor);
+    }
+
+    /**
+     * Returns a pooled compressor with the given quality and subsampling. The compressor must be given
+     * back by {@link #release(TJHandlePool, AutoCloseable)}.
+     */
+    protected TJCompressor createCompressor(int quality, int subsamp) throws Exception {
+        TJCompressor compressor = borrow(compressorPool);
+        try {
+            compressor.setJPEGQuality(quality);
+            compressor.setSubsamp(subsamp);
+        } catch (RuntimeException e) {
+            release(compressorPool, compressor);
+            throw e;
+        }
         return compressor;
     }
 
+    /**
+     * Runs the operation for every input image in the batch pool. The results are collected in the order
+     * of the input images, and failed images don't stop the batch.
+     */
+    @SuppressWarnings("unchecked")
+    protected <I, T> ImageBatchResult<T> processBatch(List<I> inImages, BatchOperation<I, T> operation) throws ImageProcessException {
+
+        checkUsable();
+        if (inImages == null) {
+            throw new ImageProcessException("Input images can't be null");
+        }
+
+        List<I> images = (inImages instanceof RandomAccess) ? inImages : new ArrayList<I>(inImages);
+        T[] results = (T[]) new Object[images.size()];
+        ImageProcessException[] failures = new ImageProcessException[images.size()];
+
+        if (!images.isEmpty()) {
+            getBatchPool().invoke(new BatchTask<I, T>(images, operation, results, failures, 0, images.size()));
+        }
+
+        return new ImageBatchResult<T>(results, failures);
+
+    }
+
+    /**
+     * Returns the pool running the batch operations, creating it on the first call if it wasn't given to
+     * the constructor.
+     */
+    public ForkJoinPool getBatchPool() {
+        ForkJoinPool pool = batchPool;
+        if (pool == null) {
+            synchronized (this) {
+                pool = batchPool;
+                if (pool == null) {
+                    int parallelism = Integer.getInteger(KEY_BATCH_PARALLELISM, Runtime.getRuntime().availableProcessors());
+                    batchPool = pool = new ForkJoinPool(parallelism, TJWorkerThread.FACTORY, null, false);
+                }
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * Returns a native handle, which is owned by the current thread if it's a {@link TJWorkerThread}, or
+     * borrowed from the pool otherwise.
+     */
+    protected <T extends AutoCloseable> T borrow(TJHandlePool<T> pool) throws Exception {
+        TJWorkerThread worker = TJWorkerThread.current();
+        return worker != null ? worker.borrow(pool) : pool.borrow();
+    }
+
+    protected <T extends AutoCloseable> void release(TJHandlePool<T> pool, T handle) {
+        TJWorkerThread worker = TJWorkerThread.current();
+        if (worker == null || !worker.release(pool, handle)) {
+            pool.release(handle);
+        }
+    }
+
+    /**
+     * Returns the array backing the buffer if the image starts at its beginning, or a copy of the image
+     * leased from the buffer pool otherwise, since the native library accepts only arrays. The result must
+     * be given back by {@link #releaseImage(ByteBuffer, byte[])}.
+     */
+    protected byte[] leaseImage(ByteBuffer inImage) {
+        if (inImage.hasArray() && inImage.arrayOffset() + inImage.position() == 0) {
+            return inImage.array();
+        }
+        byte[] image = bufferPool.lease(inImage.remaining());
+        inImage.duplicate().get(image, 0, inImage.remaining());
+        return image;
+    }
+
+    protected void releaseImage(ByteBuffer inImage, byte[] image) {
+        if (!inImage.hasArray() || inImage.array() != image) {
+            bufferPool.release(image);
+        }
+    }
+
+    /**
+     * Returns the width of the image scaled to fit the <code>size</code> x <code>size</code> box, the image
+     * is never upscaled.
+     */
+    protected static int getThumbnailWidth(int width, int height, int size) {
+        int max = Math.max(width, height);
+        return max <= size ? width : Math.max(1, (int) ((long) width * size / max));
+    }
+
+    protected static int getThumbnailHeight(int width, int height, int size) {
+        int max = Math.max(width, height);
+        return max <= size ? height : Math.max(1, (int) ((long) height * size / max));
+    }
+
+    /**
+     * Returns the supported scaling factor with the smallest scaled image which is still at least
+     * <code>minWidth</code> x <code>minHeight</code>.
+     */
+    protected static TJScalingFactor getCoveringScalingFactor(int width, int height, int minWidth, int minHeight) throws Exception {
+        TJScalingFactor result = new TJScalingFactor(1, 1);
+        for (TJScalingFactor scaleFactor : TJ.getScalingFactors()) {
+            int scaledWidth = scaleFactor.getScaled(width);
+            int scaledHeight = scaleFactor.getScaled(height);
+            if (scaledWidth >= minWidth && scaledHeight >= minHeight && scaledWidth < result.getScaled(width)) {
+                result = scaleFactor;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Downsamples the BGRX image with a box filter: every destination pixel is the average of the source
+     * pixels it covers. The destination image must not be larger than the source one.
+     */
+    protected static void downsample(byte[] src, int srcWidth, int srcHeight, byte[] dst, int dstWidth, int dstHeight) {
+
+        int[] xFrom = new int[dstWidth + 1];
+        for (int x = 0; x <= dstWidth; x++) {
+            xFrom[x] = (int) ((long) x * srcWidth / dstWidth);
+        }
+
+        int[] sums = new int[dstWidth * 3];
+        int dstOffset = 0;
+        for (int y = 0; y < dstHeight; y++) {
+
+            int yFrom = (int) ((long) y * srcHeight / dstHeight);
+            int yTo = Math.max(yFrom + 1, (int) ((long) (y + 1) * srcHeight / dstHeight));
+
+            Arrays.fill(sums, 0);
+            for (int sy = yFrom; sy < yTo; sy++) {
+                int rowOffset = sy * srcWidth * 4;
+                for (int x = 0; x < dstWidth; x++) {
+                    int xTo = Math.max(xFrom[x] + 1, xFrom[x + 1]);
+                    int b = 0, g = 0, r = 0;
+                    for (int i = rowOffset + xFrom[x] * 4, end = rowOffset + xTo * 4; i < end; i += 4) {
+                        b += src[i] & 0xff;
+                        g += src[i + 1] & 0xff;
+                        r += src[i + 2] & 0xff;
+                    }
+                    sums[x * 3] += b;
+                    sums[x * 3 + 1] += g;
+                    sums[x * 3 + 2] += r;
+                }
+            }
+
+            int rows = yTo - yFrom;
+            for (int x = 0; x < dstWidth; x++) {
+                int count = rows * (Math.max(xFrom[x] + 1, xFrom[x + 1]) - xFrom[x]);
+                int half = count >> 1;
+                dst[dstOffset++] = (byte) ((sums[x * 3] + half) / count);
+                dst[dstOffset++] = (byte) ((sums[x * 3 + 1] + half) / count);
+                dst[dstOffset++] = (byte) ((sums[x * 3 + 2] + half) / count);
+                dst[dstOffset++] = (byte) 0xff;
+            }
+
+        }
+
+    }
+
+    /**
+     * Checks that the crop region of the transform is aligned to the iMCU boundaries of the transformed image and
+     * lies within it, so an invalid transform is reported before any native work is done.
+     */
+    protected static void checkTransform(TJTransformer transformer, TJTransform transform, int index) throws Exception {
+
+        if ((transform.options & TJTransform.OPT_CROP) == 0) {
+            return;
+        }
+
+        boolean transposed = transform.op == TJTransform.OP_TRANSPOSE || transform.op == TJTransform.OP_TRANSVERSE ||
+                transform.op == TJTransform.OP_ROT90 || transform.op == TJTransform.OP_ROT270;
+        int subsamp = (transform.options & TJTransform.OPT_GRAY) != 0 ? TJ.SAMP_GRAY : transformer.getSubsamp();
+        int mcuWidth = transposed ? TJ.getMCUHeight(subsamp) : TJ.getMCUWidth(subsamp);
+        int mcuHeight = transposed ? TJ.getMCUWidth(subsamp) : TJ.getMCUHeight(subsamp);
+        int width = transposed ? transformer.getHeight() : transformer.getWidth();
+        int height = transposed ? transformer.getWidth() : transformer.getHeight();
+
+        if (transform.x < 0 || transform.y < 0 || transform.width < 0 || transform.height < 0) {
+            throw new ImageProcessException("Transform " + index + ": crop region can't be negative");
+        }
+        if (transform.x % mcuWidth != 0 || transform.y % mcuHeight != 0) {
+            throw new ImageProcessException("Transform " + index + ": crop x must be a multiple of " + mcuWidth +
+                    " and y a multiple of " + mcuHeight);
+        }
+        if (transform.x + transform.width > width || transform.y + transform.height > height) {
+            throw new ImageProcessException("Transform " + index + ": crop region exceeds the " +
+                    width + "x" + height + " transformed image");
+        }
+
+    }
+
+    protected static int getTransformedBufSize(TJTransformer transformer, TJTransform transform) throws Exception {
+        int width = transformer.getWidth();
+        int height = transformer.getHeight();
+        if ((transform.options & TJTransform.OPT_CROP) != 0) {
+            if (transform.width != 0) width = transform.width;
+            if (transform.height != 0) height = transform.height;
+        }
+        return TJ.bufSize(width, height, transformer.getSubsamp());
+    }
+
+    /**
+     * Returns the pool of compressors. Released compressors are re-initialized, so its hits reuse only the Java
+     * wrappers, see {@link TJHandlePool#getReinitCount()}.
+     */
+    public TJHandlePool<TJCompressor> getCompressorPool() {
+        return compressorPool;
+    }
+
+    public TJHandlePool<TJDecompressor> getDecompressorPool() {
+        return decompressorPool;
+    }
+
+    public TJHandlePool<TJTransformer> getTransformerPool() {
+        return transformerPool;
+    }
+
+    public TJBufferPool getBufferPool() {
+        return bufferPool;
+    }
+
     protected static void checkUsable() throws ImageProcessException {
         if (!TJ.isUsable()) {
             throw new ImageProcessException("Native library can't be used at the current platform");
@@ -160,4 +1608,53 @@ public class ImageProcessorImpl implements ImageProcessor {
         }
     }
 
+    protected interface BatchOperation<I, T> {
+
+        T process(I inImage) throws ImageProcessException;
+
+    }
+
+    /**
+     * Splits the batch in halves until single images are left, so idle workers may steal the halves.
+     */
+    protected static class BatchTask<I, T> extends RecursiveAction {
+
+        private final static long serialVersionUID = 1L;
+
+        private final List<I> images;
+        private final BatchOperation<I, T> operation;
+        private final T[] results;
+        private final ImageProcessException[] failures;
+        private final int from;
+        private final int to;
+
+        protected BatchTask(List<I> images, BatchOperation<I, T> operation, T[] results,
+                            ImageProcessException[] failures, int from, int to) {
+            this.images = images;
+            this.operation = operation;
+            this.results = results;
+            this.failures = failures;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new BatchTask<I, T>(images, operation, results, failures, from, middle),
+                        new BatchTask<I, T>(images, operation, results, failures, middle, to));
+                return;
+            }
+            try {
+                results[from] = operation.process(images.get(from));
+            } catch (ImageProcessException e) {
+                failures[from] = e;
+            } catch (RuntimeException e) {
+                failures[from] = new ImageProcessException(e);
+            }
+        }
+
+    }
+
 }
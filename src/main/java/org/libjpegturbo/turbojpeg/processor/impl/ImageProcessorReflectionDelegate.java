@@ -1,15 +1,25 @@
 package org.libjpegturbo.turbojpeg.processor.impl;
 
+import org.libjpegturbo.turbojpeg.TJTransform;
+import org.libjpegturbo.turbojpeg.processor.api.CompressedImage;
+import org.libjpegturbo.turbojpeg.processor.api.ImageBatchResult;
+import org.libjpegturbo.turbojpeg.processor.api.ImageHeader;
 import org.libjpegturbo.turbojpeg.processor.api.ImageProcessException;
+import org.libjpegturbo.turbojpeg.processor.api.ImageProcessResult;
 import org.libjpegturbo.turbojpeg.processor.api.ImageProcessor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.InputStream;
-import java.lang.reflect.Method;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -17,6 +27,9 @@ import java.util.Map;
  * Delegate that by default calls ImageProcessorImpl. It may be useful at places where direct code is
  * not available, e.g. OSGi bundle.
  *
+ * The methods of the implementation are bound to method handles once, so a call costs about as much as
+ * a direct call of the implementation.
+ *
  * @since version 1.0,	01/23/2016
  *
  * @author Dmitry Viktorov
@@ -27,31 +40,70 @@ public class ImageProcessorReflectionDelegate implements ImageProcessor {
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     private Object compressor;
-    private Method isUsable;
-    private Method compressGeneral;
-    private Method compressJpeg;
-    private Method decompressGeneral;
-    private Method decompressJpeg;
+    private final MethodHandle isUsable;
+    private final MethodHandle compressGeneral;
+    private final MethodHandle compressJpeg;
+    private final MethodHandle compressJpegParallel;
+    private final MethodHandle compressGeneralDirect;
+    private final MethodHandle compressJpegDirect;
+    private final MethodHandle decompressGeneral;
+    private final MethodHandle decompressJpeg;
+    private final MethodHandle decompressJpegResult;
+    private final MethodHandle decompressJpegBuffer;
+    private final MethodHandle decompressJpegBufferResult;
+    private final MethodHandle decompressJpegParallel;
+    private final MethodHandle decompressJpegRegion;
+    private final MethodHandle releaseBuffer;
+    private final MethodHandle probe;
+    private final MethodHandle probeBuffer;
+    private final MethodHandle decompressBatch;
+    private final MethodHandle compressBatch;
+    private final MethodHandle transcodeJpeg;
+    private final MethodHandle transcodeJpegResult;
+    private final MethodHandle transcodeJpegBuffer;
+    private final MethodHandle transcodeJpegBufferResult;
+    private final MethodHandle transformJpeg;
+    private final MethodHandle transformJpegMulti;
+    private final MethodHandle createThumbnails;
+    private final MethodHandle compressToSize;
+    private final MethodHandle compressAutoQuality;
 
     protected boolean usable = true;
 
     public ImageProcessorReflectionDelegate(String implClassName) {
-        try {
 
-            // Bind methods from impl.
-            Class clazz = Class.forName(implClassName);
-            compressor = clazz.newInstance();
+        // Bind methods from impl.
+        compressor = newInstance(implClassName);
+        Class<?> clazz = compressor != null ? compressor.getClass() : null;
 
-            isUsable = clazz.getDeclaredMethod(METHOD_IS_USABLE);
-            compressGeneral = clazz.getDeclaredMethod(METHOD_COMPRESS_GENERAL, BufferedImage.class, int.class, int.class, int.class);
-            compressJpeg = clazz.getDeclaredMethod(METHOD_COMPRESS_JPEG, byte[].class, int.class, int.class, int.class, int.class, int.class);
-            decompressGeneral = clazz.getDeclaredMethod(METHOD_DECOMPRESS_GENERAL, byte[].class, int.class, int.class, int.class);
-            decompressJpeg = clazz.getDeclaredMethod(METHOD_DECOMPRESS_JPEG, byte[].class, int.class, int.class, int.class);
+        isUsable = bind(clazz, boolean.class, METHOD_IS_USABLE);
+        compressGeneral = bind(clazz, ByteArrayInputStream.class, METHOD_COMPRESS_GENERAL, BufferedImage.class, int.class, int.class, int.class);
+        compressJpeg = bind(clazz, ByteArrayInputStream.class, METHOD_COMPRESS_JPEG, byte[].class, int.class, int.class, int.class, int.class, int.class);
+        compressJpegParallel = bind(clazz, ByteArrayInputStream.class, METHOD_COMPRESS_JPEG_PARALLEL, byte[].class, int.class, int.class, int.class, int.class, int.class);
+        compressGeneralDirect = bind(clazz, CompressedImage.class, METHOD_COMPRESS_GENERAL_DIRECT, BufferedImage.class, int.class, int.class, int.class);
+        compressJpegDirect = bind(clazz, CompressedImage.class, METHOD_COMPRESS_JPEG_DIRECT, byte[].class, int.class, int.class, int.class, int.class, int.class);
+        decompressGeneral = bind(clazz, BufferedImage.class, METHOD_DECOMPRESS_GENERAL, byte[].class, int.class, int.class, int.class);
+        decompressJpeg = bind(clazz, Map.class, METHOD_DECOMPRESS_JPEG, byte[].class, int.class, int.class, int.class);
+        decompressJpegResult = bind(clazz, ImageProcessResult.class, METHOD_DECOMPRESS_JPEG, byte[].class, int.class, int.class, int.class, ImageProcessResult.class);
+        decompressJpegBuffer = bind(clazz, Map.class, METHOD_DECOMPRESS_JPEG, ByteBuffer.class, int.class, int.class, int.class);
+        decompressJpegBufferResult = bind(clazz, ImageProcessResult.class, METHOD_DECOMPRESS_JPEG, ByteBuffer.class, int.class, int.class, int.class, ImageProcessResult.class);
+        decompressJpegParallel = bind(clazz, Map.class, METHOD_DECOMPRESS_JPEG_PARALLEL, byte[].class, int.class);
+        decompressJpegRegion = bind(clazz, Map.class, METHOD_DECOMPRESS_JPEG_REGION, byte[].class, Rectangle.class, int.class, int.class, int.class);
+        releaseBuffer = bind(clazz, void.class, METHOD_RELEASE_BUFFER, byte[].class);
+        probe = bind(clazz, ImageHeader.class, METHOD_PROBE, byte[].class);
+        probeBuffer = bind(clazz, ImageHeader.class, METHOD_PROBE, ByteBuffer.class);
+        decompressBatch = bind(clazz, ImageBatchResult.class, METHOD_DECOMPRESS_BATCH, List.class, int.class, int.class, int.class);
+        compressBatch = bind(clazz, ImageBatchResult.class, METHOD_COMPRESS_BATCH, List.class, int.class, int.class, int.class);
+        transcodeJpeg = bind(clazz, Map.class, METHOD_TRANSCODE_JPEG, byte[].class, int.class, int.class, int.class, int.class, int.class);
+        transcodeJpegResult = bind(clazz, ImageProcessResult.class, METHOD_TRANSCODE_JPEG, byte[].class, int.class, int.class, int.class, int.class, int.class, ImageProcessResult.class);
+        transcodeJpegBuffer = bind(clazz, Map.class, METHOD_TRANSCODE_JPEG, ByteBuffer.class, int.class, int.class, int.class, int.class, int.class);
+        transcodeJpegBufferResult = bind(clazz, ImageProcessResult.class, METHOD_TRANSCODE_JPEG, ByteBuffer.class, int.class, int.class, int.class, int.class, int.class, ImageProcessResult.class);
+        transformJpeg = bind(clazz, Map.class, METHOD_TRANSFORM_JPEG, byte[].class, TJTransform.class, int.class);
+        transformJpegMulti = bind(clazz, List.class, METHOD_TRANSFORM_JPEG, byte[].class, List.class, int.class);
+        createThumbnails = bind(clazz, List.class, METHOD_CREATE_THUMBNAILS, byte[].class, int[].class, int.class, int.class, int.class);
+        compressToSize = bind(clazz, Map.class, METHOD_COMPRESS_TO_SIZE, byte[].class, int.class, int.class, int.class, int.class, int.class);
+        compressAutoQuality = bind(clazz, Map.class, METHOD_COMPRESS_AUTO_QUALITY, byte[].class, int[].class, double.class, int.class, int.class);
 
-        } catch (Exception e) {
-            log.error("Couldn't not create instance of " + COMPRESSOR_DEFAULT_IMPL, e);
-            setUnusable();
-        }
     }
 
     public ImageProcessorReflectionDelegate() {
@@ -59,34 +111,60 @@ public class ImageProcessorReflectionDelegate implements ImageProcessor {
     }
 
     /**
-     * Clear all unnecessary fields if implementation is not usable.
+     * Looks up the public method of the implementation and binds it to the implementation instance. Bound
+     * handles are called by {@link MethodHandle#invokeExact}, which neither boxes the arguments nor wraps
+     * the exceptions of the implementation. Returns null if the implementation is not usable or lacks
+     * the method, so calling the method throws {@link ImageProcessException}.
+     */
+    protected MethodHandle bind(Class<?> clazz, Class<?> returnType, String name, Class<?>... parameterTypes) {
+        if (!usable || clazz == null) {
+            return null;
+        }
+        try {
+            return MethodHandles.publicLookup().findVirtual(clazz, name, MethodType.methodType(returnType, parameterTypes)).bindTo(compressor);
+        } catch (ReflectiveOperationException e) {
+            log.error("Couldn't bind method " + name + " of " + clazz.getName(), e);
+            setUnusable();
+            return null;
+        }
+    }
+
+    private Object newInstance(String implClassName) {
+        try {
+            return Class.forName(implClassName).newInstance();
+        } catch (Exception e) {
+            log.error("Couldn't not create instance of " + COMPRESSOR_DEFAULT_IMPL, e);
+            setUnusable();
+            return null;
+        }
+    }
+
+    /**
+     * Clear all unnecessary fields if implementation is not usable. Methods are not bound anymore, and
+     * the delegate reports the implementation as not usable.
      */
     protected void setUnusable() {
         usable = false;
         compressor = null;
-        isUsable = null;
-        compressGeneral = null;
-        compressJpeg = null;
-        decompressGeneral = null;
-        decompressJpeg = null;
     }
 
     @Override
     public boolean isUsable() {
         try {
             if (compressor != null && isUsable != null) {
-                Object result = isUsable.invoke(compressor);
-                return result instanceof Boolean && ((Boolean) result) == true;
+                return (boolean) isUsable.invokeExact();
             }
-        } catch (Exception e) {}
+        } catch (Throwable e) {}
         return false;
     }
 
     @Override
     public ByteArrayInputStream compressGeneralImage(BufferedImage inImage, int quality, int subsampling, int flags) throws ImageProcessException {
         try {
-            return (ByteArrayInputStream) compressGeneral.invoke(compressor, inImage, quality, subsampling, flags);
-        } catch (Exception e) {
+            return (ByteArrayInputStream) compressGeneral.invokeExact(inImage, quality, subsampling, flags);
+        } catch (ImageProcessException e) {
+            throw e;
+        } catch (Throwable e) {
             throw new ImageProcessException(e);
         }
     }
@@ -94,8 +172,43 @@ public class ImageProcessorReflectionDelegate implements ImageProcessor {
     @Override
     public ByteArrayInputStream compressJpegImage(byte[] inImage, int width, int height, int quality, int subsampling, int flags) throws ImageProcessException {
         try {
-            return (ByteArrayInputStream) compressJpeg.invoke(compressor, inImage, width, height, quality, subsampling, flags);
-        } catch (Exception e) {
+            return (ByteArrayInputStream) compressJpeg.invokeExact(inImage, width, height, quality, subsampling, flags);
+        } catch (ImageProcessException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new ImageProcessException(e);
+        }
+    }
+
+    @Override
+    public CompressedImage compressGeneralImageDirect(BufferedImage inImage, int quality, int subsampling, int flags) throws ImageProcessException {
+        try {
+            return (CompressedImage) compressGeneralDirect.invokeExact(inImage, quality, subsampling, flags);
+        } catch (ImageProcessException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new ImageProcessException(e);
+        }
+    }
+
+    @Override
+    public CompressedImage compressJpegImageDirect(byte[] inImage, int width, int height, int quality, int subsampling, int flags) throws ImageProcessException {
+        try {
+            return (CompressedImage) compressJpegDirect.invokeExact(inImage, width, height, quality, subsampling, flags);
+        } catch (ImageProcessException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new ImageProcessException(e);
+        }
+    }
+
+    @Override
+    public ByteArrayInputStream compressJpegImageParallel(byte[] inImage, int width, int height, int quality, int subsampling, int flags) throws ImageProcessException {
+        try {
+            return (ByteArrayInputStream) compressJpegParallel.invokeExact(inImage, width, height, quality, subsampling, flags);
+        } catch (ImageProcessException e) {
+            throw e;
+        } catch (Throwable e) {
             throw new ImageProcessException(e);
         }
     }
@@ -103,8 +216,10 @@ public class ImageProcessorReflectionDelegate implements ImageProcessor {
     @Override
     public BufferedImage decompressGeneralImage(byte[] inImage, int numerator, int denominator, int flags) throws ImageProcessException {
         try {
-            return (BufferedImage) decompressGeneral.invoke(compressor, inImage, numerator, denominator, flags);
-        } catch (Exception e) {
+            return (BufferedImage) decompressGeneral.invokeExact(inImage, numerator, denominator, flags);
+        } catch (ImageProcessException e) {
+            throw e;
+        } catch (Throwable e) {
             throw new ImageProcessException(e);
         }
     }
@@ -112,10 +227,219 @@ public class ImageProcessorReflectionDelegate implements ImageProcessor {
     @Override
     public Map<String, Object> decompressJpegImage(byte[] inImage, int numerator, int denominator, int flags) throws ImageProcessException {
         try {
-            return (Map<String, Object>) decompressJpeg.invoke(compressor, inImage, numerator, denominator, flags);
-        } catch (Exception e) {
+            return (Map<String, Object>) decompressJpeg.invokeExact(inImage, numerator, denominator, flags);
+        } catch (ImageProcessException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new ImageProcessException(e);
+        }
+    }
+
+    @Override
+    public ImageProcessResult decompressJpegImage(byte[] inImage, int numerator, int denominator, int flags, ImageProcessResult result) throws ImageProcessException {
+        try {
+            return (ImageProcessResult) decompressJpegResult.invokeExact(inImage, numerator, denominator, flags, result);
+        } catch (ImageProcessException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new ImageProcessException(e);
+        }
+    }
+
+    @Override
+    public Map<String, Object> decompressJpegImage(ByteBuffer inImage, int numerator, int denominator, int flags) throws ImageProcessException {
+        try {
+            return (Map<String, Object>) decompressJpegBuffer.invokeExact(inImage, numerator, denominator, flags);
+        } catch (ImageProcessException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new ImageProcessException(e);
+        }
+    }
+
+    @Override
+    public ImageProcessResult decompressJpegImage(ByteBuffer inImage, int numerator, int denominator, int flags, ImageProcessResult result) throws ImageProcessException {
+        try {
+            return (ImageProcessResult) decompressJpegBufferResult.invokeExact(inImage, numerator, denominator, flags, result);
+        } catch (ImageProcessException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new ImageProcessException(e);
+        }
+    }
+
+    @Override
+    public Map<String, Object> decompressJpegImageParallel(byte[] inImage, int flags) throws ImageProcessException {
+        try {
+            return (Map<String, Object>) decompressJpegParallel.invokeExact(inImage, flags);
+        } catch (ImageProcessException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new ImageProcessException(e);
+        }
+    }
+
+    @Override
+    public Map<String, Object> decompressJpegRegion(byte[] inImage, Rectangle region, int numerator, int denominator, int flags) throws ImageProcessException {
+        try {
+            return (Map<String, Object>) decompressJpegRegion.invokeExact(inImage, region, numerator, denominator, flags);
+        } catch (ImageProcessException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new ImageProcessException(e);
+        }
+    }
+
+    @Override
+    public Map<String, Object> transcodeJpegImage(byte[] inImage, int numerator, int denominator, int quality, int subsampling, int flags) throws ImageProcessException {
+        try {
+            return (Map<String, Object>) transcodeJpeg.invokeExact(inImage, numerator, denominator, quality, subsampling, flags);
+        } catch (ImageProcessException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new ImageProcessException(e);
+        }
+    }
+
+    @Override
+    public ImageProcessResult transcodeJpegImage(byte[] inImage, int numerator, int denominator, int quality, int subsampling, int flags, ImageProcessResult result) throws ImageProcessException {
+        try {
+            return (ImageProcessResult) transcodeJpegResult.invokeExact(inImage, numerator, denominator, quality, subsampling, flags, result);
+        } catch (ImageProcessException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new ImageProcessException(e);
+        }
+    }
+
+    @Override
+    public Map<String, Object> transcodeJpegImage(ByteBuffer inImage, int numerator, int denominator, int quality, int subsampling, int flags) throws ImageProcessException {
+        try {
+            return (Map<String, Object>) transcodeJpegBuffer.invokeExact(inImage, numerator, denominator, quality, subsampling, flags);
+        } catch (ImageProcessException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new ImageProcessException(e);
+        }
+    }
+
+    @Override
+    public ImageProcessResult transcodeJpegImage(ByteBuffer inImage, int numerator, int denominator, int quality, int subsampling, int flags, ImageProcessResult result) throws ImageProcessException {
+        try {
+            return (ImageProcessResult) transcodeJpegBufferResult.invokeExact(inImage, numerator, denominator, quality, subsampling, flags, result);
+        } catch (ImageProcessException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new ImageProcessException(e);
+        }
+    }
+
+    @Override
+    public Map<String, Object> compressToSize(byte[] inImage, int maxImageSize, int minQuality, int maxQuality, int subsampling, int flags) throws ImageProcessException {
+        try {
+            return (Map<String, Object>) compressToSize.invokeExact(inImage, maxImageSize, minQuality, maxQuality, subsampling, flags);
+        } catch (ImageProcessException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new ImageProcessException(e);
+        }
+    }
+
+    @Override
+    public Map<String, Object> compressAutoQuality(byte[] inImage, int[] qualities, double minScore, int subsampling, int flags) throws ImageProcessException {
+        try {
+            return (Map<String, Object>) compressAutoQuality.invokeExact(inImage, qualities, minScore, subsampling, flags);
+        } catch (ImageProcessException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new ImageProcessException(e);
+        }
+    }
+
+    @Override
+    public List<Map<String, Object>> createThumbnails(byte[] inImage, int[] sizes, int quality, int subsampling, int flags) throws ImageProcessException {
+        try {
+            return (List<Map<String, Object>>) createThumbnails.invokeExact(inImage, sizes, quality, subsampling, flags);
+        } catch (ImageProcessException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new ImageProcessException(e);
+        }
+    }
+
+    @Override
+    public Map<String, Object> transformJpegImage(byte[] inImage, TJTransform transform, int flags) throws ImageProcessException {
+        try {
+            return (Map<String, Object>) transformJpeg.invokeExact(inImage, transform, flags);
+        } catch (ImageProcessException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new ImageProcessException(e);
+        }
+    }
+
+    @Override
+    public List<Map<String, Object>> transformJpegImage(byte[] inImage, List<TJTransform> transforms, int flags) throws ImageProcessException {
+        try {
+            return (List<Map<String, Object>>) transformJpegMulti.invokeExact(inImage, transforms, flags);
+        } catch (ImageProcessException e) {
+            throw e;
+        } catch (Throwable e) {
             throw new ImageProcessException(e);
         }
     }
 
+    @Override
+    public ImageHeader probe(byte[] inImage) throws ImageProcessException {
+        try {
+            return (ImageHeader) probe.invokeExact(inImage);
+        } catch (ImageProcessException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new ImageProcessException(e);
+        }
+    }
+
+    @Override
+    public ImageHeader probe(ByteBuffer inImage) throws ImageProcessException {
+        try {
+            return (ImageHeader) probeBuffer.invokeExact(inImage);
+        } catch (ImageProcessException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new ImageProcessException(e);
+        }
+    }
+
+    @Override
+    public ImageBatchResult<Map<String, Object>> decompressBatch(List<byte[]> inImages, int numerator, int denominator, int flags) throws ImageProcessException {
+        try {
+            return (ImageBatchResult<Map<String, Object>>) decompressBatch.invokeExact(inImages, numerator, denominator, flags);
+        } catch (ImageProcessException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new ImageProcessException(e);
+        }
+    }
+
+    @Override
+    public ImageBatchResult<ByteArrayInputStream> compressBatch(List<Map<String, Object>> inImages, int quality, int subsampling, int flags) throws ImageProcessException {
+        try {
+            return (ImageBatchResult<ByteArrayInputStream>) compressBatch.invokeExact(inImages, quality, subsampling, flags);
+        } catch (ImageProcessException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new ImageProcessException(e);
+        }
+    }
+
+    @Override
+    public void releaseBuffer(byte[] buffer) {
+        try {
+            if (compressor != null && releaseBuffer != null) {
+                releaseBuffer.invokeExact(buffer);
+            }
+        } catch (Throwable e) {}
+    }
+
 }
@@ -0,0 +1,185 @@
+package org.libjpegturbo.turbojpeg.processor.impl;
+
+import org.libjpegturbo.turbojpeg.processor.api.ImageBatchResult;
+import org.libjpegturbo.turbojpeg.processor.api.ImageProcessException;
+import org.libjpegturbo.turbojpeg.processor.api.ImageProcessTask;
+import org.libjpegturbo.turbojpeg.processor.api.ImageProcessor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *
+ * Image processor which executes the native sections of operations called by virtual threads on a small pool
+ * of platform "codec carrier" threads.
+ *
+ * A JNI call pins the virtual thread to its carrier for the whole encode or decode, which starves the virtual
+ * thread scheduler. Here the virtual thread only parks while a carrier thread runs the operation against the
+ * delegate, so the pooled native handles of the delegate are used the same way as for platform threads.
+ * Virtual threads are detected reflectively, so the class works on runtimes without them, where no operation
+ * is offloaded unless {@link #MODE_ALWAYS} is used. Batch operations are not offloaded, since they run on
+ * their own fork/join pool.
+ *
+ * @since version 1.1,	10/18/2026
+ *
+ * @author Dmitry Viktorov
+ *
+ */
+public class OffloadingImageProcessor extends ForwardingImageProcessor implements AutoCloseable {
+
+    public final static String KEY_THREADS = "mozjpeg.processor.offload.threads";
+    public final static String KEY_MODE = "mozjpeg.processor.offload.mode";
+
+    /**
+     * Offloads operations called by virtual threads only.
+     */
+    public final static String MODE_VIRTUAL = "virtual";
+    /**
+     * Offloads all operations.
+     */
+    public final static String MODE_ALWAYS = "always";
+
+    public final static int DEFAULT_THREADS = Runtime.getRuntime().availableProcessors();
+
+    private final static Logger log = LoggerFactory.getLogger(OffloadingImageProcessor.class);
+    private final static AtomicInteger poolNumber = new AtomicInteger();
+    private final static Method isVirtual = findIsVirtual();
+
+    protected final ThreadPoolExecutor executor;
+    private final boolean offloadAll;
+    private final AtomicLong offloadedCount = new AtomicLong();
+
+    /**
+     * Creates processor with settings taken from system properties {@link #KEY_THREADS} and {@link #KEY_MODE}.
+     */
+    public OffloadingImageProcessor(ImageProcessor delegate) {
+        this(delegate, Integer.getInteger(KEY_THREADS, DEFAULT_THREADS), System.getProperty(KEY_MODE, MODE_VIRTUAL));
+    }
+
+    /**
+     * @param delegate processor executing the operations
+     * @param threads  number of carrier threads
+     * @param mode     {@link #MODE_VIRTUAL} or {@link #MODE_ALWAYS}
+     */
+    public OffloadingImageProcessor(ImageProcessor delegate, int threads, String mode) {
+
+        super(delegate);
+
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be positive");
+        }
+        if (!MODE_ALWAYS.equalsIgnoreCase(mode) && !MODE_VIRTUAL.equalsIgnoreCase(mode)) {
+            log.warn("Unknown offload mode {}, {} is used instead", mode, MODE_VIRTUAL);
+        }
+        this.offloadAll = MODE_ALWAYS.equalsIgnoreCase(mode);
+
+        final String namePrefix = "mozjpeg-carrier-" + poolNumber.incrementAndGet() + "-";
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    private final AtomicInteger threadNumber = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, namePrefix + threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+
+    }
+
+    @Override
+    protected <T> T call(final ImageProcessTask<T> task) throws ImageProcessException {
+
+        if (!offloadAll && !isVirtualThread(Thread.currentThread())) {
+            return super.call(task);
+        }
+
+        Future<T> future = executor.submit(new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                return OffloadingImageProcessor.super.call(task);
+            }
+        });
+        offloadedCount.incrementAndGet();
+
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ImageProcessException) {
+                throw (ImageProcessException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new ImageProcessException(cause);
+        } catch (InterruptedException e) {
+            // A native call can't be interrupted, so only the queued operation is cancelled
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new ImageProcessException("Interrupted while waiting for the image operation", e);
+        }
+
+    }
+
+    @Override
+    public ImageBatchResult<Map<String, Object>> decompressBatch(List<byte[]> inImages, int numerator, int denominator, int flags) throws ImageProcessException {
+        return delegate.decompressBatch(inImages, numerator, denominator, flags);
+    }
+
+    @Override
+    public ImageBatchResult<ByteArrayInputStream> compressBatch(List<Map<String, Object>> inImages, int quality, int subsampling, int flags) throws ImageProcessException {
+        return delegate.compressBatch(inImages, quality, subsampling, flags);
+    }
+
+    /**
+     * Returns true if the thread is a virtual thread. Always false on runtimes without virtual threads.
+     */
+    public static boolean isVirtualThread(Thread thread) {
+        if (isVirtual == null) {
+            return false;
+        }
+        try {
+            return (Boolean) isVirtual.invoke(thread);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns the number of operations executed by the carrier threads.
+     */
+    public long getOffloadedCount() {
+        return offloadedCount.get();
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    private static Method findIsVirtual() {
+        try {
+            return Thread.class.getMethod("isVirtual");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,292 @@
+package org.libjpegturbo.turbojpeg.processor.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *
+ * Bounded pool of live native TurboJPEG handles (compressors, decompressors and transformers).
+ *
+ * Idle handles are kept in several stripes, so concurrent threads rarely contend for the same queue.
+ * A thread takes a handle from its own stripe first and steals from other stripes only if its stripe
+ * is empty. A new native handle is created only when all stripes are empty. Handles released above
+ * the maximum idle size are destroyed, and handles staying idle longer than the idle timeout are
+ * evicted on subsequent pool operations.
+ *
+ * A hit saves the creation of the Java wrapper and of its native structures, unless {@link #passivate} has to
+ * initialize the native structures again. Pooled MozJPEG compressors are re-initialized on every release,
+ * since a reused encoder changes its output, so their hits reuse only the Java wrapper. Such re-initializations
+ * are counted by {@link #getReinitCount()}. A native re-initialization takes about 1 µs against about 55 ms of
+ * a typical compression, so it's negligible but not free.
+ *
+ * @since version 1.1,	10/18/2026
+ *
+ * @author Dmitry Viktorov
+ *
+ */
+public abstract class TJHandlePool<T extends AutoCloseable> {
+
+    public final static int DEFAULT_MAX_IDLE = Runtime.getRuntime().availableProcessors() * 2;
+    public final static long DEFAULT_IDLE_TIMEOUT = TimeUnit.MINUTES.toMillis(1);
+
+    private final static Logger log = LoggerFactory.getLogger(TJHandlePool.class);
+
+    private final ConcurrentLinkedDeque<IdleHandle<T>>[] stripes;
+    private final int maxIdle;
+    private final long idleTimeoutNanos;
+
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private final AtomicLong discardCount = new AtomicLong();
+    private final AtomicLong reinitCount = new AtomicLong();
+    private final AtomicLong nextEvictionRun;
+
+    /**
+     * @param maxIdle           maximum number of idle handles kept by the pool (0 disables pooling)
+     * @param idleTimeoutMillis time after which an idle handle is destroyed (0 or negative keeps
+     *                          idle handles forever)
+     */
+    protected TJHandlePool(int maxIdle, long idleTimeoutMillis) {
+        if (maxIdle < 0) {
+            throw new IllegalArgumentException("Maximum idle size can't be negative");
+        }
+        this.maxIdle = maxIdle;
+        this.idleTimeoutNanos = idleTimeoutMillis > 0 ? TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis) : 0;
+        this.nextEvictionRun = new AtomicLong(System.nanoTime() + idleTimeoutNanos);
+
+        int stripeCount = Math.max(1, Math.min(maxIdle, Runtime.getRuntime().availableProcessors()));
+        stripes = newStripes(stripeCount);
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ConcurrentLinkedDeque<IdleHandle<T>>();
+        }
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static <T> ConcurrentLinkedDeque<IdleHandle<T>>[] newStripes(int count) {
+        return new ConcurrentLinkedDeque[count];
+    }
+
+    /**
+     * Creates a new native handle. Called only if the pool has no idle handles.
+     */
+    protected abstract T create() throws Exception;
+
+    /**
+     * Prepares the handle to be kept idle, e.g. drops references to the images it was used with.
+     * If an exception is thrown, the handle is destroyed instead of being pooled.
+     */
+    protected void passivate(T handle) throws Exception {
+    }
+
+    /**
+     * Counts a handle whose native structures were destroyed and initialized again by {@link #passivate}.
+     */
+    protected void reinitialized(T handle) {
+        reinitCount.incrementAndGet();
+    }
+
+    /**
+     * Frees the native structures of the handle.
+     */
+    protected void destroy(T handle) {
+        try {
+            handle.close();
+        } catch (Exception e) {
+            log.warn("Native handle couldn't be destroyed", e);
+        }
+    }
+
+    /**
+     * Returns an idle handle, or creates a new one if the pool is empty. The handle must be given back
+     * by {@link #release(AutoCloseable)} once it's not needed anymore.
+     */
+    public T borrow() throws Exception {
+
+        int start = getStripeIndex();
+        for (int i = 0; i < stripes.length; i++) {
+            IdleHandle<T> idle = stripes[(start + i) % stripes.length].pollFirst();
+            if (idle != null) {
+                idleCount.decrementAndGet();
+                hitCount.incrementAndGet();
+                return idle.handle;
+            }
+        }
+
+        missCount.incrementAndGet();
+        return create();
+
+    }
+
+    /**
+     * Gives the handle back to the pool. Null handles are ignored.
+     */
+    public void release(T handle) {
+
+        if (handle == null) {
+            return;
+        }
+
+        try {
+            passivate(handle);
+        } catch (Exception e) {
+            destroy(handle);
+            return;
+        }
+
+        if (idleCount.incrementAndGet() > maxIdle) {
+            idleCount.decrementAndGet();
+            discardCount.incrementAndGet();
+            destroy(handle);
+        } else {
+            stripes[getStripeIndex()].offerFirst(new IdleHandle<T>(handle, System.nanoTime()));
+        }
+
+        evictExpiredIfDue();
+
+    }
+
+    /**
+     * Destroys all handles which stayed idle longer than the idle timeout.
+     *
+     * @return number of evicted handles
+     */
+    public int evictExpired() {
+
+        if (idleTimeoutNanos == 0) {
+            return 0;
+        }
+
+        int evicted = 0;
+        long now = System.nanoTime();
+        for (ConcurrentLinkedDeque<IdleHandle<T>> stripe : stripes) {
+            // The oldest handles are at the tail of the stripe
+            IdleHandle<T> idle;
+            while ((idle = stripe.pollLast()) != null) {
+                if (now - idle.idleSince < idleTimeoutNanos) {
+                    stripe.offerLast(idle);
+                    break;
+                }
+                idleCount.decrementAndGet();
+                evictionCount.incrementAndGet();
+                destroy(idle.handle);
+                evicted++;
+            }
+        }
+        return evicted;
+
+    }
+
+    /**
+     * Destroys all idle handles.
+     */
+    public void clear() {
+        for (ConcurrentLinkedDeque<IdleHandle<T>> stripe : stripes) {
+            IdleHandle<T> idle;
+            while ((idle = stripe.pollFirst()) != null) {
+                idleCount.decrementAndGet();
+                destroy(idle.handle);
+            }
+        }
+    }
+
+    protected void evictExpiredIfDue() {
+        if (idleTimeoutNanos == 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        long next = nextEvictionRun.get();
+        // Only one thread runs the eviction, and not more often than twice per timeout
+        if (now - next >= 0 && nextEvictionRun.compareAndSet(next, now + idleTimeoutNanos / 2)) {
+            evictExpired();
+        }
+    }
+
+    protected int getStripeIndex() {
+        return (int) (Thread.currentThread().getId() % stripes.length);
+    }
+
+    public int getMaxIdle() {
+        return maxIdle;
+    }
+
+    public long getIdleTimeoutMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(idleTimeoutNanos);
+    }
+
+    /**
+     * Returns the number of handles which are currently idle in the pool.
+     */
+    public int getIdleCount() {
+        return idleCount.get();
+    }
+
+    /**
+     * Returns the number of borrowed handles which were taken from the pool. For pools which re-initialize
+     * released handles, see {@link #getReinitCount()}, a hit saves only the creation of the Java wrapper.
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Returns the number of borrowed handles which had to be created.
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Returns the number of idle handles destroyed because of the idle timeout.
+     */
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * Returns the number of released handles destroyed because the pool was full.
+     */
+    public long getDiscardCount() {
+        return discardCount.get();
+    }
+
+    /**
+     * Returns the number of released handles whose native structures were initialized again, including
+     * the handles kept by {@link TJWorkerThread}s between their tasks.
+     */
+    public long getReinitCount() {
+        return reinitCount.get();
+    }
+
+    public double getHitRatio() {
+        long hits = hitCount.get();
+        long total = hits + missCount.get();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[idle=" + getIdleCount() + ", hits=" + getHitCount() +
+                ", misses=" + getMissCount() + ", evictions=" + getEvictionCount() +
+                ", discards=" + getDiscardCount() + ", reinits=" + getReinitCount() + "]";
+    }
+
+    private static class IdleHandle<T> {
+
+        private final T handle;
+        private final long idleSince;
+
+        private IdleHandle(T handle, long idleSince) {
+            this.handle = handle;
+            this.idleSince = idleSince;
+        }
+
+    }
+
+}
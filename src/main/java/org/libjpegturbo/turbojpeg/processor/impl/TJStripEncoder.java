@@ -0,0 +1,649 @@
+package org.libjpegturbo.turbojpeg.processor.impl;
+
+import org.libjpegturbo.turbojpeg.TJ;
+import org.libjpegturbo.turbojpeg.TJBufferPool;
+import org.libjpegturbo.turbojpeg.TJCustomFilter;
+import org.libjpegturbo.turbojpeg.TJTransform;
+import org.libjpegturbo.turbojpeg.TJTransformer;
+
+import java.awt.Rectangle;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+
+/**
+ *
+ * Encoder joining separately compressed horizontal strips of an image into one baseline JPEG image by
+ * re-encoding their DCT coefficients, for strips which can't be joined by {@link TJStripWriter}, e.g. the
+ * progressive images with optimized Huffman tables produced by the MozJPEG defaults.
+ *
+ * All the strips must have the same quantization tables and components, and their heights must be multiples of
+ * the MCU height (except the last one). The quantized coefficients of every strip are read losslessly by
+ * {@link #decode}, the Huffman tables optimal for all the strips are built by {@link #buildTables()} and every
+ * strip is entropy coded by {@link #encode} into a restart interval of the joined image. Decoding and encoding
+ * of different strips may run concurrently.
+ *
+ * @since version 1.1,	10/18/2026
+ *
+ * @author Dmitry Viktorov
+ *
+ */
+public class TJStripEncoder {
+
+    protected final static int M_SOF0 = 0xc0;
+    protected final static int M_SOF1 = 0xc1;
+    protected final static int M_SOF2 = 0xc2;
+    protected final static int M_DHT = 0xc4;
+    protected final static int M_RST0 = 0xd0;
+    protected final static int M_SOI = 0xd8;
+    protected final static int M_EOI = 0xd9;
+    protected final static int M_SOS = 0xda;
+    protected final static int M_DQT = 0xdb;
+    protected final static int M_DRI = 0xdd;
+    protected final static int M_APP0 = 0xe0;
+    protected final static int M_APP15 = 0xef;
+    protected final static int M_COM = 0xfe;
+
+    /**
+     * Positions in the natural order of a block of the coefficients in the zigzag order.
+     */
+    protected final static int[] NATURAL_ORDER = {
+            0, 1, 8, 16, 9, 2, 3, 10, 17, 24, 32, 25, 18, 11, 4, 5,
+            12, 19, 26, 33, 40, 48, 41, 34, 27, 20, 13, 6, 7, 14, 21, 28,
+            35, 42, 49, 56, 57, 50, 43, 36, 29, 22, 15, 23, 30, 37, 44, 51,
+            58, 59, 52, 45, 38, 31, 39, 46, 53, 60, 61, 54, 47, 55, 62, 63 };
+
+    private final static int DCT_SIZE = 8;
+    private final static int BLOCK_SIZE = DCT_SIZE * DCT_SIZE;
+    private final static int MAX_CODE_LENGTH = 32;
+
+    private final byte[][] strips;
+    private final int[] sizes;
+    private final Frame[] frames;
+    private final short[][][] coefficients;
+    private final long[][][] frequencies;
+    private final byte[][] segments;
+    private final int[] segmentSizes;
+
+    private byte[][] tableBits;
+    private byte[][] tableValues;
+    private int[][] codes;
+    private byte[][] codeLengths;
+
+    /**
+     * @param strips compressed strips in the top to bottom order
+     * @param sizes  sizes of the compressed strips
+     */
+    public TJStripEncoder(byte[][] strips, int[] sizes) {
+        if (strips == null || sizes == null || strips.length != sizes.length || strips.length == 0) {
+            throw new IllegalArgumentException("Strips and sizes must have the same non-zero size");
+        }
+        this.strips = strips;
+        this.sizes = sizes;
+        this.frames = new Frame[strips.length];
+        this.coefficients = new short[strips.length][][];
+        this.frequencies = new long[strips.length][][];
+        this.segments = new byte[strips.length][];
+        this.segmentSizes = new int[strips.length];
+    }
+
+    /**
+     * Returns true if the strips can be encoded into one image: all of them are 8-bit images of the same width,
+     * with the same components, quantization tables and other segments before the frame header.
+     */
+    public boolean isEncodable() {
+
+        for (int i = 0; i < strips.length; i++) {
+            frames[i] = Frame.parse(strips[i], sizes[i]);
+            if (frames[i] == null) {
+                return false;
+            }
+        }
+
+        Frame first = frames[0];
+        for (int i = 1; i < strips.length; i++) {
+            Frame frame = frames[i];
+            if (frame.width != first.width || !Arrays.equals(frame.components, first.components) ||
+                    !Arrays.equals(frame.headers, first.headers)) {
+                return false;
+            }
+        }
+
+        return true;
+
+    }
+
+    /**
+     * Reads the quantized coefficients of the strip by the transformer and counts the Huffman symbols of the
+     * strip. Must be called after {@link #isEncodable()}.
+     *
+     * @param bufferPool pool of the destination buffer the native transform requires, though nothing is
+     *                   written to it
+     */
+    public void decode(int index, TJTransformer transformer, TJBufferPool bufferPool) throws Exception {
+
+        final Frame frame = frames[index];
+        final short[][] planes = new short[frame.components.length / 3][];
+        final int[] planeWidths = new int[planes.length];
+
+        transformer.setSourceImage(strips[index], sizes[index]);
+        TJTransform transform = new TJTransform(0, 0, 0, 0, TJTransform.OP_NONE, TJTransform.OPT_NOOUTPUT, new TJCustomFilter() {
+            @Override
+            public void customFilter(ShortBuffer coeffBuffer, Rectangle bufferRegion, Rectangle planeRegion,
+                                     int componentID, int transformID, TJTransform transform) {
+                // Blocks of a plane are delivered row by row in the natural order
+                if (planes[componentID] == null) {
+                    planeWidths[componentID] = planeRegion.width / DCT_SIZE;
+                    planes[componentID] = new short[planeRegion.width * planeRegion.height];
+                }
+                coeffBuffer.get(planes[componentID], bufferRegion.y * planeRegion.width, bufferRegion.width * bufferRegion.height);
+            }
+        });
+        byte[] dstBuf = bufferPool.lease(TJ.bufSize(transformer.getWidth(), transformer.getHeight(), transformer.getSubsamp()));
+        try {
+            transformer.transform(new byte[][] { dstBuf }, new TJTransform[] { transform }, 0);
+        } finally {
+            bufferPool.release(dstBuf);
+        }
+
+        for (short[] plane : planes) {
+            if (plane == null) {
+                throw new IllegalStateException("Coefficients of the strip " + index + " weren't read");
+            }
+        }
+        coefficients[index] = planes;
+        frame.planeWidths = planeWidths;
+
+        long[][] counts = new long[4][257];
+        scan(index, counts, null);
+        frequencies[index] = counts;
+
+    }
+
+    /**
+     * Builds the Huffman tables from the symbols of all the strips. Must be called after {@link #decode} of
+     * every strip.
+     */
+    public void buildTables() {
+
+        int tables = frames[0].components.length / 3 > 1 ? 4 : 2;
+        tableBits = new byte[tables][];
+        tableValues = new byte[tables][];
+        codes = new int[tables][];
+        codeLengths = new byte[tables][];
+
+        for (int t = 0; t < tables; t++) {
+            long[] counts = new long[257];
+            for (long[][] stripCounts : frequencies) {
+                for (int i = 0; i < 256; i++) {
+                    counts[i] += stripCounts[t][i];
+                }
+            }
+            generateTable(t, counts);
+        }
+
+    }
+
+    /**
+     * Entropy codes the coefficients of the strip into a restart interval. Must be called after
+     * {@link #buildTables()}, and the coefficients of the strip are dropped afterwards.
+     */
+    public void encode(int index) {
+        BitWriter writer = new BitWriter(Math.max(64, sizes[index]));
+        scan(index, null, writer);
+        segmentSizes[index] = writer.finish();
+        segments[index] = writer.buffer;
+        coefficients[index] = null;
+    }
+
+    /**
+     * Returns the size of the encoded image. Must be called after {@link #encode} of every strip.
+     */
+    public int getEncodedSize() {
+        int size = 2 + frames[0].headers.length + 2 + 8 + frames[0].components.length + 6 + 2 + 6 + frames[0].components.length / 3 * 2 + 2;
+        for (int t = 0; t < tableBits.length; t++) {
+            size += 4 + 1 + 16 + tableValues[t].length;
+        }
+        for (int i = 0; i < strips.length; i++) {
+            size += segmentSizes[i] + (i > 0 ? 2 : 0);
+        }
+        return size;
+    }
+
+    /**
+     * Writes the encoded image to the buffer and returns its size. Must be called after {@link #encode} of
+     * every strip.
+     *
+     * @param height          height of the whole image
+     * @param restartInterval number of MCUs in every strip but the last one
+     * @param dstBuf          buffer of at least {@link #getEncodedSize()} bytes
+     */
+    public int write(int height, int restartInterval, byte[] dstBuf) {
+
+        if (height <= 0 || height > 0xffff || restartInterval <= 0 || restartInterval > TJStripWriter.MAX_RESTART_INTERVAL) {
+            throw new IllegalArgumentException("Invalid height or restart interval: " + height + ", " + restartInterval);
+        }
+
+        Frame frame = frames[0];
+        int count = frame.components.length / 3;
+        int pos = 0;
+
+        dstBuf[pos++] = (byte) 0xff;
+        dstBuf[pos++] = (byte) M_SOI;
+        System.arraycopy(frame.headers, 0, dstBuf, pos, frame.headers.length);
+        pos += frame.headers.length;
+
+        // Frame header, extended sequential if any quantization table has 16-bit values
+        dstBuf[pos++] = (byte) 0xff;
+        dstBuf[pos++] = (byte) (frame.extended ? M_SOF1 : M_SOF0);
+        pos = putShort(dstBuf, pos, 8 + frame.components.length);
+        dstBuf[pos++] = 8;
+        pos = putShort(dstBuf, pos, height);
+        pos = putShort(dstBuf, pos, frame.width);
+        dstBuf[pos++] = (byte) count;
+        System.arraycopy(frame.components, 0, dstBuf, pos, frame.components.length);
+        pos += frame.components.length;
+
+        // DC and AC tables of every table slot
+        for (int t = 0; t < tableBits.length; t++) {
+            dstBuf[pos++] = (byte) 0xff;
+            dstBuf[pos++] = (byte) M_DHT;
+            pos = putShort(dstBuf, pos, 2 + 1 + 16 + tableValues[t].length);
+            dstBuf[pos++] = (byte) ((t & 1) << 4 | t >> 1);
+            System.arraycopy(tableBits[t], 1, dstBuf, pos, 16);
+            pos += 16;
+            System.arraycopy(tableValues[t], 0, dstBuf, pos, tableValues[t].length);
+            pos += tableValues[t].length;
+        }
+
+        dstBuf[pos++] = (byte) 0xff;
+        dstBuf[pos++] = (byte) M_DRI;
+        pos = putShort(dstBuf, pos, 4);
+        pos = putShort(dstBuf, pos, restartInterval);
+
+        dstBuf[pos++] = (byte) 0xff;
+        dstBuf[pos++] = (byte) M_SOS;
+        pos = putShort(dstBuf, pos, 6 + count * 2);
+        dstBuf[pos++] = (byte) count;
+        for (int c = 0; c < count; c++) {
+            int table = tableSlot(c) >> 1;
+            dstBuf[pos++] = frame.components[c * 3];
+            dstBuf[pos++] = (byte) (table << 4 | table);
+        }
+        dstBuf[pos++] = 0;
+        dstBuf[pos++] = 63;
+        dstBuf[pos++] = 0;
+
+        for (int i = 0; i < strips.length; i++) {
+            if (i > 0) {
+                dstBuf[pos++] = (byte) 0xff;
+                dstBuf[pos++] = (byte) (M_RST0 + (i - 1) % 8);
+            }
+            System.arraycopy(segments[i], 0, dstBuf, pos, segmentSizes[i]);
+            pos += segmentSizes[i];
+        }
+
+        dstBuf[pos++] = (byte) 0xff;
+        dstBuf[pos++] = (byte) M_EOI;
+
+        return pos;
+
+    }
+
+    /**
+     * Walks the blocks of the strip in the order of the scan, counting the symbols of every table if
+     * <code>counts</code> is given, or writing them otherwise. Blocks of the partial MCUs beyond the
+     * component planes are written as dummy blocks repeating the previous DC coefficient.
+     */
+    private void scan(int index, long[][] counts, BitWriter writer) {
+
+        Frame frame = frames[index];
+        short[][] planes = coefficients[index];
+        int count = planes.length;
+        int[] lastDc = new int[count];
+
+        if (count == 1) {
+            // Single component scans are not interleaved, so there are no dummy blocks
+            int blocksWide = frame.planeWidths[0];
+            int blocksHigh = planes[0].length / BLOCK_SIZE / blocksWide;
+            for (int by = 0; by < blocksHigh; by++) {
+                for (int bx = 0; bx < blocksWide; bx++) {
+                    lastDc[0] = codeBlock(planes[0], (by * blocksWide + bx) * BLOCK_SIZE, lastDc[0], tableSlot(0), counts, writer);
+                }
+            }
+            return;
+        }
+
+        int maxH = 1, maxV = 1;
+        for (int c = 0; c < count; c++) {
+            maxH = Math.max(maxH, frame.components[c * 3 + 1] >> 4);
+            maxV = Math.max(maxV, frame.components[c * 3 + 1] & 15);
+        }
+        int mcusPerRow = (frame.width + maxH * DCT_SIZE - 1) / (maxH * DCT_SIZE);
+        int mcuRows = (frame.height + maxV * DCT_SIZE - 1) / (maxV * DCT_SIZE);
+
+        for (int my = 0; my < mcuRows; my++) {
+            for (int mx = 0; mx < mcusPerRow; mx++) {
+                for (int c = 0; c < count; c++) {
+                    int h = frame.components[c * 3 + 1] >> 4;
+                    int v = frame.components[c * 3 + 1] & 15;
+                    int blocksWide = frame.planeWidths[c];
+                    int blocksHigh = planes[c].length / BLOCK_SIZE / blocksWide;
+                    int slot = tableSlot(c);
+                    for (int y = 0; y < v; y++) {
+                        int by = my * v + y;
+                        for (int x = 0; x < h; x++) {
+                            int bx = mx * h + x;
+                            if (bx < blocksWide && by < blocksHigh) {
+                                lastDc[c] = codeBlock(planes[c], (by * blocksWide + bx) * BLOCK_SIZE, lastDc[c], slot, counts, writer);
+                            } else {
+                                codeDummyBlock(slot, counts, writer);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+    }
+
+    private int codeBlock(short[] plane, int offset, int lastDc, int slot, long[][] counts, BitWriter writer) {
+
+        int dc = plane[offset];
+        int diff = dc - lastDc;
+        int bits = bitCount(diff);
+        if (counts != null) {
+            counts[slot][bits]++;
+        } else {
+            writer.write(codes[slot][bits], codeLengths[slot][bits]);
+            if (bits > 0) {
+                writer.write(diff < 0 ? diff - 1 : diff, bits);
+            }
+        }
+
+        int acSlot = slot + 1;
+        int run = 0;
+        for (int k = 1; k < BLOCK_SIZE; k++) {
+            int value = plane[offset + NATURAL_ORDER[k]];
+            if (value == 0) {
+                run++;
+                continue;
+            }
+            while (run > 15) {
+                emit(acSlot, 0xf0, counts, writer);
+                run -= 16;
+            }
+            bits = bitCount(value);
+            emit(acSlot, (run << 4) + bits, counts, writer);
+            if (writer != null) {
+                writer.write(value < 0 ? value - 1 : value, bits);
+            }
+            run = 0;
+        }
+        if (run > 0) {
+            emit(acSlot, 0, counts, writer);
+        }
+
+        return dc;
+
+    }
+
+    private void codeDummyBlock(int slot, long[][] counts, BitWriter writer) {
+        emit(slot, 0, counts, writer);
+        emit(slot + 1, 0, counts, writer);
+    }
+
+    private void emit(int slot, int symbol, long[][] counts, BitWriter writer) {
+        if (counts != null) {
+            counts[slot][symbol]++;
+        } else {
+            writer.write(codes[slot][symbol], codeLengths[slot][symbol]);
+        }
+    }
+
+    /**
+     * Returns the slot of the DC table of the component, the AC table takes the next slot. The first component
+     * has its own tables, like in libjpeg.
+     */
+    private static int tableSlot(int component) {
+        return component == 0 ? 0 : 2;
+    }
+
+    private static int bitCount(int value) {
+        return 32 - Integer.numberOfLeadingZeros(Math.abs(value));
+    }
+
+    /**
+     * Generates the optimal table limited to 16-bit codes from the symbol counts, as jpeg_gen_optimal_table of
+     * libjpeg does. The reserved symbol 256 guarantees that no code consists of ones only.
+     */
+    private void generateTable(int slot, long[] freq) {
+
+        int[] bits = new int[MAX_CODE_LENGTH + 1];
+        int[] codeSize = new int[257];
+        int[] others = new int[257];
+        Arrays.fill(others, -1);
+        freq[256] = 1;
+
+        for (;;) {
+            int c1 = -1;
+            long v = Long.MAX_VALUE;
+            for (int i = 0; i <= 256; i++) {
+                if (freq[i] != 0 && freq[i] <= v) {
+                    v = freq[i];
+                    c1 = i;
+                }
+            }
+            int c2 = -1;
+            v = Long.MAX_VALUE;
+            for (int i = 0; i <= 256; i++) {
+                if (freq[i] != 0 && freq[i] <= v && i != c1) {
+                    v = freq[i];
+                    c2 = i;
+                }
+            }
+            if (c2 < 0) {
+                break;
+            }
+            freq[c1] += freq[c2];
+            freq[c2] = 0;
+            codeSize[c1]++;
+            while (others[c1] >= 0) {
+                c1 = others[c1];
+                codeSize[c1]++;
+            }
+            others[c1] = c2;
+            codeSize[c2]++;
+            while (others[c2] >= 0) {
+                c2 = others[c2];
+                codeSize[c2]++;
+            }
+        }
+
+        for (int i = 0; i <= 256; i++) {
+            if (codeSize[i] > 0) {
+                if (codeSize[i] > MAX_CODE_LENGTH) {
+                    throw new IllegalStateException("Huffman code is too long");
+                }
+                bits[codeSize[i]]++;
+            }
+        }
+
+        // Codes longer than 16 bits are moved to shorter lengths
+        int i;
+        for (i = MAX_CODE_LENGTH; i > 16; i--) {
+            while (bits[i] > 0) {
+                int j = i - 2;
+                while (bits[j] == 0) {
+                    j--;
+                }
+                bits[i] -= 2;
+                bits[i - 1]++;
+                bits[j + 1] += 2;
+                bits[j]--;
+            }
+        }
+        // The reserved symbol is dropped from the longest codes
+        while (bits[i] == 0) {
+            i--;
+        }
+        bits[i]--;
+
+        int total = 0;
+        for (i = 1; i <= 16; i++) {
+            total += bits[i];
+        }
+        byte[] values = new byte[total];
+        int p = 0;
+        for (i = 1; i <= MAX_CODE_LENGTH; i++) {
+            for (int j = 0; j <= 255; j++) {
+                if (codeSize[j] == i) {
+                    values[p++] = (byte) j;
+                }
+            }
+        }
+
+        // Canonical codes of the symbols
+        int[] symbolCodes = new int[256];
+        byte[] symbolLengths = new byte[256];
+        int code = 0;
+        p = 0;
+        for (int length = 1; length <= 16; length++) {
+            for (int k = 0; k < bits[length]; k++) {
+                int symbol = values[p++] & 0xff;
+                symbolCodes[symbol] = code++;
+                symbolLengths[symbol] = (byte) length;
+            }
+            code <<= 1;
+        }
+
+        tableBits[slot] = new byte[17];
+        for (i = 1; i <= 16; i++) {
+            tableBits[slot][i] = (byte) bits[i];
+        }
+        tableValues[slot] = values;
+        codes[slot] = symbolCodes;
+        codeLengths[slot] = symbolLengths;
+
+    }
+
+    private static int putShort(byte[] buf, int pos, int value) {
+        buf[pos] = (byte) (value >> 8);
+        buf[pos + 1] = (byte) value;
+        return pos + 2;
+    }
+
+    /**
+     * Writer of the entropy-coded bits, stuffing a zero byte after every 0xFF byte.
+     */
+    private static class BitWriter {
+
+        private byte[] buffer;
+        private int size;
+        private long bits;
+        private int bitCount;
+
+        private BitWriter(int capacity) {
+            buffer = new byte[capacity];
+        }
+
+        private void write(int value, int length) {
+            bits = (bits << length) | (value & ((1L << length) - 1));
+            bitCount += length;
+            while (bitCount >= 8) {
+                bitCount -= 8;
+                put((int) (bits >> bitCount) & 0xff);
+            }
+        }
+
+        private void put(int value) {
+            if (size + 2 > buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            buffer[size++] = (byte) value;
+            if (value == 0xff) {
+                buffer[size++] = 0;
+            }
+        }
+
+        /**
+         * Pads the last byte with ones and returns the size of the written data.
+         */
+        private int finish() {
+            if (bitCount > 0) {
+                write(0x7f, 8 - bitCount);
+            }
+            return size;
+        }
+
+    }
+
+    /**
+     * Frame of a strip: the segments before the frame header which are copied into the joined image, the frame
+     * dimensions and the id, sampling factors and quantization table of every component.
+     */
+    private static class Frame {
+
+        private byte[] headers;
+        private byte[] components;
+        private int width;
+        private int height;
+        private boolean extended;
+        private int[] planeWidths;
+
+        /**
+         * Returns the frame of the image, or null if the image is not an 8-bit JPEG image with at most
+         * 4 components.
+         */
+        private static Frame parse(byte[] jpeg, int size) {
+
+            if (size < 4 || (jpeg[0] & 0xff) != 0xff || (jpeg[1] & 0xff) != M_SOI) {
+                return null;
+            }
+
+            Frame frame = new Frame();
+            byte[] headers = new byte[size];
+            int headersSize = 0;
+            int pos = 2;
+            while (pos + 4 <= size) {
+
+                if ((jpeg[pos] & 0xff) != 0xff) {
+                    return null;
+                }
+                int marker = jpeg[pos + 1] & 0xff;
+                int length = ((jpeg[pos + 2] & 0xff) << 8) | (jpeg[pos + 3] & 0xff);
+                if (pos + 2 + length > size) {
+                    return null;
+                }
+
+                if (marker == M_SOF0 || marker == M_SOF1 || marker == M_SOF2) {
+                    int count = jpeg[pos + 9] & 0xff;
+                    if ((jpeg[pos + 4] & 0xff) != 8 || count < 1 || count > 4 || length != 8 + count * 3) {
+                        return null;
+                    }
+                    frame.height = ((jpeg[pos + 5] & 0xff) << 8) | (jpeg[pos + 6] & 0xff);
+                    frame.width = ((jpeg[pos + 7] & 0xff) << 8) | (jpeg[pos + 8] & 0xff);
+                    frame.components = Arrays.copyOfRange(jpeg, pos + 10, pos + 10 + count * 3);
+                    frame.headers = Arrays.copyOf(headers, headersSize);
+                    return frame;
+                } else if (marker == M_DQT) {
+                    for (int p = pos + 4; p < pos + 2 + length; p += 1 + ((jpeg[p] & 0xf0) != 0 ? 128 : 64)) {
+                        frame.extended |= (jpeg[p] & 0xf0) != 0;
+                    }
+                } else if (marker != M_COM && (marker < M_APP0 || marker > M_APP15)) {
+                    // Other frame types and any tables other than the quantization ones can't be copied
+                    return null;
+                }
+
+                System.arraycopy(jpeg, pos, headers, headersSize, 2 + length);
+                headersSize += 2 + length;
+                pos += 2 + length;
+
+            }
+
+            return null;
+
+        }
+
+    }
+
+}
@@ -0,0 +1,199 @@
+package org.libjpegturbo.turbojpeg.processor.impl;
+
+/**
+ *
+ * Writer joining separately compressed horizontal strips of an image into one baseline JPEG image.
+ *
+ * Every strip must be a sequential, single-scan JPEG image whose height is a multiple of the MCU height (except
+ * the last one), compressed with the same quantization and Huffman tables. The headers of the first strip are
+ * written with the full image height and a restart interval covering one strip, followed by the entropy-coded
+ * segments of all the strips separated by restart markers. Since a restart resets the DC predictions and the
+ * strip encoders start from zero predictions too, the result decodes exactly as if it was compressed at once.
+ *
+ * @since version 1.1,	10/18/2026
+ *
+ * @author Dmitry Viktorov
+ *
+ */
+public class TJStripWriter {
+
+    public final static int MAX_RESTART_INTERVAL = 0xffff;
+
+    protected final static int M_SOF0 = 0xc0;
+    protected final static int M_SOF1 = 0xc1;
+    protected final static int M_DHT = 0xc4;
+    protected final static int M_RST0 = 0xd0;
+    protected final static int M_SOI = 0xd8;
+    protected final static int M_EOI = 0xd9;
+    protected final static int M_SOS = 0xda;
+    protected final static int M_DRI = 0xdd;
+
+    private final byte[][] strips;
+    private final int[] sizes;
+    private final int[][] layouts;
+
+    /**
+     * @param strips compressed strips in the top to bottom order
+     * @param sizes  sizes of the compressed strips
+     */
+    public TJStripWriter(byte[][] strips, int[] sizes) {
+        if (strips == null || sizes == null || strips.length != sizes.length || strips.length == 0) {
+            throw new IllegalArgumentException("Strips and sizes must have the same non-zero size");
+        }
+        this.strips = strips;
+        this.sizes = sizes;
+        this.layouts = new int[strips.length][];
+    }
+
+    /**
+     * Returns true if the strips can be joined: all of them are sequential single-scan images without restart
+     * markers, and their headers are the same except for the image height.
+     */
+    public boolean isJoinable() {
+
+        for (int i = 0; i < strips.length; i++) {
+            layouts[i] = parse(strips[i], sizes[i]);
+            if (layouts[i] == null) {
+                return false;
+            }
+        }
+
+        int[] first = layouts[0];
+        for (int i = 1; i < strips.length; i++) {
+            int[] layout = layouts[i];
+            if (layout[0] != first[0] || layout[1] != first[1] || layout[2] != first[2]) {
+                return false;
+            }
+            // Headers must be equal except for the height field of the frame header
+            int heightOffset = first[0] + 5;
+            for (int j = 0; j < first[2]; j++) {
+                if ((j < heightOffset || j > heightOffset + 1) && strips[i][j] != strips[0][j]) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+
+    }
+
+    /**
+     * Returns the size of the joined image. Must be called after {@link #isJoinable()}.
+     */
+    public int getJoinedSize() {
+        int size = layouts[0][2] + 6 + 2;
+        for (int i = 0; i < strips.length; i++) {
+            size += sizes[i] - 2 - layouts[i][2];
+            if (i > 0) {
+                size += 2;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Writes the joined image to the buffer and returns its size. Must be called after {@link #isJoinable()}.
+     *
+     * @param height          height of the whole image
+     * @param restartInterval number of MCUs in every strip but the last one
+     * @param dstBuf          buffer of at least {@link #getJoinedSize()} bytes
+     */
+    public int write(int height, int restartInterval, byte[] dstBuf) {
+
+        if (height <= 0 || height > 0xffff || restartInterval <= 0 || restartInterval > MAX_RESTART_INTERVAL) {
+            throw new IllegalArgumentException("Invalid height or restart interval: " + height + ", " + restartInterval);
+        }
+
+        int sofOffset = layouts[0][0];
+        int sosOffset = layouts[0][1];
+        int scanStart = layouts[0][2];
+
+        // Headers of the first strip with the full height and the restart interval before the scan header
+        System.arraycopy(strips[0], 0, dstBuf, 0, sosOffset);
+        dstBuf[sofOffset + 5] = (byte) (height >> 8);
+        dstBuf[sofOffset + 6] = (byte) height;
+        int pos = sosOffset;
+        dstBuf[pos++] = (byte) 0xff;
+        dstBuf[pos++] = (byte) M_DRI;
+        dstBuf[pos++] = 0;
+        dstBuf[pos++] = 4;
+        dstBuf[pos++] = (byte) (restartInterval >> 8);
+        dstBuf[pos++] = (byte) restartInterval;
+        System.arraycopy(strips[0], sosOffset, dstBuf, pos, scanStart - sosOffset);
+        pos += scanStart - sosOffset;
+
+        // Entropy-coded segments without the end of image markers, joined by restart markers
+        for (int i = 0; i < strips.length; i++) {
+            if (i > 0) {
+                dstBuf[pos++] = (byte) 0xff;
+                dstBuf[pos++] = (byte) (M_RST0 + (i - 1) % 8);
+            }
+            int length = sizes[i] - 2 - layouts[i][2];
+            System.arraycopy(strips[i], layouts[i][2], dstBuf, pos, length);
+            pos += length;
+        }
+
+        dstBuf[pos++] = (byte) 0xff;
+        dstBuf[pos++] = (byte) M_EOI;
+
+        return pos;
+
+    }
+
+    /**
+     * Returns the offsets of the frame header, the scan header and the entropy-coded segment of the image, or
+     * null if the image is not a sequential single-scan image without restart markers.
+     */
+    protected static int[] parse(byte[] jpeg, int size) {
+
+        if (size < 4 || (jpeg[0] & 0xff) != 0xff || (jpeg[1] & 0xff) != M_SOI ||
+                (jpeg[size - 2] & 0xff) != 0xff || (jpeg[size - 1] & 0xff) != M_EOI) {
+            return null;
+        }
+
+        int sofOffset = -1;
+        int pos = 2;
+        while (pos + 4 <= size) {
+
+            if ((jpeg[pos] & 0xff) != 0xff) {
+                return null;
+            }
+            int marker = jpeg[pos + 1] & 0xff;
+            int length = ((jpeg[pos + 2] & 0xff) << 8) | (jpeg[pos + 3] & 0xff);
+
+            if (marker == M_SOF0 || marker == M_SOF1) {
+                sofOffset = pos;
+            } else if ((marker > M_SOF1 && marker <= 0xcf && marker != M_DHT && marker != 0xc8 && marker != 0xcc) ||
+                    marker == M_DRI) {
+                // Progressive, lossless or arithmetic frames and restart intervals can't be joined
+                return null;
+            } else if (marker == M_SOS) {
+                int scanStart = pos + 2 + length;
+                if (sofOffset < 0 || scanStart > size - 2 || hasMarker(jpeg, scanStart, size - 2)) {
+                    return null;
+                }
+                return new int[] { sofOffset, pos, scanStart };
+            }
+
+            pos += 2 + length;
+
+        }
+
+        return null;
+
+    }
+
+    /**
+     * Returns true if the entropy-coded data contains a marker other than a stuffed zero byte,
+     * e.g. a restart marker or the header of another scan.
+     */
+    private static boolean hasMarker(byte[] jpeg, int from, int to) {
+        for (int i = from; i < to - 1; i++) {
+            if ((jpeg[i] & 0xff) == 0xff && jpeg[i + 1] != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
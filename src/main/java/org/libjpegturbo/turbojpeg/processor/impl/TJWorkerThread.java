@@ -0,0 +1,93 @@
+package org.libjpegturbo.turbojpeg.processor.impl;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ *
+ * Fork/join worker thread which owns native TurboJPEG handles for its whole life.
+ *
+ * The first time a worker needs a handle of some pool, the handle is borrowed from that pool and kept by the
+ * worker, so the batch tasks executed by the worker never contend for the pools. The handles are given back
+ * to their pools when the worker terminates. Between the tasks, the handles are passivated by their pools like
+ * released handles, so a worker-owned compressor is still re-initialized after every image, see
+ * {@link TJHandlePool#getReinitCount()}.
+ *
+ * @since version 1.1,	10/18/2026
+ *
+ * @author Dmitry Viktorov
+ *
+ */
+public class TJWorkerThread extends ForkJoinWorkerThread {
+
+    /**
+     * Factory which may be used to create a custom fork/join pool for the batch operations of
+     * {@link ImageProcessorImpl}.
+     */
+    public final static ForkJoinPool.ForkJoinWorkerThreadFactory FACTORY = new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+        @Override
+        public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+            return new TJWorkerThread(pool);
+        }
+    };
+
+    private final Map<TJHandlePool<?>, AutoCloseable> handles = new IdentityHashMap<TJHandlePool<?>, AutoCloseable>();
+
+    protected TJWorkerThread(ForkJoinPool pool) {
+        super(pool);
+        setDaemon(true);
+    }
+
+    /**
+     * Returns the worker thread which runs the current task, or null if the current thread is not a worker.
+     */
+    public static TJWorkerThread current() {
+        Thread thread = Thread.currentThread();
+        return thread instanceof TJWorkerThread ? (TJWorkerThread) thread : null;
+    }
+
+    /**
+     * Returns the handle of the pool owned by this worker, borrowing it from the pool the first time.
+     */
+    @SuppressWarnings("unchecked")
+    protected <T extends AutoCloseable> T borrow(TJHandlePool<T> pool) throws Exception {
+        T handle = (T) handles.get(pool);
+        if (handle == null) {
+            handle = pool.borrow();
+            handles.put(pool, handle);
+        }
+        return handle;
+    }
+
+    /**
+     * Prepares the handle for the next task. Returns false if the handle is not owned by this worker.
+     */
+    protected <T extends AutoCloseable> boolean release(TJHandlePool<T> pool, T handle) {
+        if (handle == null || handles.get(pool) != handle) {
+            return false;
+        }
+        try {
+            pool.passivate(handle);
+        } catch (Exception e) {
+            handles.remove(pool);
+            pool.destroy(handle);
+        }
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void onTermination(Throwable exception) {
+        try {
+            for (Map.Entry<TJHandlePool<?>, AutoCloseable> entry : handles.entrySet()) {
+                ((TJHandlePool<AutoCloseable>) entry.getKey()).release(entry.getValue());
+            }
+            handles.clear();
+        } finally {
+            super.onTermination(exception);
+        }
+    }
+
+}
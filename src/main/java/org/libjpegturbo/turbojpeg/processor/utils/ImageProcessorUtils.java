@@ -1,11 +1,17 @@
 package org.libjpegturbo.turbojpeg.processor.utils;
 
+import org.libjpegturbo.turbojpeg.processor.api.CompressedImage;
 import org.libjpegturbo.turbojpeg.processor.api.ImageProcessException;
 import org.libjpegturbo.turbojpeg.processor.api.ImageProcessInfo;
+import org.libjpegturbo.turbojpeg.processor.api.ImageProcessResult;
 import org.libjpegturbo.turbojpeg.processor.api.ImageProcessor;
 
 import java.io.*;
-import java.util.HashMap;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.Map;
 
 /**
@@ -21,56 +27,204 @@ public class ImageProcessorUtils {
 
     protected final static int BUFF_SIZE = 8192;
 
+    /**
+     * Compresses the JPEG file to another file. The input file is memory-mapped and decompressed directly
+     * from the mapping, and the result is written through a file channel.
+     */
     public static Map<String, Object> compressImage(ImageProcessor processor, File inFile, File outFile, int quality, int numerator, int denominator, int subsampling, int flags) throws ImageProcessException {
 
-        try (FileInputStream fis = new FileInputStream(inFile)) {
+        try (FileChannel inChannel = FileChannel.open(inFile.toPath(), StandardOpenOption.READ)) {
 
-            byte[] image = inputStreamToByteArray(fis);
+            ByteBuffer image = inChannel.map(FileChannel.MapMode.READ_ONLY, 0, inChannel.size());
 
             Map<String, Object> decompData = compressImage(processor, image, quality, numerator, denominator, subsampling, flags);
-            ImageProcessInfo info = ImageProcessInfo.fromMap(new HashMap<String, Object>(decompData));
+            return writeOutputImage(decompData, outFile);
 
-            try (FileOutputStream fos = new FileOutputStream(outFile)) {
-                fos.write(info.getOutputImage(), 0, info.getOutputImageSize());
-                return info.toMap();
+        } catch (Exception e) {
+            throw new ImageProcessException(e);
+        }
+
+    }
+
+    /**
+     * Recompresses the JPEG file to another file by {@link ImageProcessor#transcodeJpegImage}, which stays in
+     * planar YUV if the target subsampling allows it. The input file is memory-mapped.
+     */
+    public static Map<String, Object> transcodeImage(ImageProcessor processor, File inFile, File outFile, int quality, int numerator, int denominator, int subsampling, int flags) throws ImageProcessException {
+
+        try (FileChannel inChannel = FileChannel.open(inFile.toPath(), StandardOpenOption.READ)) {
+
+            ByteBuffer image = inChannel.map(FileChannel.MapMode.READ_ONLY, 0, inChannel.size());
+
+            Map<String, Object> transcodeData = processor.transcodeJpegImage(image, numerator, denominator, quality, subsampling, flags);
+            return writeOutputImage(transcodeData, outFile);
+
+        } catch (Exception e) {
+            throw new ImageProcessException(e);
+        }
+
+    }
+
+    public static Map<String, Object> transcodeImage(ImageProcessor processor, File inFile, File outFile, int quality, int subsampling) throws ImageProcessException {
+        return transcodeImage(processor, inFile, outFile, quality, 1, 1, subsampling, 0);
+    }
+
+    /**
+     * Recompresses the JPEG file to another file like {@link #transcodeImage(ImageProcessor, File, File, int, int, int, int, int)},
+     * but serves the rendition from the store if it was produced before, e.g. before a restart.
+     */
+    public static ByteBuffer transcodeImage(ImageProcessor processor, RenditionStore store, File inFile, File outFile, int quality, int numerator, int denominator, int subsampling, int flags) throws ImageProcessException {
+
+        try (FileChannel inChannel = FileChannel.open(inFile.toPath(), StandardOpenOption.READ)) {
+
+            ByteBuffer image = inChannel.map(FileChannel.MapMode.READ_ONLY, 0, inChannel.size());
+            ByteBuffer rendition = transcodeImage(processor, store, image, quality, numerator, denominator, subsampling, flags);
+
+            try (FileChannel outChannel = FileChannel.open(outFile.toPath(), StandardOpenOption.WRITE,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                writeFully(outChannel, rendition.duplicate());
             }
+            return rendition;
 
+        } catch (ImageProcessException e) {
+            throw e;
         } catch (Exception e) {
             throw new ImageProcessException(e);
         }
 
     }
 
-    public static Map<String, Object> compressImage(ImageProcessor processor, byte[] image, int quality, int numerator, int denominator, int subsampling, int flags) throws ImageProcessException {
+    /**
+     * Recompresses the JPEG image by {@link ImageProcessor#transcodeJpegImage} unless the store already holds
+     * the rendition of the same image and parameters. Renditions are keyed by {@link RenditionStore#key} from
+     * the image and the parameters. Returns a read-only view of the rendition mapped from the store, which is
+     * valid even after the store is closed.
+     */
+    public static ByteBuffer transcodeImage(ImageProcessor processor, RenditionStore store, ByteBuffer image, int quality, int numerator, int denominator, int subsampling, int flags) throws ImageProcessException {
+
+        if (image == null) {
+            throw new ImageProcessException("Input image can't be null");
+        }
 
         try {
 
-            Map<String, Object> decompData = processor.decompressJpegImage(image, numerator, denominator, flags);
-            ImageProcessInfo info = ImageProcessInfo.fromMap(new HashMap<String, Object>(decompData));
+            byte[] key = store.key(image, ImageProcessor.METHOD_TRANSCODE_JPEG.hashCode(), numerator, denominator, quality, subsampling, flags);
+            ByteBuffer rendition = store.get(key);
+            if (rendition != null) {
+                return rendition;
+            }
+
+            ImageProcessResult result = processor.transcodeJpegImage(image, numerator, denominator, quality, subsampling, flags, null);
+            ByteBuffer output = ByteBuffer.wrap(result.getOutputImage(), 0, result.getOutputImageSize());
+            try {
+                if (!store.put(key, output)) {
+                    // Too large for a segment, so handed out as a copy
+                    return ByteBuffer.wrap(Arrays.copyOfRange(result.getOutputImage(), 0, result.getOutputImageSize())).asReadOnlyBuffer();
+                }
+            } finally {
+                processor.releaseBuffer(result.getOutputImage());
+            }
+            return store.get(key);
+
+        } catch (ImageProcessException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ImageProcessException(e);
+        }
+
+    }
+
+    /**
+     * Recompresses the JPEG file to another file by {@link ImageProcessor#compressAutoQuality}, which picks
+     * the smallest candidate quality reaching the given SSIM score. The input file is memory-mapped and copied
+     * at once, since the candidates are decoded from an array.
+     */
+    public static Map<String, Object> compressImageAutoQuality(ImageProcessor processor, File inFile, File outFile, int[] qualities, double minScore, int subsampling) throws ImageProcessException {
 
-            ByteArrayInputStream imageStream = processor.compressJpegImage(
-                    info.getOutputImage(), info.getOutputWidth(), info.getOutputHeight(),
-                    quality, subsampling, flags);
+        try (FileChannel inChannel = FileChannel.open(inFile.toPath(), StandardOpenOption.READ)) {
 
-            byte[] imageBuf = ShallowByteArrayInputStream.getBuffer(imageStream);
-            //int imagePos = ShallowByteArrayInputStream.getPosition(imageStream);
-            int imageSize = ShallowByteArrayInputStream.getCount(imageStream);
+            ByteBuffer mapped = inChannel.map(FileChannel.MapMode.READ_ONLY, 0, inChannel.size());
+            byte[] image = new byte[mapped.remaining()];
+            mapped.get(image);
+            Map<String, Object> compressData = processor.compressAutoQuality(image, qualities, minScore, subsampling, 0);
+            return writeOutputImage(compressData, outFile);
 
-            info.setOutputImage(imageBuf);
-            info.setOutputImageSize(imageSize);
+        } catch (Exception e) {
+            throw new ImageProcessException(e);
+        }
+
+    }
+
+    protected static Map<String, Object> writeOutputImage(Map<String, Object> data, File outFile) throws IOException {
+
+        ImageProcessInfo info = ImageProcessInfo.fromMap(data);
+
+        try (FileChannel outChannel = FileChannel.open(outFile.toPath(), StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(outChannel, ByteBuffer.wrap(info.getOutputImage(), 0, info.getOutputImageSize()));
+            return data;
+        }
+
+    }
+
+    public static Map<String, Object> compressImage(ImageProcessor processor, byte[] image, int quality, int numerator, int denominator, int subsampling, int flags) throws ImageProcessException {
+
+        try {
+            ImageProcessResult decompData = processor.decompressJpegImage(image, numerator, denominator, flags, null);
+            return compressDecompressedImage(processor, decompData, quality, subsampling, flags).toMap();
+        } catch (Exception e) {
+            throw new ImageProcessException(e);
+        }
+
+    }
 
-            return info.toMap();
+    public static Map<String, Object> compressImage(ImageProcessor processor, ByteBuffer image, int quality, int numerator, int denominator, int subsampling, int flags) throws ImageProcessException {
 
+        try {
+            ImageProcessResult decompData = processor.decompressJpegImage(image, numerator, denominator, flags, null);
+            return compressDecompressedImage(processor, decompData, quality, subsampling, flags).toMap();
         } catch (Exception e) {
             throw new ImageProcessException(e);
         }
 
     }
 
+    protected static Map<String, Object> compressDecompressedImage(ImageProcessor processor, Map<String, Object> decompData, int quality, int subsampling, int flags) throws Exception {
+        return compressDecompressedImage(processor, ImageProcessResult.fromMap(decompData), quality, subsampling, flags).toMap();
+    }
+
+    /**
+     * Compresses the decompressed image and stores the compressed image into the same result.
+     */
+    protected static ImageProcessResult compressDecompressedImage(ImageProcessor processor, ImageProcessResult info, int quality, int subsampling, int flags) throws Exception {
+
+        CompressedImage image = processor.compressJpegImageDirect(
+                info.getOutputImage(), info.getOutputWidth(), info.getOutputHeight(),
+                quality, subsampling, flags);
+
+        // Decompressed image is not needed anymore
+        processor.releaseBuffer(info.getOutputImage());
+
+        // Output image of the map always starts at the beginning of the buffer
+        byte[] imageBuf = image.getOffset() == 0 ? image.getBuffer() : image.toByteArray();
+
+        info.setOutputImage(imageBuf);
+        info.setOutputImageSize(image.getLength());
+
+        return info;
+
+    }
+
     public static Map<String, Object> compressImage(ImageProcessor processor, File inFile, File outFile, int quality) throws ImageProcessException {
         return compressImage(processor, inFile, outFile, quality, 1, 1, 0, 0);
     }
 
+    public static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
     public static byte[] inputStreamToByteArray(InputStream inStream) throws IOException {
 
         ByteArrayOutputStream buffer = new ByteArrayOutputStream();
@@ -0,0 +1,734 @@
+package org.libjpegturbo.turbojpeg.processor.utils;
+
+import org.libjpegturbo.turbojpeg.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.BufferUnderflowException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ *
+ * Persistent store of encoded renditions, e.g. recompressed images, kept in append-only segment files of
+ * a local directory, so they survive restarts without recomputing them.
+ *
+ * Every record holds its key, its data and a checksum of both. Records are appended to the newest segment,
+ * which is rolled over once it reaches the maximum segment size, and the index of the live records is kept
+ * in memory. Renditions are read from memory-mapped segments without copying them. A segment is mapped only
+ * once it's sealed, or up to its size on open, and renditions appended to the active segment since then are
+ * read from its file channel. Overwritten and removed records stay in their segments until {@link #compact()}
+ * copies the live records out of the oldest segments and deletes them.
+ *
+ * Keys are made by {@link #key(ByteBuffer, int...)} from the XXH64 hash of the original content seeded with
+ * a random value, which is drawn when the store is created and kept in its directory. Contents colliding with
+ * a stored rendition therefore can't be crafted without access to the store.
+ *
+ * The index is persisted next to the segments when a segment is sealed, after compaction and on close, together
+ * with the size of every segment it covers. On open, the persisted index is loaded and only the records
+ * appended since it was written are scanned. If it's missing, invalid or doesn't match the segments, the index
+ * is rebuilt by scanning the segments in the order they were written, which reads only the record headers of
+ * the older segments. The records scanned in the newest segment are verified by their checksums and a torn
+ * tail left by a crash is truncated.
+ *
+ * A store holds an exclusive lock on a lock file of its directory while it's open, so a directory can't be
+ * opened by two stores at once, in the same or in another process.
+ *
+ * @since version 1.1,	10/18/2026
+ *
+ * @author Dmitry Viktorov
+ *
+ */
+public class RenditionStore implements Closeable {
+
+    public final static int DEFAULT_MAX_SEGMENT_SIZE = 64 * 1024 * 1024;
+    /**
+     * Segments whose share of live records is below this ratio are compacted.
+     */
+    public final static double DEFAULT_COMPACTION_RATIO = 0.5;
+
+    protected final static int MAGIC = 0x4d4a5253;
+    /**
+     * Magic, key length, data length (negative for removed keys) and checksum.
+     */
+    protected final static int HEADER_SIZE = 4 + 4 + 4 + 8;
+    protected final static String SEGMENT_PREFIX = "segment-";
+    protected final static String SEGMENT_SUFFIX = ".dat";
+    protected final static String SEED_FILE = "seed.dat";
+    protected final static String INDEX_FILE = "index.dat";
+    protected final static String LOCK_FILE = "store.lock";
+    protected final static int INDEX_MAGIC = 0x4d4a5249;
+
+    private final static Logger log = LoggerFactory.getLogger(RenditionStore.class);
+    private final static Pattern SEGMENT_NAME = Pattern.compile(Pattern.quote(SEGMENT_PREFIX) + "(\\d+)" + Pattern.quote(SEGMENT_SUFFIX));
+
+    private final File directory;
+    private final int maxSegmentSize;
+    private final long seed;
+    private final FileChannel lockChannel;
+    private final TreeMap<Integer, Segment> segments = new TreeMap<Integer, Segment>();
+    private final Map<Key, Location> index = new HashMap<Key, Location>();
+    private Segment active;
+
+    public RenditionStore(File directory) throws IOException {
+        this(directory, DEFAULT_MAX_SEGMENT_SIZE);
+    }
+
+    /**
+     * @param directory      directory of the segment files, created if it doesn't exist
+     * @param maxSegmentSize size after which a new segment is started, at most 2 GB since segments are mapped
+     */
+    public RenditionStore(File directory, int maxSegmentSize) throws IOException {
+
+        if (maxSegmentSize <= HEADER_SIZE) {
+            throw new IllegalArgumentException("Maximum segment size is too small: " + maxSegmentSize);
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Directory " + directory + " can't be created");
+        }
+        this.directory = directory;
+        this.maxSegmentSize = maxSegmentSize;
+        this.lockChannel = lock(new File(directory, LOCK_FILE));
+        try {
+            this.seed = readSeed(new File(directory, SEED_FILE));
+        } catch (IOException e) {
+            lockChannel.close();
+            throw e;
+        }
+
+        TreeMap<Integer, File> files = new TreeMap<Integer, File>();
+        File[] list = directory.listFiles();
+        if (list != null) {
+            for (File file : list) {
+                Matcher matcher = SEGMENT_NAME.matcher(file.getName());
+                if (matcher.matches()) {
+                    files.put(Integer.valueOf(matcher.group(1)), file);
+                }
+            }
+        }
+
+        try {
+            Map<Integer, long[]> indexed = readIndex(new File(directory, INDEX_FILE), files);
+            for (Map.Entry<Integer, File> file : files.entrySet()) {
+                boolean newest = file.getKey().equals(files.lastKey());
+                Segment segment = new Segment(file.getKey(), file.getValue(), newest);
+                segments.put(segment.id, segment);
+                long[] covered = indexed.get(segment.id);
+                if (covered != null) {
+                    segment.liveBytes = covered[1];
+                }
+                recover(segment, newest, covered != null ? covered[0] : 0);
+                if (!newest) {
+                    segment.closeChannel();
+                }
+            }
+            if (segments.isEmpty()) {
+                active = createSegment(1);
+            } else {
+                active = segments.lastEntry().getValue();
+            }
+            if (indexed.isEmpty()) {
+                // The index rebuilt by the scan is persisted at once, so the scan isn't repeated after a crash
+                active.channel.force(true);
+                writeIndex();
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+
+    }
+
+    /**
+     * Creates the key of a rendition from the seeded hash and the length of the original content between
+     * the position and the limit of the buffer and the parameters the rendition is produced with. The position
+     * of the buffer is not changed.
+     */
+    public byte[] key(ByteBuffer content, int... params) {
+        ByteBuffer key = ByteBuffer.allocate(8 + 4 + 4 * params.length);
+        key.putLong(DigestUtils.hash64(content, seed)).putInt(content.remaining());
+        for (int param : params) {
+            key.putInt(param);
+        }
+        return key.array();
+    }
+
+    /**
+     * Returns a read-only view of the rendition of the key, or null if there is none. The view stays valid even
+     * if the record is compacted later.
+     */
+    public synchronized ByteBuffer get(byte[] key) throws IOException {
+        checkOpen();
+        Location location = index.get(new Key(key));
+        if (location == null) {
+            return null;
+        }
+        return segments.get(location.segment).read(location.offset, location.length);
+    }
+
+    public synchronized boolean contains(byte[] key) {
+        return index.containsKey(new Key(key));
+    }
+
+    /**
+     * Appends the rendition between the position and the limit of the buffer, replacing the previous one of the
+     * key. Returns false if the record doesn't fit into a segment. The position of the buffer is not changed.
+     */
+    public synchronized boolean put(byte[] key, ByteBuffer data) throws IOException {
+        checkOpen();
+        if ((long) HEADER_SIZE + key.length + data.remaining() > maxSegmentSize) {
+            return false;
+        }
+        append(new Key(key), data.duplicate());
+        return true;
+    }
+
+    /**
+     * Removes the rendition of the key. The removal is persisted as a record, which is dropped by compaction.
+     */
+    public synchronized boolean remove(byte[] key) throws IOException {
+        checkOpen();
+        Key indexKey = new Key(key);
+        if (!index.containsKey(indexKey)) {
+            return false;
+        }
+        append(indexKey, null);
+        return true;
+    }
+
+    /**
+     * Compacts the segments with less than {@link #DEFAULT_COMPACTION_RATIO} of live records, see
+     * {@link #compact(double)}.
+     */
+    public synchronized long compact() throws IOException {
+        return compact(DEFAULT_COMPACTION_RATIO);
+    }
+
+    /**
+     * Copies the live records of the oldest segments up to the newest one whose share of live records is below
+     * the given ratio into the active segment and deletes those segments. Since all the older segments are
+     * compacted together, the records of removed keys can be dropped. Returns the number of reclaimed bytes.
+     *
+     * A segment which can't be deleted, e.g. while its mapping is still in use on Windows, is kept together with
+     * all the newer compacted segments. It holds no live records anymore and is deleted by a later compaction.
+     */
+    public synchronized long compact(double liveRatio) throws IOException {
+
+        checkOpen();
+
+        int lastId = -1;
+        for (Segment segment : segments.values()) {
+            if (segment != active && segment.size > 0 && segment.liveBytes < segment.size * liveRatio) {
+                lastId = segment.id;
+            }
+        }
+        if (lastId < 0) {
+            return 0;
+        }
+        List<Segment> compacted = new ArrayList<Segment>(segments.headMap(lastId, true).values());
+
+        // Live records are copied first, so a crash before the segments are deleted leaves only duplicates
+        List<Key> keys = new ArrayList<Key>();
+        for (Map.Entry<Key, Location> entry : index.entrySet()) {
+            if (entry.getValue().segment <= lastId) {
+                keys.add(entry.getKey());
+            }
+        }
+        for (Key key : keys) {
+            Location location = index.get(key);
+            append(key, segments.get(location.segment).read(location.offset, location.length));
+        }
+        active.channel.force(true);
+
+        // Older segments go first, so records shadowed by a removal in a newer segment never come back,
+        // and deletion stops at the first segment which can't be deleted for the same reason
+        long reclaimed = 0;
+        for (Segment segment : compacted) {
+            segment.closeChannel();
+            if (!segment.file.delete()) {
+                log.warn("Segment {} can't be deleted, it will be compacted again", segment.file);
+                break;
+            }
+            segments.remove(segment.id);
+            segment.mapped = null;
+            reclaimed += segment.size;
+        }
+        writeIndex();
+        return reclaimed;
+
+    }
+
+    /**
+     * Returns the number of stored renditions.
+     */
+    public synchronized int size() {
+        return index.size();
+    }
+
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Returns the size of all the segments.
+     */
+    public synchronized long getTotalBytes() {
+        long total = 0;
+        for (Segment segment : segments.values()) {
+            total += segment.size;
+        }
+        return total;
+    }
+
+    /**
+     * Returns the size of the live records of all the segments.
+     */
+    public synchronized long getLiveBytes() {
+        long live = 0;
+        for (Segment segment : segments.values()) {
+            live += segment.liveBytes;
+        }
+        return live;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Forces the active segment to the storage.
+     */
+    public synchronized void flush() throws IOException {
+        checkOpen();
+        active.channel.force(false);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            if (active != null && active.channel != null && active.channel.isOpen()) {
+                active.channel.force(true);
+                writeIndex();
+            }
+        } finally {
+            for (Segment segment : segments.values()) {
+                segment.close();
+            }
+            segments.clear();
+            index.clear();
+            active = null;
+            // Releases the lock
+            lockChannel.close();
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "RenditionStore[directory=" + directory + ", size=" + index.size() + ", segments=" + segments.size() + "]";
+    }
+
+    private void checkOpen() throws IOException {
+        if (active == null) {
+            throw new IOException("Store is closed");
+        }
+    }
+
+    /**
+     * Appends the record of the key, or the removal of the key if the data is null.
+     */
+    private void append(Key key, ByteBuffer data) throws IOException {
+
+        int dataLength = data != null ? data.remaining() : -1;
+        int recordSize = HEADER_SIZE + key.bytes.length + Math.max(0, dataLength);
+        if (active.size > 0 && active.size + recordSize > maxSegmentSize) {
+            active = roll();
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.BIG_ENDIAN);
+        header.putInt(MAGIC).putInt(key.bytes.length).putInt(dataLength).putLong(checksum(key.bytes, data));
+        header.flip();
+        ByteBuffer[] record = data != null ?
+                new ByteBuffer[] { header, ByteBuffer.wrap(key.bytes), data.duplicate() } :
+                new ByteBuffer[] { header, ByteBuffer.wrap(key.bytes) };
+
+        long offset = active.size;
+        long position = offset;
+        while (position < offset + recordSize) {
+            position += active.channel.write(record, 0, record.length);
+        }
+        active.size = position;
+
+        apply(key, active, (int) offset, key.bytes.length, dataLength);
+
+    }
+
+    /**
+     * Updates the index and the live sizes of the segments by the record at the given offset.
+     */
+    private void apply(Key key, Segment segment, int offset, int keyLength, int dataLength) {
+        Location previous = dataLength >= 0 ?
+                index.put(key, new Location(segment.id, offset + HEADER_SIZE + keyLength, dataLength)) :
+                index.remove(key);
+        if (previous != null) {
+            Segment previousSegment = segments.get(previous.segment);
+            if (previousSegment != null) {
+                previousSegment.liveBytes -= HEADER_SIZE + keyLength + previous.length;
+            }
+        }
+        if (dataLength >= 0) {
+            segment.liveBytes += HEADER_SIZE + keyLength + dataLength;
+        }
+    }
+
+    /**
+     * Scans the records of the segment from the given offset into the index. The checksums of the newest segment
+     * are verified and its invalid tail is truncated.
+     */
+    private void recover(Segment segment, boolean newest, long from) throws IOException {
+
+        ByteBuffer buffer = segment.map();
+        int pos = (int) from;
+        while (pos + HEADER_SIZE <= segment.size) {
+
+            if (buffer.getInt(pos) != MAGIC) {
+                break;
+            }
+            int keyLength = buffer.getInt(pos + 4);
+            int dataLength = buffer.getInt(pos + 8);
+            long recordSize = (long) HEADER_SIZE + keyLength + Math.max(0, dataLength);
+            if (keyLength < 0 || pos + recordSize > segment.size) {
+                break;
+            }
+
+            byte[] key = new byte[keyLength];
+            ByteBuffer view = buffer.duplicate();
+            view.position(pos + HEADER_SIZE);
+            view.get(key);
+            if (newest) {
+                ByteBuffer data = null;
+                if (dataLength >= 0) {
+                    data = view.slice();
+                    data.limit(dataLength);
+                }
+                if (buffer.getLong(pos + 12) != checksum(key, data)) {
+                    break;
+                }
+            }
+
+            apply(new Key(key), segment, pos, keyLength, dataLength);
+            pos += recordSize;
+
+        }
+
+        if (pos < segment.size) {
+            if (newest) {
+                log.warn("Truncating invalid tail of {} at {} of {} bytes", segment.file, pos, segment.size);
+                segment.channel.truncate(pos);
+                segment.channel.force(true);
+                segment.size = pos;
+                segment.map();
+            } else {
+                log.warn("Ignoring invalid tail of {} at {} of {} bytes", segment.file, pos, segment.size);
+                segment.size = pos;
+            }
+        }
+
+    }
+
+    private Segment roll() throws IOException {
+        Segment sealed = active;
+        sealed.channel.force(true);
+        sealed.map();
+        sealed.closeChannel();
+        Segment segment = createSegment(sealed.id + 1);
+        writeIndex();
+        return segment;
+    }
+
+    /**
+     * Writes the index with the segments and their sizes to a temporary file and moves it over the index file.
+     * The segments are forced by the callers first, so the index never covers records which aren't persisted.
+     */
+    private void writeIndex() throws IOException {
+
+        int size = 4 + 4 + segments.size() * (4 + 8 + 8) + 4 + 8;
+        for (Map.Entry<Key, Location> entry : index.entrySet()) {
+            size += 4 + entry.getKey().bytes.length + 4 + 4 + 4;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.BIG_ENDIAN);
+        buffer.putInt(INDEX_MAGIC).putInt(segments.size());
+        for (Segment segment : segments.values()) {
+            buffer.putInt(segment.id).putLong(segment.size).putLong(segment.liveBytes);
+        }
+        buffer.putInt(index.size());
+        for (Map.Entry<Key, Location> entry : index.entrySet()) {
+            Location location = entry.getValue();
+            buffer.putInt(entry.getKey().bytes.length).put(entry.getKey().bytes);
+            buffer.putInt(location.segment).putInt(location.offset).putInt(location.length);
+        }
+        buffer.putLong(DigestUtils.hash64(ByteBuffer.wrap(buffer.array(), 0, size - 8), 0));
+        buffer.flip();
+
+        File file = new File(directory, INDEX_FILE);
+        File tmp = new File(directory, INDEX_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+    }
+
+    /**
+     * Loads the persisted index and returns the size and the live bytes of every segment it covers, or an empty
+     * map if the index
+     * has to be rebuilt by a scan: the file is missing or invalid, a segment it covers is missing or shorter,
+     * or a segment older than its newest one isn't covered.
+     */
+    private Map<Integer, long[]> readIndex(File file, TreeMap<Integer, File> files) throws IOException {
+
+        Map<Integer, long[]> covered = new HashMap<Integer, long[]>();
+        if (!file.exists() || files.isEmpty()) {
+            return covered;
+        }
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        try {
+
+            ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.BIG_ENDIAN);
+            if (bytes.length < 8 + 4 + 8 || buffer.getInt() != INDEX_MAGIC ||
+                    buffer.getLong(bytes.length - 8) != DigestUtils.hash64(ByteBuffer.wrap(bytes, 0, bytes.length - 8), 0)) {
+                log.warn("Index {} is invalid, the segments are scanned", file);
+                return covered;
+            }
+
+            int segmentCount = buffer.getInt();
+            int newestId = -1;
+            for (int i = 0; i < segmentCount; i++) {
+                int id = buffer.getInt();
+                long size = buffer.getLong();
+                File segment = files.get(id);
+                if (segment == null || segment.length() < size) {
+                    log.warn("Index {} doesn't match segment {}, the segments are scanned", file, id);
+                    return new HashMap<Integer, long[]>();
+                }
+                covered.put(id, new long[] { size, buffer.getLong() });
+                newestId = Math.max(newestId, id);
+            }
+            for (Integer id : files.headMap(newestId).keySet()) {
+                if (!covered.containsKey(id)) {
+                    log.warn("Index {} doesn't cover segment {}, the segments are scanned", file, id);
+                    return new HashMap<Integer, long[]>();
+                }
+            }
+
+            Map<Key, Location> entries = new HashMap<Key, Location>();
+            int entryCount = buffer.getInt();
+            for (int i = 0; i < entryCount; i++) {
+                byte[] key = new byte[buffer.getInt()];
+                buffer.get(key);
+                entries.put(new Key(key), new Location(buffer.getInt(), buffer.getInt(), buffer.getInt()));
+            }
+            index.putAll(entries);
+            return covered;
+
+        } catch (BufferUnderflowException | NegativeArraySizeException e) {
+            log.warn("Index {} is invalid, the segments are scanned", file);
+            return new HashMap<Integer, long[]>();
+        }
+
+    }
+
+    /**
+     * Takes an exclusive lock on the lock file, held by the returned channel until it's closed.
+     */
+    private static FileChannel lock(File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        if (lock == null) {
+            channel.close();
+            throw new IOException("Directory " + file.getParentFile() + " is already used by another store");
+        }
+        return channel;
+    }
+
+    private Segment createSegment(int id) throws IOException {
+        Segment segment = new Segment(id, new File(directory, String.format("%s%08d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX)), true);
+        segments.put(id, segment);
+        return segment;
+    }
+
+    /**
+     * Reads the seed of the key hashes, or draws and persists a new one if the store is new.
+     */
+    private static long readSeed(File file) throws IOException {
+        if (file.exists()) {
+            byte[] bytes = Files.readAllBytes(file.toPath());
+            if (bytes.length != 8) {
+                throw new IOException("Seed file " + file + " is invalid");
+            }
+            return ByteBuffer.wrap(bytes).getLong();
+        }
+        long seed = new SecureRandom().nextLong();
+        File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer bytes = ByteBuffer.allocate(8).putLong(0, seed);
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(true);
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        return seed;
+    }
+
+    private static long checksum(byte[] key, ByteBuffer data) {
+        long hash = DigestUtils.hash64(key, 0);
+        return data != null ? DigestUtils.hash64(data, hash) : ~hash;
+    }
+
+    /**
+     * Segment file, mapped read-only for reading. Only the active segment keeps its channel open, and its records
+     * beyond the mapping are read from the channel.
+     */
+    private static final class Segment {
+
+        private final int id;
+        private final File file;
+        private FileChannel channel;
+        private MappedByteBuffer mapped;
+        private long size;
+        private long liveBytes;
+
+        private Segment(int id, File file, boolean writable) throws IOException {
+            this.id = id;
+            this.file = file;
+            this.channel = writable ?
+                    FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE) :
+                    FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            this.size = channel.size();
+            if (writable) {
+                channel.position(size);
+            }
+        }
+
+        /**
+         * Maps the segment up to its current size.
+         */
+        private ByteBuffer map() throws IOException {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return mapped;
+        }
+
+        /**
+         * Returns a read-only view of the given range, which is a slice of the mapping if the mapping covers it
+         * and a copy read from the channel otherwise.
+         */
+        private ByteBuffer read(int offset, int length) throws IOException {
+            if (mapped != null && (long) offset + length <= mapped.capacity()) {
+                ByteBuffer view = mapped.duplicate();
+                view.position(offset);
+                view.limit(offset + length);
+                return view.slice();
+            }
+            if (channel == null) {
+                throw new IOException("Segment " + file + " is closed");
+            }
+            ByteBuffer data = ByteBuffer.allocate(length);
+            while (data.hasRemaining()) {
+                if (channel.read(data, offset + data.position()) < 0) {
+                    throw new IOException("Segment " + file + " is shorter than expected");
+                }
+            }
+            data.flip();
+            return data.asReadOnlyBuffer();
+        }
+
+        private void closeChannel() throws IOException {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+        }
+
+        private void close() {
+            try {
+                closeChannel();
+            } catch (IOException e) {
+                log.warn("Segment " + file + " couldn't be closed", e);
+            }
+            mapped = null;
+        }
+
+    }
+
+    /**
+     * Location of the data of a record.
+     */
+    private static final class Location {
+
+        private final int segment;
+        private final int offset;
+        private final int length;
+
+        private Location(int segment, int offset, int length) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+
+    }
+
+    private static final class Key {
+
+        private final byte[] bytes;
+        private final int hashCode;
+
+        private Key(byte[] bytes) {
+            this.bytes = bytes;
+            this.hashCode = Arrays.hashCode(bytes);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o || (o instanceof Key && Arrays.equals(bytes, ((Key) o).bytes));
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+    }
+
+}
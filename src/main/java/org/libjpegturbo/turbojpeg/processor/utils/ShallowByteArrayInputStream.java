@@ -8,6 +8,11 @@ import java.lang.reflect.Field;
  * It's may useful to retrieve the fields directly and save time on copy of the
  * internal byte array while reading the stream.
  *
+ * The members reading the fields of another stream by reflection are deprecated, since the reflective access
+ * fails under strong encapsulation. The compressed image returned by
+ * {@link org.libjpegturbo.turbojpeg.processor.api.ImageProcessor#compressJpegImageDirect} exposes its buffer
+ * without it.
+ *
  * @since version 1.0,	01/23/2016
  *
  * @author Dmitry Viktorov
@@ -19,6 +24,10 @@ public class ShallowByteArrayInputStream extends ByteArrayInputStream {
         super(buf, offset, length);
     }
 
+    /**
+     * @deprecated use {@link org.libjpegturbo.turbojpeg.processor.api.CompressedImage} instead.
+     */
+    @Deprecated
     public ShallowByteArrayInputStream(ByteArrayInputStream is) throws ReflectiveOperationException {
         super(getBuffer(is), getPosition(is), getCount(is));
     }
@@ -35,14 +44,26 @@ public class ShallowByteArrayInputStream extends ByteArrayInputStream {
         return count;
     }
 
+    /**
+     * @deprecated use {@link org.libjpegturbo.turbojpeg.processor.api.CompressedImage} instead.
+     */
+    @Deprecated
     public static byte[] getBuffer(ByteArrayInputStream is) throws ReflectiveOperationException {
         return getField(is, "buf");
     }
 
+    /**
+     * @deprecated use {@link org.libjpegturbo.turbojpeg.processor.api.CompressedImage} instead.
+     */
+    @Deprecated
     public static int getPosition(ByteArrayInputStream is) throws ReflectiveOperationException {
         return getField(is, "pos");
     }
 
+    /**
+     * @deprecated use {@link org.libjpegturbo.turbojpeg.processor.api.CompressedImage} instead.
+     */
+    @Deprecated
     public static int getCount(ByteArrayInputStream is) throws ReflectiveOperationException {
         return getField(is, "count");
     }
@@ -4,6 +4,11 @@ import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
 import static org.junit.Assert.*;
 
 /**
@@ -47,4 +52,34 @@ public class AdvancedTJLoaderTest {
 
     }
 
+    @Test
+    public void manifestTest() throws IOException {
+
+        String internalLibPath = AdvancedTJLoader.getLibraryFullInternalPath("/");
+        String extractedLibPath = AdvancedTJLoader.getFullExtractedLibraryPath();
+
+        // Renewed library is extracted with its manifest, so the next start doesn't hash it
+        assertTrue("Extracted library is not verified by its manifest", AdvancedTJLoader.isExtractedLibraryValid(internalLibPath, extractedLibPath));
+
+        File libFile = File.createTempFile("libturbojpeg", ".lib");
+        File manifestFile = new File(libFile.getPath() + AdvancedTJLoader.MANIFEST_SUFFIX);
+        libFile.deleteOnExit();
+        manifestFile.deleteOnExit();
+
+        Files.copy(new File(extractedLibPath).toPath(), libFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        assertFalse(AdvancedTJLoader.isExtractedLibraryValid(internalLibPath, libFile.getPath()));
+
+        AdvancedTJLoader.writeManifest(libFile, internalLibPath, AdvancedTJLoader.getLibrariesData().get(internalLibPath));
+        assertTrue(AdvancedTJLoader.isExtractedLibraryValid(internalLibPath, libFile.getPath()));
+
+        // Modified library or a manifest of another library don't match
+        assertFalse(AdvancedTJLoader.isExtractedLibraryValid(internalLibPath + ".other", libFile.getPath()));
+        assertTrue(libFile.setLastModified(libFile.lastModified() - 10000));
+        assertFalse(AdvancedTJLoader.isExtractedLibraryValid(internalLibPath, libFile.getPath()));
+
+        AdvancedTJLoader.writeManifest(libFile, internalLibPath, "00000000000000000000000000000000");
+        assertFalse(AdvancedTJLoader.isExtractedLibraryValid(internalLibPath, libFile.getPath()));
+
+    }
+
 }
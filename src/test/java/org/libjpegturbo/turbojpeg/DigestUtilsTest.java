@@ -0,0 +1,62 @@
+package org.libjpegturbo.turbojpeg;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ *
+ * Tests for the digest utilities.
+ *
+ * @since version 1.1,	10/18/2026
+ *
+ * @author Dmitry Viktorov
+ *
+ */
+public class DigestUtilsTest {
+
+    @Test
+    public void hash64Test() {
+
+        // Reference values of the XXH64 implementation
+        assertEquals(0xEF46DB3751D8E999L, DigestUtils.hash64(new byte[0], 0));
+        assertEquals(0xD24EC4F1A98C6E5BL, DigestUtils.hash64("a".getBytes(), 0));
+        assertEquals(0x44BC2CF5AD770999L, DigestUtils.hash64("abc".getBytes(), 0));
+        assertEquals(0xD93FA2DFEE5C24C9L, DigestUtils.hash64(sequence(37), 0));
+        assertEquals(0x6AC1E58032166597L, DigestUtils.hash64(sequence(100), 0));
+        assertEquals(0x028BA1AE2DE4DE27L, DigestUtils.hash64(sequence(100), 12345));
+
+        assertNotEquals(DigestUtils.hash64(sequence(100), 0), DigestUtils.hash64(sequence(99), 0));
+
+    }
+
+    @Test
+    public void bufferHash64Test() {
+
+        byte[] data = sequence(100);
+
+        // Only the bytes between the position and the limit are hashed, in any byte order
+        ByteBuffer direct = ByteBuffer.allocateDirect(110).order(ByteOrder.BIG_ENDIAN);
+        direct.position(5);
+        direct.put(data);
+        direct.position(5);
+        direct.limit(105);
+        assertEquals(0x6AC1E58032166597L, DigestUtils.hash64(direct, 0));
+        assertEquals(5, direct.position());
+        assertEquals(ByteOrder.BIG_ENDIAN, direct.order());
+
+    }
+
+    private static byte[] sequence(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) i;
+        }
+        return data;
+    }
+
+}
@@ -0,0 +1,177 @@
+package org.libjpegturbo.turbojpeg;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.libjpegturbo.turbojpeg.processor.utils.ImageProcessorUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * Tests for the <code>ByteBuffer</code> overloads of the compressor, the decompressor and the YUV image.
+ *
+ * @since version 1.1,	10/18/2026
+ *
+ * @author Dmitry Viktorov
+ *
+ */
+public class TJByteBufferTest {
+
+    private byte[] jpegImage = null;
+
+    @Before
+    public void doBefore() throws IOException {
+        jpegImage = ImageProcessorUtils.inputStreamToByteArray(
+                TJByteBufferTest.class.getResourceAsStream("/images/i10_620p_sport.jpg"));
+    }
+
+    @Test
+    public void directDecompressTest() throws Exception {
+
+        TJSizeClassBufferPool bufferPool = new TJSizeClassBufferPool();
+
+        byte[] expected;
+        int width, height;
+        try (TJDecompressor decompressor = new TJDecompressor(jpegImage)) {
+            width = decompressor.getWidth();
+            height = decompressor.getHeight();
+            expected = new byte[width * height * 3];
+            decompressor.decompress(expected, 0, 0, width, 0, height, TJ.PF_RGB, 0);
+        }
+
+        ByteBuffer src = ByteBuffer.allocateDirect(jpegImage.length + 10);
+        src.position(10);
+        src.put(jpegImage);
+        src.position(10);
+
+        ByteBuffer dst = ByteBuffer.allocateDirect(expected.length + 5);
+        dst.position(5);
+
+        try (TJDecompressor decompressor = new TJDecompressor()) {
+            decompressor.setBufferPool(bufferPool);
+            decompressor.setSourceImage(src);
+            assertEquals(10, src.position());
+            assertEquals(width, decompressor.getWidth());
+            assertEquals(height, decompressor.getHeight());
+
+            decompressor.decompress(dst, 0, 0, width, 0, height, TJ.PF_RGB, 0);
+            assertEquals(5, dst.position());
+
+            decompressor.clearSourceImage();
+            assertTrue("Staging buffers must be given back to the pool", bufferPool.getRetainedBytes() > 0);
+        }
+
+        byte[] actual = new byte[expected.length];
+        dst.get(actual);
+        assertArrayEquals(expected, actual);
+
+    }
+
+    @Test
+    public void directCompressTest() throws Exception {
+
+        int width = 64, height = 32, pitch = width * 3;
+        byte[] pixels = new byte[pitch * height];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = (byte) (i * 7);
+        }
+
+        byte[] expected;
+        int expectedSize;
+        try (TJCompressor compressor = new TJCompressor()) {
+            compressor.setSourceImage(pixels, 0, 0, width, pitch, height, TJ.PF_RGB);
+            compressor.setSubsamp(TJ.SAMP_420);
+            compressor.setJPEGQuality(80);
+            expected = compressor.compress(0);
+            expectedSize = compressor.getCompressedSize();
+        }
+
+        ByteBuffer src = ByteBuffer.allocateDirect(pixels.length);
+        src.put(pixels);
+        src.flip();
+
+        ByteBuffer dst = ByteBuffer.allocateDirect(TJ.bufSize(width, height, TJ.SAMP_420));
+
+        try (TJCompressor compressor = new TJCompressor()) {
+            compressor.setBufferPool(new TJSizeClassBufferPool());
+            compressor.setSourceImage(src, 0, 0, width, 0, height, TJ.PF_RGB);
+            compressor.setSubsamp(TJ.SAMP_420);
+            compressor.setJPEGQuality(80);
+            compressor.compress(dst, 0);
+        }
+
+        assertEquals(expectedSize, dst.position());
+        dst.flip();
+        byte[] actual = new byte[dst.remaining()];
+        dst.get(actual);
+        assertArrayEquals(Arrays.copyOf(expected, expectedSize), actual);
+
+    }
+
+    @Test
+    public void stagingPoolTest() throws Exception {
+
+        ByteBuffer src = ByteBuffer.allocateDirect(jpegImage.length);
+        src.put(jpegImage);
+        src.flip();
+
+        // Without a pool of their own, decompressors reuse the shared staging buffers
+        long hits = TJSizeClassBufferPool.STAGING.getHitCount();
+        for (int i = 0; i < 2; i++) {
+            try (TJDecompressor decompressor = new TJDecompressor()) {
+                decompressor.setSourceImage(src);
+                assertEquals(620, decompressor.getWidth());
+            }
+        }
+        assertTrue(TJSizeClassBufferPool.STAGING.getHitCount() > hits);
+
+    }
+
+    @Test
+    public void yuvPlanesTest() throws Exception {
+
+        int width = 32, height = 16;
+        byte[] plane = new byte[width * height];
+        for (int i = 0; i < plane.length; i++) {
+            plane[i] = (byte) (i * 3);
+        }
+        ByteBuffer direct = ByteBuffer.allocateDirect(plane.length);
+        direct.put(plane);
+        direct.flip();
+
+        TJSizeClassBufferPool bufferPool = new TJSizeClassBufferPool();
+        YUVImage image = new YUVImage(new ByteBuffer[] { direct }, width, null, height, TJ.SAMP_GRAY, bufferPool);
+        assertEquals(1, bufferPool.getLeaseCount());
+        assertArrayEquals(plane, Arrays.copyOf(image.getPlanes()[0], plane.length));
+        assertEquals(0, direct.position());
+
+        try (TJCompressor compressor = new TJCompressor()) {
+            compressor.setSourceImage(image);
+            compressor.setSubsamp(TJ.SAMP_GRAY);
+            compressor.setJPEGQuality(80);
+            assertTrue(compressor.compress(0).length > 0);
+        }
+
+        image.releaseStagedPlanes();
+        assertEquals("Staging planes must be given back to the pool", 1 << TJSizeClassBufferPool.MIN_CLASS_SHIFT,
+                bufferPool.getRetainedBytes());
+        image.releaseStagedPlanes();
+        assertEquals(1 << TJSizeClassBufferPool.MIN_CLASS_SHIFT, bufferPool.getRetainedBytes());
+
+    }
+
+    @Test
+    public void heapBufferTest() throws Exception {
+
+        try (TJDecompressor decompressor = new TJDecompressor()) {
+            decompressor.setSourceImage(ByteBuffer.wrap(jpegImage));
+            assertSame("Heap buffers must not be copied", jpegImage, decompressor.getJPEGBuf());
+        }
+
+    }
+
+}
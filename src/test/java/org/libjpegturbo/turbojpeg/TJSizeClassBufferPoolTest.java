@@ -0,0 +1,92 @@
+package org.libjpegturbo.turbojpeg;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * Tests for the size-class buffer pool.
+ *
+ * @since version 1.1,	10/18/2026
+ *
+ * @author Dmitry Viktorov
+ *
+ */
+public class TJSizeClassBufferPoolTest {
+
+    @Test
+    public void sizeClassTest() {
+
+        TJSizeClassBufferPool pool = new TJSizeClassBufferPool(2, 0);
+
+        assertEquals(4096, pool.lease(1).length);
+        assertEquals(4096, pool.lease(4096).length);
+        assertEquals(8192, pool.lease(4097).length);
+        assertEquals(1 << 20, pool.lease((1 << 20) - 100).length);
+
+    }
+
+    @Test
+    public void leaseReleaseTest() {
+
+        TJSizeClassBufferPool pool = new TJSizeClassBufferPool(2, 0);
+
+        byte[] b1 = pool.lease(5000);
+        byte[] b2 = pool.lease(6000);
+        byte[] b3 = pool.lease(7000);
+        pool.release(b1);
+        pool.release(b2);
+        pool.release(b3);
+        assertEquals("Only 2 buffers per class must be kept", 2 * 8192, pool.getRetainedBytes());
+
+        byte[] r1 = pool.lease(8000);
+        byte[] r2 = pool.lease(8000);
+        assertTrue("Released buffer must be reused", r1 == b1 || r1 == b2);
+        assertTrue("Released buffer must be reused", r2 == b1 || r2 == b2);
+        assertEquals(2, pool.getHitCount());
+        assertEquals(0, pool.getRetainedBytes());
+
+        // Buffers which don't match a size class are not pooled
+        pool.release(new byte[5000]);
+        pool.release(null);
+        assertEquals(0, pool.getRetainedBytes());
+
+    }
+
+    @Test
+    public void softCapTest() {
+
+        TJSizeClassBufferPool pool = new TJSizeClassBufferPool(4, 10000);
+
+        pool.release(pool.lease(8192));
+        pool.release(new byte[8192]);
+        assertEquals("Soft cap must limit retained bytes", 8192, pool.getRetainedBytes());
+
+        pool.clear();
+        assertEquals(0, pool.getRetainedBytes());
+
+    }
+
+    @Test
+    public void doubleReleaseTest() {
+
+        TJSizeClassBufferPool pool = new TJSizeClassBufferPool(4, 0);
+
+        byte[] buffer = pool.lease(5000);
+        pool.release(buffer);
+        try {
+            pool.release(buffer);
+            fail("Idle buffer must not be released again");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        assertEquals(8192, pool.getRetainedBytes());
+
+        // The buffer is leased only once
+        assertSame(buffer, pool.lease(5000));
+        assertNotSame(buffer, pool.lease(5000));
+
+    }
+
+}
@@ -5,9 +5,12 @@ import org.junit.Test;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.util.HashMap;
+import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 /**
  *
@@ -49,6 +52,53 @@ public class ImageProcessInfoTest {
         info.setInputHeight(606);
         assertEquals(606, info.getInputHeight());
 
+        assertEquals(0, info.getQuality());
+        info.setQuality(75);
+        assertEquals(75, info.getQuality());
+
+        assertEquals(0, info.getIterations());
+        info.setIterations(7);
+        assertEquals(7, info.getIterations());
+
+        assertEquals(0.0, info.getScore(), 0.0);
+        info.setScore(0.97);
+        assertEquals(0.97, info.getScore(), 0.0);
+
+    }
+
+    @Test
+    public void processResultTest() {
+
+        byte[] image = new byte[100];
+        ImageProcessResult result = new ImageProcessResult().
+                setInputWidth(505).setInputHeight(606).
+                setOutputWidth(404).setOutputHeight(202).
+                setOutputImage(image).setOutputImageSize(100);
+
+        // Quality keys are not part of the map unless they are set
+        Map<String, Object> map = result.toMap();
+        assertEquals(6, map.size());
+        ImageProcessInfo info = ImageProcessInfo.fromMap(map);
+        assertEquals(505, info.getInputWidth());
+        assertEquals(606, info.getInputHeight());
+        assertEquals(404, info.getOutputWidth());
+        assertEquals(202, info.getOutputHeight());
+        assertSame(image, info.getOutputImage());
+        assertEquals(100, info.getOutputImageSize());
+
+        result.setQuality(75).setIterations(7).setScore(0.97);
+        ImageProcessResult copy = ImageProcessResult.fromMap(result.toMap());
+        assertEquals(75, copy.getQuality());
+        assertEquals(7, copy.getIterations());
+        assertEquals(0.97, copy.getScore(), 0.0);
+        assertEquals("404x202", copy.getOutputDimension());
+
+        assertSame(result, ImageProcessResult.reuse(result));
+        assertNull(result.getOutputImage());
+        assertEquals(0, result.getOutputWidth());
+        assertEquals(0, result.getQuality());
+        assertNotNull(ImageProcessResult.reuse(null));
+
     }
 
 }
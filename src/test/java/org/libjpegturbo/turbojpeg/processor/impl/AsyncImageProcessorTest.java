@@ -0,0 +1,155 @@
+package org.libjpegturbo.turbojpeg.processor.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.libjpegturbo.turbojpeg.processor.api.*;
+import org.libjpegturbo.turbojpeg.processor.utils.ImageProcessorUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * Tests for the asynchronous image processor.
+ *
+ * @since version 1.1,	10/18/2026
+ *
+ * @author Dmitry Viktorov
+ *
+ */
+public class AsyncImageProcessorTest {
+
+    private byte[] image = null;
+    private AsyncImageProcessor processor = null;
+
+    @Before
+    public void doBefore() throws IOException {
+        image = ImageProcessorUtils.inputStreamToByteArray(AsyncImageProcessorTest.class.getResourceAsStream("/images/i10_620p_sport.jpg"));
+        processor = new AsyncImageProcessor(new ImageProcessorImpl(), 1, 1, null);
+    }
+
+    @After
+    public void doAfter() {
+        processor.close();
+    }
+
+    @Test
+    public void roundTripTest() throws Exception {
+
+        assertTrue(processor.isUsable());
+
+        Map<String, Object> decompressed = processor.decompressJpegImage(image, 1, 1, 0).get(10, TimeUnit.SECONDS);
+        ImageProcessInfo info = ImageProcessInfo.fromMap(decompressed);
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicReference<ByteArrayInputStream> result = new AtomicReference<ByteArrayInputStream>();
+        processor.compressJpegImage(info.getOutputImage(), info.getOutputWidth(), info.getOutputHeight(), 80, 0, 0)
+                .addCallback(new ImageProcessCallback<ByteArrayInputStream>() {
+                    @Override
+                    public void onSuccess(ByteArrayInputStream stream) {
+                        result.set(stream);
+                        latch.countDown();
+                    }
+
+                    @Override
+                    public void onFailure(Throwable failure) {
+                        latch.countDown();
+                    }
+                });
+
+        assertTrue("Callback must be notified", latch.await(10, TimeUnit.SECONDS));
+        assertNotNull("Image must be compressed", result.get());
+        assertTrue(result.get().available() > 0);
+
+    }
+
+    @Test
+    public void failureTest() throws Exception {
+
+        ImageProcessFuture<ImageHeader> future = processor.probe(new byte[] { 1, 2, 3 });
+        try {
+            future.get(10, TimeUnit.SECONDS);
+            fail("Invalid image must not be probed");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof ImageProcessException);
+        }
+
+        // Callbacks added after the completion are notified immediately
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        future.addCallback(new ImageProcessCallback<ImageHeader>() {
+            @Override
+            public void onSuccess(ImageHeader result) {
+            }
+
+            @Override
+            public void onFailure(Throwable e) {
+                failure.set(e);
+            }
+        });
+        assertTrue(failure.get() instanceof ImageProcessException);
+
+    }
+
+    @Test
+    public void rejectionTest() throws Exception {
+
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        ImageProcessTask<Object> blockingTask = new ImageProcessTask<Object>() {
+            @Override
+            public Object call(ImageProcessor processor) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            }
+        };
+
+        // One task runs, one waits in the queue
+        Future<Object> running = processor.submit(blockingTask);
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        Future<ImageHeader> queued = processor.probe(image);
+        assertEquals(1, processor.getQueueDepth());
+
+        try {
+            processor.probe(image);
+            fail("Operation must be rejected when the queue is full");
+        } catch (RejectedExecutionException e) {
+            assertEquals(1, processor.getRejectedCount());
+        }
+
+        release.countDown();
+        running.get(10, TimeUnit.SECONDS);
+        assertNotNull(queued.get(10, TimeUnit.SECONDS));
+        assertEquals(1, processor.getMaxQueueDepth());
+
+    }
+
+    @Test
+    public void shutdownRejectionTest() throws Exception {
+
+        // Caller-runs policy would drop the operation and leave its future incomplete
+        AsyncImageProcessor callerRuns = new AsyncImageProcessor(new ImageProcessorImpl(), 1, 1,
+                AsyncImageProcessor.createRejectionHandler(AsyncImageProcessor.POLICY_CALLER_RUNS));
+        callerRuns.shutdown();
+        assertTrue(callerRuns.awaitTermination(10, TimeUnit.SECONDS));
+
+        try {
+            callerRuns.probe(image);
+            fail("Operation must be rejected after shutdown");
+        } catch (RejectedExecutionException e) {
+            assertEquals(1, callerRuns.getRejectedCount());
+        }
+
+    }
+
+}
@@ -0,0 +1,125 @@
+package org.libjpegturbo.turbojpeg.processor.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.libjpegturbo.turbojpeg.TJ;
+import org.libjpegturbo.turbojpeg.processor.api.ImageProcessException;
+import org.libjpegturbo.turbojpeg.processor.api.ImageProcessInfo;
+import org.libjpegturbo.turbojpeg.processor.api.ImageProcessResult;
+import org.libjpegturbo.turbojpeg.processor.utils.ImageProcessorUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * Tests for the processor caching the outputs of recompressing operations.
+ *
+ * @since version 1.1,	10/18/2026
+ *
+ * @author Dmitry Viktorov
+ *
+ */
+public class CachingImageProcessorTest {
+
+    private byte[] image = null;
+
+    @Before
+    public void doBefore() throws IOException {
+        image = ImageProcessorUtils.inputStreamToByteArray(CachingImageProcessorTest.class.getResourceAsStream("/images/i10_620p_sport.jpg"));
+    }
+
+    @Test
+    public void transcodeTest() throws ImageProcessException {
+
+        CachingImageProcessor processor = new CachingImageProcessor(new ImageProcessorImpl());
+
+        ImageProcessResult first = processor.transcodeJpegImage(image, 1, 1, 80, TJ.SAMP_420, 0, null);
+        byte[] expected = Arrays.copyOf(first.getOutputImage(), first.getOutputImageSize());
+        processor.releaseBuffer(first.getOutputImage());
+        assertEquals(0, processor.getCache().getHitCount());
+        assertEquals(1, processor.getCache().getMissCount());
+        assertEquals(1, processor.getCache().size());
+
+        // The same image in a buffer hits the cache, and the returned output can be modified
+        ImageProcessResult second = processor.transcodeJpegImage(ByteBuffer.wrap(image), 1, 1, 80, TJ.SAMP_420, 0, null);
+        assertEquals(1, processor.getCache().getHitCount());
+        assertArrayEquals(expected, Arrays.copyOf(second.getOutputImage(), second.getOutputImageSize()));
+        assertEquals(first.getOutputWidth(), second.getOutputWidth());
+        Arrays.fill(second.getOutputImage(), (byte) 0);
+
+        ImageProcessInfo third = ImageProcessInfo.fromMap(processor.transcodeJpegImage(image, 1, 1, 80, TJ.SAMP_420, 0));
+        assertEquals(2, processor.getCache().getHitCount());
+        assertArrayEquals(expected, Arrays.copyOf(third.getOutputImage(), third.getOutputImageSize()));
+
+        // Other parameters are other outputs
+        processor.transcodeJpegImage(image, 1, 2, 80, TJ.SAMP_420, 0, null);
+        assertEquals(2, processor.getCache().getMissCount());
+        assertEquals(2, processor.getCache().size());
+
+    }
+
+    @Test
+    public void compressToSizeTest() throws ImageProcessException {
+
+        CachingImageProcessor processor = new CachingImageProcessor(new ImageProcessorImpl());
+
+        ImageProcessInfo first = ImageProcessInfo.fromMap(processor.compressToSize(image, 20000, 30, 90, TJ.SAMP_420, 0));
+        ImageProcessInfo second = ImageProcessInfo.fromMap(processor.compressToSize(image, 20000, 30, 90, TJ.SAMP_420, 0));
+        assertEquals(1, processor.getCache().getHitCount());
+        assertEquals(first.getQuality(), second.getQuality());
+        assertEquals(first.getIterations(), second.getIterations());
+        assertArrayEquals(Arrays.copyOf(first.getOutputImage(), first.getOutputImageSize()),
+                Arrays.copyOf(second.getOutputImage(), second.getOutputImageSize()));
+
+    }
+
+    @Test
+    public void seedTest() {
+
+        CachingImageProcessor first = new CachingImageProcessor(new ImageProcessorImpl());
+        CachingImageProcessor second = new CachingImageProcessor(new ImageProcessorImpl());
+
+        // Keys don't depend on the kind of buffer, but do depend on the instance
+        assertEquals(first.hash(image), first.hash(ByteBuffer.wrap(image)));
+        assertNotEquals(first.hash(image), second.hash(image));
+
+    }
+
+    @Test
+    public void admissionTest() {
+
+        ImageOutputCache<String, String> cache = new ImageOutputCache<String, String>(100, 64);
+
+        assertTrue(cache.put("a", "a", 50));
+        assertTrue(cache.put("b", "b", 50));
+        assertFalse("Value heavier than the cache can't be admitted", cache.put("c", "c", 101));
+
+        // Popular values are kept when a one-off value doesn't fit
+        for (int i = 0; i < 3; i++) {
+            assertEquals("a", cache.get("a"));
+            assertEquals("b", cache.get("b"));
+        }
+        assertNull(cache.get("c"));
+        assertFalse(cache.put("c", "c", 50));
+        assertEquals(2, cache.size());
+        assertEquals(0, cache.getEvictionCount());
+
+        // Once requested more often, the value evicts the least recently used one
+        for (int i = 0; i < 5; i++) {
+            assertNull(cache.get("c"));
+        }
+        assertEquals("a", cache.get("a"));
+        assertTrue(cache.put("c", "c", 50));
+        assertEquals(1, cache.getEvictionCount());
+        assertNull(cache.get("b"));
+        assertEquals("a", cache.get("a"));
+        assertEquals(100, cache.getWeight());
+        assertEquals(2, cache.getRejectionCount());
+
+    }
+
+}
@@ -2,18 +2,39 @@ package org.libjpegturbo.turbojpeg.processor.impl;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.libjpegturbo.turbojpeg.TJ;
+import org.libjpegturbo.turbojpeg.TJDecompressor;
+import org.libjpegturbo.turbojpeg.TJSizeClassBufferPool;
+import org.libjpegturbo.turbojpeg.TJTransform;
+import org.libjpegturbo.turbojpeg.processor.api.CompressedImage;
+import org.libjpegturbo.turbojpeg.processor.api.ImageBatchResult;
+import org.libjpegturbo.turbojpeg.processor.api.ImageHeader;
 import org.libjpegturbo.turbojpeg.processor.api.ImageProcessException;
 import org.libjpegturbo.turbojpeg.processor.api.ImageProcessInfo;
+import org.libjpegturbo.turbojpeg.processor.api.ImageProcessResult;
 import org.libjpegturbo.turbojpeg.processor.api.ImageProcessor;
 import org.libjpegturbo.turbojpeg.processor.utils.ImageProcessorUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.awt.Rectangle;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.Assert.*;
 
@@ -48,6 +69,590 @@ public class ImageProcessorTest {
         compressionTest(new ImageProcessorReflectionDelegate(), inImage);
     }
 
+    @Test
+    public void pooledHandlesTest() throws IOException, URISyntaxException, ImageProcessException {
+
+        ImageProcessorImpl processor = new ImageProcessorImpl(4, 60000);
+        compressionTest(processor, inImage);
+        compressionTest(processor, inImage);
+
+        assertEquals("Native compressor must be created only once", 1, processor.getCompressorPool().getMissCount());
+        assertEquals("Native compressor must be reused", 1, processor.getCompressorPool().getHitCount());
+        assertEquals("Native decompressor must be created only once", 1, processor.getDecompressorPool().getMissCount());
+        assertEquals("Native decompressor must be reused", 1, processor.getDecompressorPool().getHitCount());
+
+    }
+
+    @Test
+    public void deterministicOutputTest() throws IOException, ImageProcessException {
+
+        ImageProcessorImpl processor = new ImageProcessorImpl(4, 60000);
+        byte[] image = ImageProcessorUtils.inputStreamToByteArray(new FileInputStream(inImage));
+
+        // Pooled compressor produces the same output as a new one
+        byte[] expected = null;
+        for (int i = 0; i < 3; i++) {
+            ImageProcessResult result = processor.transcodeJpegImage(image, 1, 1, 80, TJ.SAMP_420, 0, null);
+            byte[] actual = Arrays.copyOf(result.getOutputImage(), result.getOutputImageSize());
+            processor.releaseBuffer(result.getOutputImage());
+            if (expected == null) {
+                expected = actual;
+            } else {
+                assertArrayEquals("Output of call " + i + " differs", expected, actual);
+            }
+        }
+        assertEquals("Native compressor must be reused", 2, processor.getCompressorPool().getHitCount());
+
+    }
+
+    @Test
+    public void pooledBuffersTest() throws IOException, URISyntaxException, ImageProcessException {
+
+        TJSizeClassBufferPool bufferPool = new TJSizeClassBufferPool();
+        ImageProcessorImpl processor = new ImageProcessorImpl(4, 60000, bufferPool);
+        compressionTest(processor, inImage);
+        long hits = bufferPool.getHitCount();
+        compressionTest(processor, inImage);
+
+        assertTrue("Decompressed image buffer must be reused", bufferPool.getHitCount() > hits);
+
+    }
+
+    @Test
+    public void unpooledBuffersTest() throws IOException, ImageProcessException {
+
+        // Buffers are not pooled by default, so the pixels fill the whole output image
+        ImageProcessor processor = new ImageProcessorImpl();
+        byte[] image = ImageProcessorUtils.inputStreamToByteArray(new FileInputStream(inImage));
+        for (int i = 0; i < 2; i++) {
+            ImageProcessInfo info = ImageProcessInfo.fromMap(processor.decompressJpegImage(image, 1, 1, 0));
+            assertEquals(info.getOutputWidth() * info.getOutputHeight() * 4, info.getOutputImage().length);
+            processor.releaseBuffer(info.getOutputImage());
+        }
+
+    }
+
+    @Test
+    public void directBufferTest() throws IOException, ImageProcessException {
+        directBufferTest(new ImageProcessorImpl());
+        directBufferTest(new ImageProcessorReflectionDelegate());
+    }
+
+    private void directBufferTest(ImageProcessor processor) throws IOException, ImageProcessException {
+
+        byte[] image = ImageProcessorUtils.inputStreamToByteArray(new FileInputStream(inImage));
+        ByteBuffer directImage = ByteBuffer.allocateDirect(image.length);
+        directImage.put(image).flip();
+
+        ImageProcessInfo expected = ImageProcessInfo.fromMap(processor.decompressJpegImage(image, 1, 1, 0));
+        ImageProcessInfo actual = ImageProcessInfo.fromMap(processor.decompressJpegImage(directImage, 1, 1, 0));
+
+        assertEquals("Buffer position must not be changed", 0, directImage.position());
+        assertEquals(expected.getOutputWidth(), actual.getOutputWidth());
+        assertEquals(expected.getOutputHeight(), actual.getOutputHeight());
+        int size = expected.getOutputWidth() * expected.getOutputHeight() * 4;
+        assertArrayEquals("Decompressed images must be equal",
+                Arrays.copyOf(expected.getOutputImage(), size), Arrays.copyOf(actual.getOutputImage(), size));
+
+    }
+
+    @Test
+    public void probeTest() throws IOException, ImageProcessException {
+
+        ImageProcessor processor = new ImageProcessorReflectionDelegate();
+
+        byte[] image = ImageProcessorUtils.inputStreamToByteArray(new FileInputStream(inImage));
+        ImageHeader header = processor.probe(image);
+
+        ImageProcessInfo info = ImageProcessInfo.fromMap(processor.decompressJpegImage(image, 1, 1, 0));
+        assertEquals(info.getOutputWidth(), header.getWidth());
+        assertEquals(info.getOutputHeight(), header.getHeight());
+        assertTrue(header.getSubsamp() >= 0);
+        assertTrue(header.getColorspace() >= 0);
+
+        ByteBuffer directImage = ByteBuffer.allocateDirect(image.length);
+        directImage.put(image).flip();
+        assertEquals(header, processor.probe(directImage));
+
+        try {
+            processor.probe(new byte[] { 1, 2, 3 });
+            fail("Invalid image must not be probed");
+        } catch (ImageProcessException e) {
+            // expected
+        }
+
+    }
+
+    @Test
+    public void unusableDelegateTest() throws IOException {
+
+        ImageProcessor processor = new ImageProcessorReflectionDelegate("org.libjpegturbo.turbojpeg.processor.impl.MissingImageProcessor");
+        assertFalse(processor.isUsable());
+        processor.releaseBuffer(new byte[1]);
+
+        try {
+            processor.probe(ImageProcessorUtils.inputStreamToByteArray(new FileInputStream(inImage)));
+            fail("Unusable delegate must not probe");
+        } catch (ImageProcessException e) {
+            // expected
+        }
+
+    }
+
+    @Test
+    public void batchTest() throws IOException, ImageProcessException {
+
+        ImageProcessorImpl processor = new ImageProcessorImpl(4, 60000, new TJSizeClassBufferPool(), new ForkJoinPool(2, TJWorkerThread.FACTORY, null, false));
+
+        byte[] image = ImageProcessorUtils.inputStreamToByteArray(new FileInputStream(inImage));
+        List<byte[]> images = new ArrayList<byte[]>();
+        for (int i = 0; i < 8; i++) {
+            images.add(i == 3 ? new byte[] { 1, 2, 3 } : image);
+        }
+
+        ImageBatchResult<Map<String, Object>> decompressed = processor.decompressBatch(images, 1, 1, 0);
+        assertEquals(images.size(), decompressed.size());
+        assertEquals("Only the invalid image must fail", 1, decompressed.getFailureCount());
+        assertTrue(decompressed.isFailed(3));
+        assertNull(decompressed.get(3));
+
+        List<Map<String, Object>> decompressedImages = new ArrayList<Map<String, Object>>(decompressed.getResults());
+        decompressedImages.remove(3);
+        ImageBatchResult<ByteArrayInputStream> compressed = processor.compressBatch(decompressedImages, 80, 0, 0);
+        assertEquals(decompressedImages.size(), compressed.size());
+        assertFalse(compressed.hasFailures());
+        for (ByteArrayInputStream result : compressed.getResults()) {
+            assertTrue("Compressed image can't be empty", result.available() > 0);
+        }
+
+        assertTrue("Workers must keep their native compressors", processor.getCompressorPool().getMissCount() <= 2);
+        assertEquals("Workers must not give native compressors back", 0, processor.getCompressorPool().getHitCount());
+        assertEquals("Worker compressors are re-initialized after every image", decompressedImages.size(),
+                processor.getCompressorPool().getReinitCount());
+
+    }
+
+    @Test
+    public void transcodeTest() throws IOException, ImageProcessException {
+
+        ImageProcessor processor = new ImageProcessorReflectionDelegate();
+
+        byte[] image = ImageProcessorUtils.inputStreamToByteArray(new FileInputStream(inImage));
+        ImageHeader header = processor.probe(image);
+        int otherSubsamp = header.getSubsamp() == TJ.SAMP_444 ? TJ.SAMP_420 : TJ.SAMP_444;
+
+        // Planar YUV, RGB and grayscale from YUV paths
+        for (int subsamp : new int[] { header.getSubsamp(), otherSubsamp, TJ.SAMP_GRAY }) {
+
+            ImageProcessInfo info = ImageProcessInfo.fromMap(processor.transcodeJpegImage(image, 1, 2, 80, subsamp, 0));
+            assertEquals(header.getWidth(), info.getInputWidth());
+            assertEquals(header.getHeight(), info.getInputHeight());
+
+            byte[] outImage = Arrays.copyOf(info.getOutputImage(), info.getOutputImageSize());
+            ImageHeader outHeader = processor.probe(outImage);
+            assertEquals(info.getOutputWidth(), outHeader.getWidth());
+            assertEquals(info.getOutputHeight(), outHeader.getHeight());
+            assertEquals((header.getWidth() + 1) / 2, outHeader.getWidth());
+            assertEquals("Image must be compressed with the target subsampling", subsamp, outHeader.getSubsamp());
+
+        }
+
+        File outImage = File.createTempFile("out", ".transcoded.jpg");
+        ImageProcessInfo info = ImageProcessInfo.fromMap(ImageProcessorUtils.transcodeImage(processor, inImage, outImage, 80, header.getSubsamp()));
+        assertEquals("Image file size is not equal to the byte array size", info.getOutputImageSize(), outImage.length());
+        outImage.delete();
+
+    }
+
+    @Test
+    public void transformTest() throws Exception {
+
+        ImageProcessor processor = new ImageProcessorReflectionDelegate();
+
+        byte[] image = ImageProcessorUtils.inputStreamToByteArray(new FileInputStream(inImage));
+        ImageHeader header = processor.probe(image);
+
+        TJTransform transform = new TJTransform(0, 0, 0, 0, TJTransform.OP_ROT90, TJTransform.OPT_TRIM, null);
+        ImageProcessInfo info = ImageProcessInfo.fromMap(processor.transformJpegImage(image, transform, 0));
+        assertEquals(header.getWidth(), info.getInputWidth());
+        assertEquals(header.getHeight(), info.getInputHeight());
+
+        ImageHeader outHeader = processor.probe(Arrays.copyOf(info.getOutputImage(), info.getOutputImageSize()));
+        assertEquals(info.getOutputWidth(), outHeader.getWidth());
+        assertEquals(info.getOutputHeight(), outHeader.getHeight());
+        assertTrue("Rotated image must not be wider than the source height", outHeader.getWidth() <= header.getHeight());
+        assertTrue("Rotated image must not be higher than the source width", outHeader.getHeight() <= header.getWidth());
+        assertEquals(header.getSubsamp(), outHeader.getSubsamp());
+        assertEquals("Caller's transform must not be modified", TJTransform.OPT_TRIM, transform.options);
+
+        processor.releaseBuffer(info.getOutputImage());
+
+    }
+
+    @Test
+    public void multiTransformTest() throws Exception {
+
+        ImageProcessor processor = new ImageProcessorReflectionDelegate();
+
+        byte[] image = ImageProcessorUtils.inputStreamToByteArray(new FileInputStream(inImage));
+        ImageHeader header = processor.probe(image);
+        int mcuWidth = TJ.getMCUWidth(header.getSubsamp());
+        int mcuHeight = TJ.getMCUHeight(header.getSubsamp());
+
+        List<TJTransform> transforms = Arrays.asList(
+                new TJTransform(0, 0, mcuWidth * 4, mcuHeight * 2, TJTransform.OP_NONE, TJTransform.OPT_CROP, null),
+                new TJTransform(mcuWidth, mcuHeight, mcuWidth * 2, mcuHeight * 2, TJTransform.OP_NONE, TJTransform.OPT_CROP, null),
+                new TJTransform(0, 0, 0, 0, TJTransform.OP_ROT180, TJTransform.OPT_TRIM, null));
+
+        List<Map<String, Object>> results = processor.transformJpegImage(image, transforms, 0);
+        assertEquals(transforms.size(), results.size());
+
+        int[][] expected = new int[][] {
+                { mcuWidth * 4, mcuHeight * 2 },
+                { mcuWidth * 2, mcuHeight * 2 },
+                { header.getWidth() / mcuWidth * mcuWidth, header.getHeight() / mcuHeight * mcuHeight } };
+        for (int i = 0; i < results.size(); i++) {
+            ImageProcessInfo info = ImageProcessInfo.fromMap(results.get(i));
+            ImageHeader outHeader = processor.probe(Arrays.copyOf(info.getOutputImage(), info.getOutputImageSize()));
+            assertEquals("Width of the image " + i, expected[i][0], outHeader.getWidth());
+            assertEquals("Height of the image " + i, expected[i][1], outHeader.getHeight());
+            processor.releaseBuffer(info.getOutputImage());
+        }
+
+        try {
+            processor.transformJpegImage(image, Arrays.asList(transforms.get(0),
+                    new TJTransform(1, 0, mcuWidth, mcuHeight, TJTransform.OP_NONE, TJTransform.OPT_CROP, null)), 0);
+            fail("Crop region which is not aligned to the MCU boundaries must be rejected");
+        } catch (ImageProcessException e) {
+            Throwable cause = e;
+            while (cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            assertTrue(cause.getMessage(), cause.getMessage().contains("multiple of " + mcuWidth));
+        }
+
+    }
+
+    @Test
+    public void thumbnailsTest() throws IOException, ImageProcessException {
+
+        ImageProcessor processor = new ImageProcessorReflectionDelegate();
+
+        byte[] image = ImageProcessorUtils.inputStreamToByteArray(new FileInputStream(inImage));
+        ImageHeader header = processor.probe(image);
+
+        int[] sizes = new int[] { 64, 320, 4096, 160 };
+        List<Map<String, Object>> results = processor.createThumbnails(image, sizes, 80, TJ.SAMP_420, 0);
+        assertEquals(sizes.length, results.size());
+
+        for (int i = 0; i < sizes.length; i++) {
+            ImageProcessInfo info = ImageProcessInfo.fromMap(results.get(i));
+            assertEquals(header.getWidth(), info.getInputWidth());
+            assertEquals(header.getHeight(), info.getInputHeight());
+
+            ImageHeader outHeader = processor.probe(Arrays.copyOf(info.getOutputImage(), info.getOutputImageSize()));
+            assertEquals(info.getOutputWidth(), outHeader.getWidth());
+            assertEquals(info.getOutputHeight(), outHeader.getHeight());
+            assertEquals("Thumbnail must fit the box of its size", Math.min(sizes[i], Math.max(header.getWidth(), header.getHeight())),
+                    Math.max(outHeader.getWidth(), outHeader.getHeight()));
+            processor.releaseBuffer(info.getOutputImage());
+        }
+
+    }
+
+    @Test
+    public void compressToSizeTest() throws IOException, ImageProcessException {
+
+        ImageProcessor processor = new ImageProcessorReflectionDelegate();
+
+        byte[] image = ImageProcessorUtils.inputStreamToByteArray(new FileInputStream(inImage));
+        ImageHeader header = processor.probe(image);
+
+        int maxImageSize = image.length / 4;
+        ImageProcessInfo info = ImageProcessInfo.fromMap(processor.compressToSize(image, maxImageSize, 5, 95, header.getSubsamp(), 0));
+        assertTrue("Image must fit the size", info.getOutputImageSize() <= maxImageSize);
+        assertTrue(info.getQuality() >= 5 && info.getQuality() < 95);
+        assertTrue("Quality must be bisected", info.getIterations() > 1 && info.getIterations() <= 8);
+        assertEquals(header.getWidth(), info.getOutputWidth());
+
+        // The next quality must not fit, otherwise it would have been chosen
+        ImageProcessInfo next = ImageProcessInfo.fromMap(processor.compressToSize(image, Integer.MAX_VALUE,
+                info.getQuality() + 1, info.getQuality() + 1, header.getSubsamp(), 0));
+        assertTrue(next.getOutputImageSize() > maxImageSize);
+        assertEquals(1, next.getIterations());
+        processor.releaseBuffer(info.getOutputImage());
+        processor.releaseBuffer(next.getOutputImage());
+
+        // Too small budget gives the minimum quality
+        info = ImageProcessInfo.fromMap(processor.compressToSize(image, 100, 10, 90, header.getSubsamp(), 0));
+        assertEquals(10, info.getQuality());
+        assertTrue(info.getOutputImageSize() > 100);
+        processor.releaseBuffer(info.getOutputImage());
+
+    }
+
+    @Test
+    public void compressAutoQualityTest() throws IOException, ImageProcessException {
+
+        ImageProcessor processor = new ImageProcessorReflectionDelegate();
+
+        byte[] image = ImageProcessorUtils.inputStreamToByteArray(new FileInputStream(inImage));
+        ImageHeader header = processor.probe(image);
+        int[] qualities = new int[] { 95, 85, 70, 50, 30 };
+
+        ImageProcessInfo best = ImageProcessInfo.fromMap(processor.compressAutoQuality(image, qualities, 0.0, header.getSubsamp(), 0));
+        assertEquals("Smallest candidate must be chosen if every candidate is good enough", 30, best.getQuality());
+        assertEquals(qualities.length, best.getIterations());
+        assertEquals(header.getWidth(), best.getOutputWidth());
+        processor.releaseBuffer(best.getOutputImage());
+
+        ImageProcessInfo worst = ImageProcessInfo.fromMap(processor.compressAutoQuality(image, qualities, 1.1, header.getSubsamp(), 0));
+        assertEquals("Best scored candidate must be chosen if no candidate is good enough", 95, worst.getQuality());
+        assertTrue(worst.getScore() > best.getScore());
+        processor.releaseBuffer(worst.getOutputImage());
+
+        double minScore = (best.getScore() + worst.getScore()) / 2;
+        ImageProcessInfo info = ImageProcessInfo.fromMap(processor.compressAutoQuality(image, qualities, minScore, header.getSubsamp(), 0));
+        assertTrue(info.getScore() >= minScore);
+        assertTrue(info.getQuality() > 30 && info.getQuality() <= 95);
+        processor.releaseBuffer(info.getOutputImage());
+
+    }
+
+    @Test
+    public void ssimTest() {
+
+        byte[] a = new byte[16 * 16];
+        byte[] b = new byte[16 * 16];
+        for (int i = 0; i < a.length; i++) {
+            a[i] = (byte) (i * 13);
+            b[i] = (byte) (i * 13 + (i % 3) * 9);
+        }
+
+        assertEquals(1.0, ImageProcessorImpl.ssim(a, 0, 16, a, 0, 16, 16, 16), 1e-9);
+        double score = ImageProcessorImpl.ssim(a, 0, 16, b, 0, 16, 16, 16);
+        assertTrue(score > 0 && score < 1);
+        assertEquals(score, ImageProcessorImpl.ssim(b, 0, 16, a, 0, 16, 16, 16), 1e-9);
+
+    }
+
+    @Test
+    public void parallelDecompressTest() throws IOException, ImageProcessException {
+
+        ImageProcessorImpl processor = new ImageProcessorImpl();
+
+        byte[] image = ImageProcessorUtils.inputStreamToByteArray(new FileInputStream(inImage));
+        ImageHeader header = processor.probe(image);
+        assertTrue("Image must be split into several strips", header.getHeight() > ImageProcessorImpl.MIN_STRIP_HEIGHT);
+
+        ImageProcessInfo expected = ImageProcessInfo.fromMap(processor.decompressJpegImage(image, 1, 1, TJ.FLAG_FASTUPSAMPLE));
+        ImageProcessInfo actual = ImageProcessInfo.fromMap(processor.decompressJpegImageParallel(image, 4, TJ.FLAG_FASTUPSAMPLE));
+
+        assertEquals(expected.getOutputWidth(), actual.getOutputWidth());
+        assertEquals(expected.getOutputHeight(), actual.getOutputHeight());
+        int length = expected.getOutputWidth() * expected.getOutputHeight() * 4;
+        assertArrayEquals("Strips must be decompressed into their own rows",
+                Arrays.copyOf(expected.getOutputImage(), length), Arrays.copyOf(actual.getOutputImage(), length));
+
+        processor.releaseBuffer(expected.getOutputImage());
+        processor.releaseBuffer(actual.getOutputImage());
+
+    }
+
+    @Test
+    public void regionDecompressTest() throws IOException, ImageProcessException {
+
+        ImageProcessor processor = new ImageProcessorReflectionDelegate();
+
+        byte[] image = ImageProcessorUtils.inputStreamToByteArray(new FileInputStream(inImage));
+        ImageProcessInfo full = ImageProcessInfo.fromMap(processor.decompressJpegImage(image, 1, 1, TJ.FLAG_FASTUPSAMPLE));
+        int fullWidth = full.getOutputWidth();
+
+        Rectangle region = new Rectangle(13, 21, 100, 50);
+        ImageProcessInfo info = ImageProcessInfo.fromMap(processor.decompressJpegRegion(image, region, 1, 1, TJ.FLAG_FASTUPSAMPLE));
+        assertEquals(fullWidth, info.getInputWidth());
+        assertEquals(region.width, info.getOutputWidth());
+        assertEquals(region.height, info.getOutputHeight());
+
+        for (int y = 0; y < region.height; y++) {
+            byte[] expected = Arrays.copyOfRange(full.getOutputImage(), ((region.y + y) * fullWidth + region.x) * 4,
+                    ((region.y + y) * fullWidth + region.x + region.width) * 4);
+            byte[] actual = Arrays.copyOfRange(info.getOutputImage(), y * region.width * 4, (y + 1) * region.width * 4);
+            assertArrayEquals("Row " + y + " of the region differs", expected, actual);
+        }
+        processor.releaseBuffer(info.getOutputImage());
+        processor.releaseBuffer(full.getOutputImage());
+
+        info = ImageProcessInfo.fromMap(processor.decompressJpegRegion(image, region, 1, 2, 0));
+        assertEquals(region.width / 2, info.getOutputWidth());
+        assertEquals(region.height / 2, info.getOutputHeight());
+        processor.releaseBuffer(info.getOutputImage());
+
+        try {
+            processor.decompressJpegRegion(image, new Rectangle(fullWidth - 10, 0, 20, 20), 1, 1, 0);
+            fail("Region outside of the image must be rejected");
+        } catch (ImageProcessException e) {
+            // expected
+        }
+
+    }
+
+    @Test
+    public void parallelCompressTest() throws Exception {
+
+        // Every strip waits until the other one is compressed too, so it fails unless they run concurrently
+        final CountDownLatch started = new CountDownLatch(2);
+        final AtomicBoolean concurrent = new AtomicBoolean(true);
+        final byte[][] strips = new byte[2][];
+        ForkJoinPool batchPool = new ForkJoinPool(2);
+        ImageProcessorImpl processor = new ImageProcessorImpl(TJHandlePool.DEFAULT_MAX_IDLE, TJHandlePool.DEFAULT_IDLE_TIMEOUT,
+                new TJSizeClassBufferPool(), batchPool) {
+            @Override
+            protected Map<String, Object> compressStrip(byte[] image, int width, int y, int height, int quality, int subsampling, int flags) throws ImageProcessException {
+                started.countDown();
+                try {
+                    if (!started.await(10, TimeUnit.SECONDS)) {
+                        concurrent.set(false);
+                    }
+                } catch (InterruptedException e) {
+                    throw new ImageProcessException(e);
+                }
+                Map<String, Object> strip = super.compressStrip(image, width, y, height, quality, subsampling, flags);
+                ImageProcessInfo info = ImageProcessInfo.fromMap(strip);
+                strips[y / MIN_STRIP_HEIGHT] = Arrays.copyOf(info.getOutputImage(), info.getOutputImageSize());
+                return strip;
+            }
+        };
+
+        try {
+
+            byte[] image = ImageProcessorUtils.inputStreamToByteArray(new FileInputStream(inImage));
+            ImageProcessInfo pixels = ImageProcessInfo.fromMap(processor.decompressJpegImage(image, 1, 1, 0));
+            int width = pixels.getOutputWidth();
+            int height = pixels.getOutputHeight();
+
+            // Two strips of 256 and 94 rows, compressed by MozJPEG as progressive images
+            CompressedImage actual = processor.compressJpegImageParallel(pixels.getOutputImage(), width, height, 80, TJ.SAMP_420, 4, 0);
+            processor.releaseBuffer(pixels.getOutputImage());
+            assertTrue(concurrent.get());
+
+            // The joined image holds the coefficients of the strips, so it decodes to the stacked strips
+            byte[] joined = actual.toByteArray();
+            actual.release();
+            assertEquals(new ImageHeader(width, height, TJ.SAMP_420, TJ.CS_YCbCr), processor.probe(joined));
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            for (byte[] strip : strips) {
+                expected.write(decompress(strip));
+            }
+            assertArrayEquals(expected.toByteArray(), decompress(joined));
+
+        } finally {
+            batchPool.shutdown();
+        }
+
+    }
+
+    private static byte[] decompress(byte[] jpeg) throws Exception {
+        // Chrominance at the strip borders is upsampled from the neighbour strip unless fast upsampling is used
+        try (TJDecompressor decompressor = new TJDecompressor(jpeg)) {
+            return decompressor.decompress(decompressor.getWidth(), 0, decompressor.getHeight(), TJ.PF_BGRX, TJ.FLAG_FASTUPSAMPLE);
+        }
+    }
+
+    private static byte[] toByteArray(ByteArrayInputStream stream) {
+        byte[] data = new byte[stream.available()];
+        stream.read(data, 0, data.length);
+        return data;
+    }
+
+    @Test
+    public void typedResultTest() throws IOException, ImageProcessException {
+
+        ImageProcessor processor = new ImageProcessorImpl();
+
+        byte[] image = ImageProcessorUtils.inputStreamToByteArray(new FileInputStream(inImage));
+        ImageProcessInfo expected = ImageProcessInfo.fromMap(processor.decompressJpegImage(image, 1, 2, 0));
+
+        // The same result is filled by every call
+        ImageProcessResult result = new ImageProcessResult();
+        for (int i = 0; i < 2; i++) {
+            assertSame(result, processor.decompressJpegImage(ByteBuffer.wrap(image), 1, 2, 0, result));
+            assertEquals(expected.getOutputWidth(), result.getOutputWidth());
+            assertEquals(expected.getOutputHeight(), result.getOutputHeight());
+            assertEquals(expected.getOutputImageSize(), result.getOutputImageSize());
+            int length = result.getOutputWidth() * result.getOutputHeight() * 4;
+            assertArrayEquals(Arrays.copyOf(expected.getOutputImage(), length), Arrays.copyOf(result.getOutputImage(), length));
+            processor.releaseBuffer(result.getOutputImage());
+        }
+        processor.releaseBuffer(expected.getOutputImage());
+
+        ImageProcessResult transcoded = processor.transcodeJpegImage(image, 1, 1, 80, TJ.SAMP_444, 0, result);
+        assertSame(result, transcoded);
+        assertEquals(new ImageHeader(620, 350, TJ.SAMP_444, TJ.CS_YCbCr),
+                processor.probe(Arrays.copyOf(transcoded.getOutputImage(), transcoded.getOutputImageSize())));
+        processor.releaseBuffer(transcoded.getOutputImage());
+
+    }
+
+    @Test
+    public void compressDirectTest() throws IOException, ImageProcessException {
+
+        ImageProcessor processor = new ImageProcessorImpl();
+
+        byte[] image = ImageProcessorUtils.inputStreamToByteArray(new FileInputStream(inImage));
+        ImageProcessInfo pixels = ImageProcessInfo.fromMap(processor.decompressJpegImage(image, 1, 1, 0));
+        int width = pixels.getOutputWidth();
+        int height = pixels.getOutputHeight();
+
+        CompressedImage compressed = processor.compressJpegImageDirect(pixels.getOutputImage(), width, height, 80, TJ.SAMP_420, 0);
+        processor.releaseBuffer(pixels.getOutputImage());
+        assertEquals(width, compressed.getWidth());
+        assertEquals(height, compressed.getHeight());
+        assertEquals(80, compressed.getQuality());
+        assertEquals(TJ.SAMP_420, compressed.getSubsampling());
+        assertTrue("Compressed image can't be empty", compressed.getLength() > 0);
+
+        byte[] data = compressed.toByteArray();
+        assertEquals(new ImageHeader(width, height, TJ.SAMP_420, TJ.CS_YCbCr), processor.probe(data));
+        assertArrayEquals(data, toByteArray(compressed.toInputStream()));
+
+        ByteArrayOutputStream streamOut = new ByteArrayOutputStream();
+        compressed.writeTo(streamOut);
+        assertArrayEquals(data, streamOut.toByteArray());
+
+        ByteArrayOutputStream channelOut = new ByteArrayOutputStream();
+        compressed.writeTo(Channels.newChannel(channelOut));
+        assertArrayEquals(data, channelOut.toByteArray());
+
+        assertEquals(data.length, compressed.toByteBuffer().remaining());
+
+        compressed.release();
+        assertTrue(compressed.isReleased());
+        compressed.release();
+
+    }
+
+    @Test
+    public void downsampleTest() {
+
+        // 4x2 BGRX image into 2x1, every destination pixel averages a 2x2 block
+        byte[] src = new byte[4 * 2 * 4];
+        for (int i = 0; i < 8; i++) {
+            src[i * 4] = (byte) (i < 2 || (i >= 4 && i < 6) ? 10 : 200);
+            src[i * 4 + 1] = (byte) (i * 20);
+            src[i * 4 + 2] = (byte) 255;
+        }
+        byte[] dst = new byte[2 * 4];
+        ImageProcessorImpl.downsample(src, 4, 2, dst, 2, 1);
+
+        assertEquals(10, dst[0] & 0xff);
+        assertEquals((0 + 20 + 80 + 100 + 2) / 4, dst[1] & 0xff);
+        assertEquals(255, dst[2] & 0xff);
+        assertEquals(200, dst[4] & 0xff);
+        assertEquals((40 + 60 + 120 + 140 + 2) / 4, dst[5] & 0xff);
+
+    }
+
     public static void compressionTest(ImageProcessor processor, File inImage) throws IOException, URISyntaxException, ImageProcessException {
 
         log.info("Testing compressor implementation: {}", processor.getClass());
@@ -0,0 +1,72 @@
+package org.libjpegturbo.turbojpeg.processor.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.libjpegturbo.turbojpeg.processor.api.ImageHeader;
+import org.libjpegturbo.turbojpeg.processor.api.ImageProcessException;
+import org.libjpegturbo.turbojpeg.processor.utils.ImageProcessorUtils;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * Tests for the processor offloading operations to carrier threads.
+ *
+ * @since version 1.1,	10/18/2026
+ *
+ * @author Dmitry Viktorov
+ *
+ */
+public class OffloadingImageProcessorTest {
+
+    private byte[] image = null;
+
+    @Before
+    public void doBefore() throws IOException {
+        image = ImageProcessorUtils.inputStreamToByteArray(OffloadingImageProcessorTest.class.getResourceAsStream("/images/i10_620p_sport.jpg"));
+    }
+
+    @Test
+    public void platformThreadTest() throws ImageProcessException {
+
+        assertFalse(OffloadingImageProcessor.isVirtualThread(Thread.currentThread()));
+
+        try (OffloadingImageProcessor processor = new OffloadingImageProcessor(new ImageProcessorImpl(), 1, OffloadingImageProcessor.MODE_VIRTUAL)) {
+            assertNotNull(processor.probe(image));
+            assertEquals("Platform threads must not be offloaded", 0, processor.getOffloadedCount());
+        }
+
+    }
+
+    @Test
+    public void offloadTest() throws ImageProcessException {
+
+        ImageProcessorImpl delegate = new ImageProcessorImpl();
+        try (OffloadingImageProcessor processor = new OffloadingImageProcessor(delegate, 1, OffloadingImageProcessor.MODE_ALWAYS)) {
+
+            ImageHeader header = processor.probe(image);
+            assertEquals(delegate.probe(image), header);
+            assertEquals(1, processor.getOffloadedCount());
+
+            try {
+                processor.probe(new byte[] { 1, 2, 3 });
+                fail("Invalid image must not be probed");
+            } catch (ImageProcessException e) {
+                // The failure of the carrier thread is thrown as is
+                assertEquals(2, processor.getOffloadedCount());
+            }
+
+        }
+
+    }
+
+    @Test
+    public void processorTest() throws Exception {
+        try (OffloadingImageProcessor processor = new OffloadingImageProcessor(new ImageProcessorImpl(), 2, OffloadingImageProcessor.MODE_ALWAYS)) {
+            ImageProcessorTest.compressionTest(processor, new java.io.File(OffloadingImageProcessorTest.class.getResource("/images/i10_620p_sport.jpg").toURI()));
+        }
+    }
+
+}
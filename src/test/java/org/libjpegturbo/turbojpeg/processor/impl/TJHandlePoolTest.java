@@ -0,0 +1,117 @@
+package org.libjpegturbo.turbojpeg.processor.impl;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * Tests for the pool of native handles.
+ *
+ * @since version 1.1,	10/18/2026
+ *
+ * @author Dmitry Viktorov
+ *
+ */
+public class TJHandlePoolTest {
+
+    @Test
+    public void borrowReleaseTest() throws Exception {
+
+        TestPool pool = new TestPool(2, 0);
+
+        Handle h1 = pool.borrow();
+        Handle h2 = pool.borrow();
+        Handle h3 = pool.borrow();
+        assertEquals(3, pool.getMissCount());
+        assertEquals(0, pool.getHitCount());
+
+        pool.release(h1);
+        pool.release(h2);
+        pool.release(h3);
+        assertEquals("Pool must keep only max idle handles", 2, pool.getIdleCount());
+        assertEquals(1, pool.getDiscardCount());
+        assertEquals(1, pool.closed.get());
+        assertEquals(3, pool.passivated.get());
+
+        pool.borrow();
+        pool.borrow();
+        assertEquals(2, pool.getHitCount());
+        assertEquals(3, pool.getMissCount());
+        assertEquals(0, pool.getIdleCount());
+
+        pool.release(null);
+        assertEquals(0, pool.getIdleCount());
+
+    }
+
+    @Test
+    public void evictionTest() throws Exception {
+
+        TestPool pool = new TestPool(4, 50);
+
+        pool.release(pool.borrow());
+        assertEquals(1, pool.getIdleCount());
+
+        Thread.sleep(100);
+        assertEquals(1, pool.evictExpired());
+        assertEquals(0, pool.getIdleCount());
+        assertEquals(1, pool.getEvictionCount());
+        assertEquals(1, pool.closed.get());
+
+    }
+
+    @Test
+    public void clearTest() throws Exception {
+
+        TestPool pool = new TestPool(4, 0);
+        Handle h1 = pool.borrow();
+        Handle h2 = pool.borrow();
+        pool.release(h1);
+        pool.release(h2);
+
+        pool.clear();
+        assertEquals(0, pool.getIdleCount());
+        assertEquals(2, pool.closed.get());
+
+    }
+
+    private static class Handle implements AutoCloseable {
+
+        private final AtomicInteger closed;
+
+        private Handle(AtomicInteger closed) {
+            this.closed = closed;
+        }
+
+        @Override
+        public void close() {
+            closed.incrementAndGet();
+        }
+
+    }
+
+    private static class TestPool extends TJHandlePool<Handle> {
+
+        private final AtomicInteger closed = new AtomicInteger();
+        private final AtomicInteger passivated = new AtomicInteger();
+
+        private TestPool(int maxIdle, long idleTimeoutMillis) {
+            super(maxIdle, idleTimeoutMillis);
+        }
+
+        @Override
+        protected Handle create() {
+            return new Handle(closed);
+        }
+
+        @Override
+        protected void passivate(Handle handle) {
+            passivated.incrementAndGet();
+        }
+
+    }
+
+}
@@ -0,0 +1,116 @@
+package org.libjpegturbo.turbojpeg.processor.impl;
+
+import org.junit.Test;
+import org.libjpegturbo.turbojpeg.TJ;
+import org.libjpegturbo.turbojpeg.TJBufferPool;
+import org.libjpegturbo.turbojpeg.TJCompressor;
+import org.libjpegturbo.turbojpeg.TJDecompressor;
+import org.libjpegturbo.turbojpeg.TJTransformer;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * Tests for the re-encoding of compressed strips into one baseline image.
+ *
+ * @since version 1.1,	10/18/2026
+ *
+ * @author Dmitry Viktorov
+ *
+ */
+public class TJStripEncoderTest {
+
+    @Test
+    public void encodeTest() throws Exception {
+
+        // Partial MCUs on the right and at the bottom
+        int width = 203, height = 77;
+        byte[] pixels = new byte[width * height * 4];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                for (int c = 0; c < 4; c++) {
+                    pixels[(y * width + x) * 4 + c] = (byte) (x * (c + 3) + y * (5 - c) + ((x * y) & 31));
+                }
+            }
+        }
+
+        for (int subsampling : new int[] { TJ.SAMP_444, TJ.SAMP_422, TJ.SAMP_420, TJ.SAMP_GRAY }) {
+
+            int mcuWidth = TJ.getMCUWidth(subsampling);
+            int stripHeight = TJ.getMCUHeight(subsampling) * 3;
+            int count = (height + stripHeight - 1) / stripHeight;
+
+            // Progressive strips with optimized tables, as produced by the MozJPEG defaults
+            byte[][] strips = new byte[count][];
+            int[] sizes = new int[count];
+            for (int i = 0; i < count; i++) {
+                try (TJCompressor compressor = new TJCompressor()) {
+                    compressor.setJPEGQuality(80);
+                    compressor.setSubsamp(subsampling);
+                    compressor.setSourceImage(pixels, 0, i * stripHeight, width, width * 4, Math.min(stripHeight, height - i * stripHeight), TJ.PF_BGRX);
+                    strips[i] = compressor.compress(0);
+                    sizes[i] = compressor.getCompressedSize();
+                }
+            }
+            assertFalse(new TJStripWriter(strips, sizes).isJoinable());
+
+            TJStripEncoder encoder = new TJStripEncoder(strips, sizes);
+            assertTrue(encoder.isEncodable());
+            try (TJTransformer transformer = new TJTransformer()) {
+                for (int i = 0; i < count; i++) {
+                    encoder.decode(i, transformer, TJBufferPool.NONE);
+                }
+            }
+            encoder.buildTables();
+            for (int i = 0; i < count; i++) {
+                encoder.encode(i);
+            }
+            byte[] encoded = new byte[encoder.getEncodedSize()];
+            int size = encoder.write(height, (width + mcuWidth - 1) / mcuWidth * 3, encoded);
+            assertEquals(encoded.length, size);
+
+            // The coefficients are kept, so the image decodes exactly to the stacked strips
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            for (int i = 0; i < count; i++) {
+                expected.write(decompress(strips[i], sizes[i], subsampling));
+            }
+            assertArrayEquals("Subsampling " + subsampling, expected.toByteArray(), decompress(encoded, size, subsampling));
+
+        }
+
+    }
+
+    @Test
+    public void notEncodableTest() throws Exception {
+
+        byte[] pixels = new byte[32 * 16 * 4];
+        byte[][] strips = new byte[2][];
+        int[] sizes = new int[2];
+        for (int i = 0; i < 2; i++) {
+            try (TJCompressor compressor = new TJCompressor()) {
+                // Different quantization tables
+                compressor.setJPEGQuality(50 + i * 30);
+                compressor.setSubsamp(TJ.SAMP_420);
+                compressor.setSourceImage(pixels, 0, 0, 32, 0, 16, TJ.PF_BGRX);
+                strips[i] = Arrays.copyOf(compressor.compress(0), compressor.getCompressedSize());
+                sizes[i] = strips[i].length;
+            }
+        }
+
+        assertFalse(new TJStripEncoder(strips, sizes).isEncodable());
+        assertFalse(new TJStripEncoder(new byte[][] { new byte[] { 1, 2, 3, 4 } }, new int[] { 4 }).isEncodable());
+
+    }
+
+    private static byte[] decompress(byte[] jpeg, int size, int subsampling) throws Exception {
+        // Chrominance at the strip borders is upsampled from the neighbour strip unless fast upsampling is used
+        int pixelFormat = subsampling == TJ.SAMP_GRAY ? TJ.PF_GRAY : TJ.PF_BGRX;
+        try (TJDecompressor decompressor = new TJDecompressor(jpeg, size)) {
+            return decompressor.decompress(decompressor.getWidth(), 0, decompressor.getHeight(), pixelFormat, TJ.FLAG_FASTUPSAMPLE);
+        }
+    }
+
+}
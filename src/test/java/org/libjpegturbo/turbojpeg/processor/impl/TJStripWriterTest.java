@@ -0,0 +1,158 @@
+package org.libjpegturbo.turbojpeg.processor.impl;
+
+import org.junit.Test;
+import org.libjpegturbo.turbojpeg.TJ;
+import org.libjpegturbo.turbojpeg.TJDecompressor;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * Tests for the joining of compressed strips.
+ *
+ * @since version 1.1,	10/18/2026
+ *
+ * @author Dmitry Viktorov
+ *
+ */
+public class TJStripWriterTest {
+
+    @Test
+    public void joinTest() {
+
+        byte[] strip1 = strip(16, new byte[] { 1, 2, (byte) 0xff, 0 });
+        byte[] strip2 = strip(5, new byte[] { 3, 4, 5 });
+
+        TJStripWriter writer = new TJStripWriter(new byte[][] { strip1, strip2 }, new int[] { strip1.length, strip2.length });
+        assertTrue(writer.isJoinable());
+
+        byte[] joined = new byte[writer.getJoinedSize()];
+        int size = writer.write(21, 40, joined);
+        assertEquals(joined.length, size);
+
+        byte[] expected = concat(
+                header(21),
+                new byte[] { (byte) 0xff, (byte) 0xdd, 0, 4, 0, 40 },
+                scanHeader(),
+                new byte[] { 1, 2, (byte) 0xff, 0 },
+                new byte[] { (byte) 0xff, (byte) 0xd0 },
+                new byte[] { 3, 4, 5 },
+                new byte[] { (byte) 0xff, (byte) 0xd9 });
+        assertArrayEquals(expected, joined);
+
+    }
+
+    @Test
+    public void notJoinableTest() {
+
+        byte[] strip = strip(16, new byte[] { 1, 2 });
+
+        // Different tables
+        byte[] other = strip(16, new byte[] { 1, 2 });
+        other[header(16).length - 1] = 9;
+        assertFalse(new TJStripWriter(new byte[][] { strip, other }, new int[] { strip.length, other.length }).isJoinable());
+
+        // Restart marker in the entropy-coded segment
+        byte[] restarted = strip(16, new byte[] { 1, (byte) 0xff, (byte) 0xd0, 2 });
+        assertFalse(new TJStripWriter(new byte[][] { strip, restarted }, new int[] { strip.length, restarted.length }).isJoinable());
+
+        // Progressive frame
+        byte[] progressive = strip(16, new byte[] { 1, 2 });
+        progressive[2 + 1] = (byte) 0xc2;
+        assertFalse(new TJStripWriter(new byte[][] { strip, progressive }, new int[] { strip.length, progressive.length }).isJoinable());
+
+    }
+
+    @Test
+    public void encodedStripsTest() throws Exception {
+
+        int width = 64, height = 40, stripHeight = 16;
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.getRaster().setSample(x, y, 0, (x * 7 + y * 13 + x * y) & 0xff);
+            }
+        }
+
+        // Baseline strips with the standard tables, since the MozJPEG defaults produce progressive images
+        int count = (height + stripHeight - 1) / stripHeight;
+        byte[][] strips = new byte[count][];
+        int[] sizes = new int[count];
+        for (int i = 0; i < count; i++) {
+            int y = i * stripHeight;
+            strips[i] = encodeBaseline(image.getSubimage(0, y, width, Math.min(stripHeight, height - y)));
+            sizes[i] = strips[i].length;
+        }
+
+        TJStripWriter writer = new TJStripWriter(strips, sizes);
+        assertTrue(writer.isJoinable());
+        byte[] joined = new byte[writer.getJoinedSize()];
+        int size = writer.write(height, (width / 8) * (stripHeight / 8), joined);
+        assertEquals(joined.length, size);
+
+        // Restarts reset the DC predictions, so the joined image decodes exactly to the stacked strips
+        byte[] expected = new byte[0];
+        for (int i = 0; i < count; i++) {
+            expected = concat(expected, decompress(strips[i], sizes[i]));
+        }
+        assertArrayEquals(expected, decompress(joined, size));
+
+    }
+
+    private static byte[] encodeBaseline(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(stream);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(0.8f);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] decompress(byte[] jpeg, int size) throws Exception {
+        try (TJDecompressor decompressor = new TJDecompressor(jpeg, size)) {
+            return decompressor.decompress(decompressor.getWidth(), 0, decompressor.getHeight(), TJ.PF_GRAY, 0);
+        }
+    }
+
+    private static byte[] strip(int height, byte[] entropy) {
+        return concat(header(height), scanHeader(), entropy, new byte[] { (byte) 0xff, (byte) 0xd9 });
+    }
+
+    private static byte[] header(int height) {
+        return new byte[] {
+                (byte) 0xff, (byte) 0xd8,
+                (byte) 0xff, (byte) 0xc0, 0, 11, 8, (byte) (height >> 8), (byte) height, 0, 16, 1, 1, 0x11, 0,
+                (byte) 0xff, (byte) 0xc4, 0, 4, 0, 7 };
+    }
+
+    private static byte[] scanHeader() {
+        return new byte[] { (byte) 0xff, (byte) 0xda, 0, 8, 1, 1, 0, 0, 63, 0 };
+    }
+
+    private static byte[] concat(byte[]... arrays) {
+        byte[] result = new byte[0];
+        for (byte[] array : arrays) {
+            int length = result.length;
+            result = Arrays.copyOf(result, length + array.length);
+            System.arraycopy(array, 0, result, length, array.length);
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,308 @@
+package org.libjpegturbo.turbojpeg.processor.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.libjpegturbo.turbojpeg.TJ;
+import org.libjpegturbo.turbojpeg.processor.impl.ImageProcessorImpl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * Tests for the persistent store of renditions.
+ *
+ * @since version 1.1,	10/18/2026
+ *
+ * @author Dmitry Viktorov
+ *
+ */
+public class RenditionStoreTest {
+
+    private File directory = null;
+
+    @Before
+    public void doBefore() throws IOException {
+        directory = Files.createTempDirectory("renditions").toFile();
+    }
+
+    @After
+    public void doAfter() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void putGetTest() throws IOException {
+
+        try (RenditionStore store = new RenditionStore(directory, 1024)) {
+
+            assertTrue(store.put(key(store, 1, 80), ByteBuffer.wrap(data(100, 1))));
+            assertTrue(store.put(key(store, 2, 80), ByteBuffer.wrap(data(200, 2))));
+            assertEquals(ByteBuffer.wrap(data(100, 1)), store.get(key(store, 1, 80)));
+            assertEquals(ByteBuffer.wrap(data(200, 2)), store.get(key(store, 2, 80)));
+            assertNull(store.get(key(store, 1, 90)));
+            assertTrue(store.get(key(store, 1, 80)).isReadOnly());
+
+            // Records larger than a segment are not stored
+            assertFalse(store.put(key(store, 3, 80), ByteBuffer.wrap(data(1024, 3))));
+
+            // Full segments are rolled over
+            for (int i = 0; i < 10; i++) {
+                assertTrue(store.put(key(store, 10 + i, 80), ByteBuffer.wrap(data(300, i))));
+            }
+            assertTrue(store.getSegmentCount() > 1);
+            assertEquals(12, store.size());
+            assertEquals(ByteBuffer.wrap(data(100, 1)), store.get(key(store, 1, 80)));
+
+        }
+
+        // Renditions are recovered after reopening
+        try (RenditionStore store = new RenditionStore(directory, 1024)) {
+            assertEquals(12, store.size());
+            assertEquals(ByteBuffer.wrap(data(200, 2)), store.get(key(store, 2, 80)));
+            for (int i = 0; i < 10; i++) {
+                assertEquals(ByteBuffer.wrap(data(300, i)), store.get(key(store, 10 + i, 80)));
+            }
+        }
+
+    }
+
+    @Test
+    public void recoveryTest() throws IOException {
+
+        try (RenditionStore store = new RenditionStore(directory)) {
+            store.put(key(store, 1, 80), ByteBuffer.wrap(data(100, 1)));
+            store.put(key(store, 2, 80), ByteBuffer.wrap(data(100, 2)));
+            store.put(key(store, 2, 80), ByteBuffer.wrap(data(150, 3)));
+            store.put(key(store, 4, 80), ByteBuffer.wrap(data(100, 4)));
+            assertTrue(store.remove(key(store, 1, 80)));
+            assertFalse(store.remove(key(store, 1, 80)));
+        }
+
+        File segment = new File(directory, RenditionStore.SEGMENT_PREFIX + "00000001" + RenditionStore.SEGMENT_SUFFIX);
+        long size = segment.length();
+
+        // Torn write of the last record
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.setLength(size - 10);
+        }
+        try (RenditionStore store = new RenditionStore(directory)) {
+            assertEquals(ByteBuffer.wrap(data(100, 1)), store.get(key(store, 1, 80)));
+            assertEquals(ByteBuffer.wrap(data(150, 3)), store.get(key(store, 2, 80)));
+            assertEquals(ByteBuffer.wrap(data(100, 4)), store.get(key(store, 4, 80)));
+            assertTrue(store.getTotalBytes() < size - 10);
+            assertTrue(store.remove(key(store, 1, 80)));
+        }
+
+        // Corrupted data of the last record, appended after the index was persisted
+        new File(directory, RenditionStore.INDEX_FILE).delete();
+        size = segment.length();
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.seek(size - 50);
+            int value = file.read();
+            file.seek(size - 50);
+            file.write(value ^ 0xff);
+        }
+        try (RenditionStore store = new RenditionStore(directory)) {
+            assertEquals(2, store.size());
+            assertNull(store.get(key(store, 4, 80)));
+            assertEquals(ByteBuffer.wrap(data(100, 1)), store.get(key(store, 1, 80)));
+        }
+
+    }
+
+    @Test
+    public void indexTest() throws IOException {
+
+        File index = new File(directory, RenditionStore.INDEX_FILE);
+        try (RenditionStore store = new RenditionStore(directory, 1024)) {
+            for (int i = 0; i < 6; i++) {
+                store.put(key(store, i, 80), ByteBuffer.wrap(data(300, i)));
+            }
+        }
+        assertTrue(index.isFile());
+        byte[] persisted = Files.readAllBytes(index.toPath());
+
+        // Records appended and removed after the index was persisted are scanned
+        try (RenditionStore store = new RenditionStore(directory, 1024)) {
+            assertEquals(6, store.size());
+            for (int i = 6; i < 10; i++) {
+                store.put(key(store, i, 80), ByteBuffer.wrap(data(300, i)));
+            }
+            store.remove(key(store, 0, 80));
+        }
+        Files.write(index.toPath(), persisted);
+        long live;
+        try (RenditionStore store = new RenditionStore(directory, 1024)) {
+            assertEquals(9, store.size());
+            assertNull(store.get(key(store, 0, 80)));
+            for (int i = 1; i < 10; i++) {
+                assertEquals(ByteBuffer.wrap(data(300, i)), store.get(key(store, i, 80)));
+            }
+            live = store.getLiveBytes();
+        }
+
+        // An invalid index is rebuilt by scanning the segments
+        persisted = Files.readAllBytes(index.toPath());
+        persisted[persisted.length / 2] ^= 0xff;
+        Files.write(index.toPath(), persisted);
+        try (RenditionStore store = new RenditionStore(directory, 1024)) {
+            assertEquals(9, store.size());
+            assertEquals(live, store.getLiveBytes());
+            assertEquals(ByteBuffer.wrap(data(300, 9)), store.get(key(store, 9, 80)));
+        }
+
+    }
+
+    @Test
+    public void lockTest() throws IOException {
+
+        try (RenditionStore store = new RenditionStore(directory)) {
+            store.put(key(store, 1, 80), ByteBuffer.wrap(data(100, 1)));
+            try {
+                new RenditionStore(directory).close();
+                fail("Directory is opened by two stores");
+            } catch (IOException e) {
+                // expected
+            }
+        }
+
+        // The lock is released on close
+        try (RenditionStore store = new RenditionStore(directory)) {
+            assertEquals(1, store.size());
+        }
+
+    }
+
+    @Test
+    public void compactTest() throws IOException {
+
+        try (RenditionStore store = new RenditionStore(directory, 1024)) {
+
+            for (int i = 0; i < 12; i++) {
+                store.put(key(store, i, 80), ByteBuffer.wrap(data(200, i)));
+            }
+            for (int i = 0; i < 12; i++) {
+                if (i % 3 != 0) {
+                    store.remove(key(store, i, 80));
+                }
+            }
+            store.put(key(store, 0, 80), ByteBuffer.wrap(data(250, 100)));
+
+            int segments = store.getSegmentCount();
+            long total = store.getTotalBytes();
+            assertTrue(store.getLiveBytes() < total / 2);
+
+            long reclaimed = store.compact();
+            assertTrue(reclaimed > 0);
+            assertTrue(store.getSegmentCount() < segments);
+            assertEquals(4, store.size());
+            assertEquals(ByteBuffer.wrap(data(250, 100)), store.get(key(store, 0, 80)));
+            assertEquals(ByteBuffer.wrap(data(200, 9)), store.get(key(store, 9, 80)));
+
+        }
+
+        // Removed renditions don't come back after reopening
+        try (RenditionStore store = new RenditionStore(directory, 1024)) {
+            assertEquals(4, store.size());
+            for (int i = 0; i < 12; i++) {
+                ByteBuffer rendition = store.get(key(store, i, 80));
+                if (i == 0) {
+                    assertEquals(ByteBuffer.wrap(data(250, 100)), rendition);
+                } else if (i % 3 == 0) {
+                    assertEquals(ByteBuffer.wrap(data(200, i)), rendition);
+                } else {
+                    assertNull(rendition);
+                }
+            }
+        }
+
+    }
+
+    @Test
+    public void seedTest() throws IOException {
+
+        byte[] key;
+        try (RenditionStore store = new RenditionStore(directory)) {
+            key = key(store, 1, 80);
+            store.put(key, ByteBuffer.wrap(data(100, 1)));
+        }
+
+        // The seed is kept with the store, so the keys stay the same after reopening
+        try (RenditionStore store = new RenditionStore(directory)) {
+            assertArrayEquals(key, key(store, 1, 80));
+            assertEquals(ByteBuffer.wrap(data(100, 1)), store.get(key(store, 1, 80)));
+        }
+
+        // Another store hashes the same content differently
+        File other = Files.createTempDirectory("renditions").toFile();
+        try (RenditionStore store = new RenditionStore(other)) {
+            assertFalse(Arrays.equals(key, key(store, 1, 80)));
+        } finally {
+            for (File file : other.listFiles()) {
+                file.delete();
+            }
+            other.delete();
+        }
+
+    }
+
+    @Test
+    public void transcodeTest() throws Exception {
+
+        File inFile = new File(RenditionStoreTest.class.getResource("/images/i10_620p_sport.jpg").toURI());
+        File outFile = File.createTempFile("rendition", ".jpg");
+        outFile.deleteOnExit();
+
+        ImageProcessorImpl processor = new ImageProcessorImpl();
+        byte[] expected;
+        try (RenditionStore store = new RenditionStore(directory)) {
+            ByteBuffer rendition = ImageProcessorUtils.transcodeImage(processor, store, inFile, outFile, 80, 1, 2, TJ.SAMP_420, 0);
+            expected = new byte[rendition.remaining()];
+            rendition.get(expected);
+            assertEquals(1, store.size());
+            assertArrayEquals(expected, Files.readAllBytes(outFile.toPath()));
+        }
+
+        // After reopening, the rendition is served from the store
+        try (RenditionStore store = new RenditionStore(directory)) {
+            ByteBuffer image = ByteBuffer.wrap(Files.readAllBytes(inFile.toPath()));
+            ByteBuffer rendition = ImageProcessorUtils.transcodeImage(processor, store, image, 80, 1, 2, TJ.SAMP_420, 0);
+            assertEquals(ByteBuffer.wrap(expected), rendition);
+            assertEquals(1, store.size());
+            assertEquals(1, store.getSegmentCount());
+            assertEquals(store.getTotalBytes(), store.getLiveBytes());
+
+            // Other parameters are another rendition
+            ImageProcessorUtils.transcodeImage(processor, store, image, 80, 1, 1, TJ.SAMP_420, 0);
+            assertEquals(2, store.size());
+        }
+
+    }
+
+    private static byte[] key(RenditionStore store, int content, int param) {
+        return store.key(ByteBuffer.wrap(data(10, content)), param);
+    }
+
+    private static byte[] data(int length, int seed) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (i * 31 + seed);
+        }
+        return data;
+    }
+
+}